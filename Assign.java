@@ -23,14 +23,37 @@ public class Assign {
         assignMove(number); // Assign  move number
     }
 
+    /**
+     * Constructs a new Assign object and assigns a digit to the cell.
+     *
+     * @param game  the Sudoku game instance
+     * @param row   the row index of the cell to be assigned
+     * @param col   the column index of the cell to be assigned
+     * @param digit the digit to be assigned, 0 to erase
+     */
+    public Assign(Sudoku game, int row, int col, int digit) {
+        this.game = game;
+        this.row = row;
+        this.col = col;
+        assignMove(digit);
+    }
+
     /**
      * Assigns the given number to the cell specified by the row and column indices.
      *
      * @param number the number to be assigned to the cell
      */
     public void assignMove(String number) {
-        // Calls make the move
-        game.makeMove(String.valueOf(row), String.valueOf(col), number);
+        assignMove(Sudoku.parseDigit(number, game.getGameSize())); // -1 if not a digit, which is refused
+    }
+
+    /**
+     * Assigns a digit to the cell specified by the row and column indices.
+     *
+     * @param digit the digit to be assigned, 0 to erase
+     */
+    public final void assignMove(int digit) {
+        game.makeMove(row, col, digit);
     }
 
     /**
@@ -59,4 +82,13 @@ public class Assign {
     public String getNumber() {
         return game.getIndividualMove(row, col); // Returns the current value
     }
+
+    /**
+     * Gets the digit in the cell of this Assign object.
+     *
+     * @return the digit, 0 for an empty cell
+     */
+    public int getDigit() {
+        return game.getDigit(row, col);
+    }
 }
@@ -0,0 +1,234 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Headless entry point that solves a file of puzzles across all cores.
+ *
+ * Puzzles are read with {@link PuzzleReader}, so the input may hold one puzzle
+ * per line as n*n characters ('1'-'9' and then 'A'-'Z' for digits, '0' or '.'
+ * for an empty cell) or level files in the "row col value" format. Each output line
+ * holds the solution in the same format, or "unsolvable", followed by a tab and
+ * the solve time in nanoseconds. Output lines are in input order.
+ *
+ * Puzzles are read in chunks. While the fork-join pool solves one chunk the
+ * next one is read, and finished chunks are written before their buffers are
+ * reused, so memory stays constant however large the input is.
+ *
+ * With a {@link SolveCache}, puzzles repeated verbatim are answered from the
+ * cache by their cells, and from 16x16 up so are relabeled or permuted copies.
+ * It pays off on corpora with many duplicates and costs a little on ones
+ * without; CacheBenchmark in benchmarks/ measures both.
+ */
+public class BatchSolver {
+    private static final int CHUNK_SIZE = 16384; // Puzzles per chunk
+    private static final int LEAF_SIZE = 64;     // Puzzles per fork-join leaf
+    private static final int CACHE_CAPACITY = 1 << 20; // Solutions kept with -cache
+    private static final byte[] UNSOLVABLE = "unsolvable".getBytes(StandardCharsets.US_ASCII);
+
+    private final ForkJoinPool pool;
+    private final SolveCache cache;
+    private final ThreadLocal<Solver> solvers = new ThreadLocal<>();
+    private long solved;
+    private long unsolvable;
+
+    /**
+     * Constructs a batch solver using the given pool.
+     *
+     * @param pool the pool to solve on
+     */
+    public BatchSolver(ForkJoinPool pool) {
+        this(pool, null);
+    }
+
+    /**
+     * Constructs a batch solver using the given pool and solve cache.
+     *
+     * @param pool  the pool to solve on
+     * @param cache the cache to answer repeated puzzles from, or null for none
+     */
+    public BatchSolver(ForkJoinPool pool, SolveCache cache) {
+        this.pool = pool;
+        this.cache = cache;
+    }
+
+    /**
+     * Solves every puzzle in the input and writes one result line per puzzle.
+     *
+     * @param in  the puzzles
+     * @param out receives the result lines
+     * @return the number of puzzles processed
+     * @throws IOException if reading or writing fails
+     */
+    public long run(PuzzleReader in, OutputStream out) throws IOException {
+        Chunk current = new Chunk();
+        Chunk next = new Chunk();
+        long total = 0;
+        current.fill(in);
+        while (current.count > 0) {
+            ForkJoinTask<Void> task = pool.submit(new SolveTask(current, 0, current.count));
+            next.fill(in); // Read ahead while the pool solves
+            task.join();
+            current.write(out);
+            total += current.count;
+            Chunk done = current;
+            current = next;
+            next = done;
+        }
+        out.flush();
+        return total;
+    }
+
+    /**
+     * Gets the number of puzzles solved so far.
+     *
+     * @return the solved count
+     */
+    public long getSolved() {
+        return solved;
+    }
+
+    /**
+     * Gets the number of puzzles found to have no solution so far.
+     *
+     * @return the unsolvable count
+     */
+    public long getUnsolvable() {
+        return unsolvable;
+    }
+
+    /**
+     * Gets the solver for the current worker thread, creating one if needed.
+     */
+    private Solver solver(int size) {
+        Solver solver = solvers.get();
+        if (solver == null || solver.getSize() != size) {
+            solver = Solver.forSize(size);
+            solvers.set(solver);
+        }
+        return solver;
+    }
+
+    /**
+     * A block of puzzles with their results, reused from chunk to chunk.
+     */
+    private final class Chunk {
+        private final byte[][] lines = new byte[CHUNK_SIZE][];
+        private final int[] sizes = new int[CHUNK_SIZE];
+        private final long[] nanos = new long[CHUNK_SIZE];
+        private final boolean[] ok = new boolean[CHUNK_SIZE];
+        private int count;
+
+        // Reads the next chunk of puzzles
+        void fill(PuzzleReader in) throws IOException {
+            count = 0;
+            while (count < CHUNK_SIZE && in.next()) {
+                if (!PuzzleReader.fitsLine(in.size())) {
+                    throw new IOException("Puzzle " + in.count() + " is " + in.size() + "x" + in.size()
+                        + "; results are written one per line, which holds boards up to 25x25");
+                }
+                byte[] source = in.grid();
+                byte[] grid = lines[count];
+                if (grid == null || grid.length != source.length) {
+                    grid = new byte[source.length];
+                    lines[count] = grid;
+                }
+                System.arraycopy(source, 0, grid, 0, source.length);
+                sizes[count++] = in.size();
+            }
+        }
+
+        // Solves one puzzle in place
+        void solve(int i) {
+            long start = System.nanoTime();
+            ok[i] = cache != null ? cache.solve(sizes[i], lines[i], lines[i])
+                : solver(sizes[i]).solve(lines[i], lines[i]);
+            nanos[i] = System.nanoTime() - start;
+        }
+
+        // Writes the results in input order
+        void write(OutputStream out) throws IOException {
+            for (int i = 0; i < count; i++) {
+                if (ok[i]) {
+                    byte[] grid = lines[i];
+                    for (int c = 0; c < grid.length; c++) {
+                        grid[c] = PuzzleReader.cellChar(grid[c]);
+                    }
+                    out.write(grid);
+                    solved++;
+                } else {
+                    out.write(UNSOLVABLE);
+                    unsolvable++;
+                }
+                out.write('\t');
+                out.write(Long.toString(nanos[i]).getBytes(StandardCharsets.US_ASCII));
+                out.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Splits a range of a chunk in half until it is small enough to solve directly.
+     */
+    private static final class SolveTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final transient Chunk chunk;
+        private final int from;
+        private final int to;
+
+        SolveTask(Chunk chunk, int from, int to) {
+            this.chunk = chunk;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                for (int i = from; i < to; i++) {
+                    chunk.solve(i);
+                }
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new SolveTask(chunk, from, mid), new SolveTask(chunk, mid, to));
+            }
+        }
+    }
+
+    /**
+     * Solves a puzzle file from the command line.
+     * Usage: BatchSolver [-cache] input [output], writing to standard output by
+     * default. With -cache, repeated puzzles are solved once.
+     */
+    public static void main(String[] args) throws IOException {
+        SolveCache cache = null;
+        if (args.length > 0 && args[0].equals("-cache")) {
+            cache = new SolveCache(CACHE_CAPACITY);
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+        if (args.length < 1) {
+            System.err.println("Usage: java BatchSolver [-cache] <puzzles.txt> [solutions.txt]");
+            System.exit(1);
+        }
+        BatchSolver batch = new BatchSolver(ForkJoinPool.commonPool(), cache);
+        long start = System.nanoTime();
+        long total;
+        try (PuzzleReader in = PuzzleReader.open(Paths.get(args[0]));
+             OutputStream out = new BufferedOutputStream(
+                 args.length > 1 ? new FileOutputStream(args[1]) : new FileOutputStream(FileDescriptor.out), 1 << 16)) {
+            total = batch.run(in, out);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("%d puzzles (%d solved, %d unsolvable) in %.3f s, %.0f puzzles/sec on %d threads%n",
+            total, batch.getSolved(), batch.getUnsolvable(), seconds, total / seconds,
+            ForkJoinPool.commonPool().getParallelism());
+        if (cache != null) {
+            System.err.printf("cache: %d hits, %d misses, %d puzzles held%n",
+                cache.getHits(), cache.getMisses(), cache.size());
+        }
+    }
+}
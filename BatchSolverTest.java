@@ -0,0 +1,73 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+public class BatchSolverTest {
+
+    @Test
+    public void testSolvesInInputOrderAcrossChunks() throws IOException {
+        // More puzzles than one chunk holds, with an unsolvable one in each chunk
+        int count = 20_000;
+        int[] unsolvable = {7, 16_390};
+        SudokuGenerator generator = new SudokuGenerator(4, 11);
+        String[] puzzles = new String[16];
+        String[] solutions = new String[16];
+        for (int p = 0; p < puzzles.length; p++) {
+            byte[] puzzle = new byte[16];
+            byte[] solution = new byte[16];
+            generator.generate(SudokuGenerator.Difficulty.MEDIUM, puzzle, solution);
+            puzzles[p] = line(puzzle, p % 2 == 0 ? '.' : '0');
+            solutions[p] = line(solution, '.');
+        }
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            boolean bad = i == unsolvable[0] || i == unsolvable[1];
+            input.append(bad ? "11.............." : puzzles[i % puzzles.length]).append('\n');
+        }
+        Path file = Files.createTempFile("puzzles", ".txt");
+        Files.writeString(file, input);
+
+        BatchSolver batch = new BatchSolver(new ForkJoinPool(2));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PuzzleReader in = PuzzleReader.open(file)) {
+            assertEquals(count, batch.run(in, out));
+        }
+        String[] lines = out.toString(StandardCharsets.US_ASCII).split("\n");
+        assertEquals(count, lines.length, "One result line per puzzle");
+        for (int i = 0; i < count; i++) {
+            String[] fields = lines[i].split("\t");
+            assertEquals(2, fields.length, "Line " + i + " should hold a result and a time");
+            boolean bad = i == unsolvable[0] || i == unsolvable[1];
+            assertEquals(bad ? "unsolvable" : solutions[i % puzzles.length], fields[0], "Result of puzzle " + i);
+            assertTrue(Long.parseLong(fields[1]) >= 0);
+        }
+        assertEquals(count - 2, batch.getSolved());
+        assertEquals(2, batch.getUnsolvable());
+    }
+
+    @Test
+    public void testRejectsBoardsTooLargeForOneLine() throws IOException {
+        Path file = Files.createTempFile("puzzles", ".txt");
+        Files.writeString(file, ".".repeat(36 * 36) + "\n");
+        BatchSolver batch = new BatchSolver(new ForkJoinPool(1));
+        try (PuzzleReader in = PuzzleReader.open(file)) {
+            IOException e = assertThrows(IOException.class, () -> batch.run(in, new ByteArrayOutputStream()));
+            assertTrue(e.getMessage().contains("36x36"), e.getMessage());
+        }
+    }
+
+    // A grid in the one-line format, with the given character for empty cells
+    private static String line(byte[] grid, char empty) {
+        StringBuilder line = new StringBuilder();
+        for (byte cell : grid) {
+            line.append(cell == 0 ? empty : (char) PuzzleReader.cellChar(cell));
+        }
+        return line.toString();
+    }
+}
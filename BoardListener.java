@@ -0,0 +1,21 @@
+/**
+ * Receives changes to a game's board, so a view can redraw only what changed.
+ * Register with {@link Sudoku#addBoardListener}. Events are delivered on the
+ * thread that changed the game, right after the change.
+ */
+public interface BoardListener {
+    /**
+     * Called after one cell changed, whether by a move, undo, redo or clear.
+     *
+     * @param row   the row index
+     * @param col   the column index
+     * @param digit the new digit, 0 for empty
+     */
+    void cellChanged(int row, int col, int digit);
+
+    /**
+     * Called after the whole game was replaced, as when a save is loaded into
+     * it. Any cell, given or even the board size may have changed.
+     */
+    void boardReplaced();
+}
@@ -0,0 +1,785 @@
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Maps a board to a canonical form shared by every board that is the same up to
+ * relabeling the digits, permuting rows within a band, permuting bands, the same
+ * for columns and stacks, and transposing. Two boards are equivalent exactly
+ * when their canonical forms are equal, and the form's 128-bit fingerprint
+ * makes a compact key for deduplication and caching.
+ *
+ * The canonical form is the smallest board in the equivalence class when read
+ * row by row, with digits relabeled in order of first appearance and empty cells
+ * ranking before every digit. It is found by a depth-first search that places
+ * one output row at a time and drops a branch as soon as its prefix is larger
+ * than the best found. Rows are chosen eagerly, but columns are kept as an
+ * ordered partition, stacks first and then the columns within each stack, that
+ * every placed row refines: columns that have only held empty cells so far stay
+ * interchangeable instead of being tried in every order, and the search only
+ * branches where digits seen for the first time tie. Identical rows and bands
+ * are tried once.
+ *
+ * The transformation that produced the canonical form is kept, so a grid in the
+ * original layout, such as its solution, can be mapped to and from canonical
+ * coordinates. Dense boards larger than 9x9 can tie in very many ways, so the
+ * search gives up after a fixed number of steps and keeps the smallest form it
+ * has found; {@link #isExact()} tells whether that happened. Such a form is
+ * still the board under a valid transformation, so it is safe to cache by, but
+ * an equivalent board may get a different one. A canonicalizer reuses its
+ * buffers, so keep one per thread.
+ */
+public class Canonicalizer {
+    private static final long STEP_BUDGET = 1L << 21; // Search steps before settling for the best found
+
+    /**
+     * A 128-bit hash of a canonical form.
+     */
+    public static final class Fingerprint {
+        private final long high;
+        private final long low;
+
+        Fingerprint(long high, long low) {
+            this.high = high;
+            this.low = low;
+        }
+
+        /**
+         * Gets the upper 64 bits, usable alone as a 64-bit fingerprint.
+         *
+         * @return the upper half
+         */
+        public long getHigh() {
+            return high;
+        }
+
+        /**
+         * Gets the lower 64 bits.
+         *
+         * @return the lower half
+         */
+        public long getLow() {
+            return low;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Fingerprint && ((Fingerprint) other).high == high
+                && ((Fingerprint) other).low == low;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (high ^ (high >>> 32));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%016x%016x", high, low);
+        }
+    }
+
+    /**
+     * The column orders still open: stacks in output order, and the columns of
+     * each source stack in output order, each flagged when tied with the one
+     * before it.
+     */
+    private static final class Shape {
+        final int[] stackPerm;
+        final boolean[] stackTie;
+        final int[] colPerm;     // Indexed by source stack * box + position
+        final boolean[] colTie;
+
+        Shape(int box) {
+            stackPerm = new int[box];
+            stackTie = new boolean[box];
+            colPerm = new int[box * box];
+            colTie = new boolean[box * box];
+        }
+
+        void copyFrom(Shape other) {
+            System.arraycopy(other.stackPerm, 0, stackPerm, 0, stackPerm.length);
+            System.arraycopy(other.stackTie, 0, stackTie, 0, stackTie.length);
+            System.arraycopy(other.colPerm, 0, colPerm, 0, colPerm.length);
+            System.arraycopy(other.colTie, 0, colTie, 0, colTie.length);
+        }
+    }
+
+    private final int size;
+    private final int box;
+    private final int cells;
+    private final int newToken;      // Sorts a digit not labeled yet after every label
+
+    // Search state
+    private final byte[] work;       // The board, transposed on the second pass
+    private final int[] best;        // Smallest output found so far
+    private int validLength;         // Entries of best past this are stale
+    private boolean improved;        // The current path has beaten best
+    private final int[] rowSrc;      // Source row of each output row
+    private final int[] bandSrc;     // Source band of each output band
+    private final boolean[] rowUsed;
+    private final boolean[] bandUsed;
+    private final int[] rowTwin;     // Previous identical row in the band, or -1
+    private final int[] bandTwin;    // Previous identical band, or -1
+    private final int[] label;       // Label of each digit, 0 if not seen yet
+    private final int[] trail;       // Digits in the order they were labeled
+    private int trailSize;
+    private boolean transposed;
+    private final Shape shape;
+    private final List<Shape> saved = new ArrayList<>();
+    private int savedDepth;
+    private final int[] tokens;      // Scratch for one stack's tokens
+    private final int[] rowBuffer;   // Scratch for a candidate row's output
+    private final int[] minRow;      // Smallest candidate row output
+    private final int[][] picked;    // Rows tried at each depth
+    private final int[][] stackMin;  // Smallest segment among tied stacks, per row and stack slot
+    private final boolean[][] stackGroup; // Tied stacks holding that segment, per row and stack slot
+    private long steps;
+    private boolean haveLeaf;
+    private boolean exact;
+
+    // Transformation that gives the best output
+    private boolean bestTransposed;
+    private final int[] bestRows;
+    private final int[] bestCols;
+    private final int[] bestLabel;   // Label of each digit, completed for unseen digits
+    private final int[] unlabel;     // Digit of each label
+
+    private final byte[] canonical;
+    private Fingerprint fingerprint;
+
+    /**
+     * Constructs a canonicalizer for boards of the given size.
+     *
+     * @param size the board size, a perfect square up to {@link Sudoku#MAX_SIZE}
+     */
+    public Canonicalizer(int size) {
+        int b = (int) Math.round(Math.sqrt(size));
+        if (size < 1 || size > Sudoku.MAX_SIZE || b * b != size) {
+            throw new IllegalArgumentException("Unsupported board size: " + size);
+        }
+        this.size = size;
+        this.box = b;
+        this.cells = size * size;
+        this.newToken = size + 1;
+        work = new byte[cells];
+        best = new int[cells];
+        rowSrc = new int[size];
+        bandSrc = new int[b];
+        rowUsed = new boolean[size];
+        bandUsed = new boolean[b];
+        rowTwin = new int[size];
+        bandTwin = new int[b];
+        label = new int[size + 1];
+        trail = new int[size];
+        shape = new Shape(b);
+        tokens = new int[b];
+        rowBuffer = new int[size];
+        minRow = new int[size];
+        picked = new int[size][size];
+        stackMin = new int[size * b][b];
+        stackGroup = new boolean[size * b][b];
+        bestRows = new int[size];
+        bestCols = new int[size];
+        bestLabel = new int[size + 1];
+        unlabel = new int[size + 1];
+        canonical = new byte[cells];
+    }
+
+    /**
+     * Gets the board size this canonicalizer handles.
+     *
+     * @return the number of rows and columns
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Finds the canonical form of a board and remembers the transformation to it.
+     *
+     * @param board the board in row-major order, 0 for an empty cell
+     * @return the canonical form, in a buffer reused by the next call
+     */
+    public byte[] canonicalize(byte[] board) {
+        if (board.length != cells) {
+            throw new IllegalArgumentException("Expected " + cells + " cells but got " + board.length);
+        }
+        validLength = 0;
+        steps = 0;
+        haveLeaf = false;
+        exact = true;
+        for (int pass = 0; pass < 2 && exact; pass++) {
+            transposed = pass == 1;
+            for (int r = 0; r < size; r++) {
+                for (int c = 0; c < size; c++) {
+                    work[r * size + c] = transposed ? board[c * size + r] : board[r * size + c];
+                }
+            }
+            findTwins();
+            for (int k = 0; k < box; k++) {
+                shape.stackPerm[k] = k;
+                shape.stackTie[k] = k > 0;
+            }
+            for (int c = 0; c < size; c++) {
+                shape.colPerm[c] = c;
+                shape.colTie[c] = c % box > 0;
+            }
+            rowStep(0);
+        }
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (exact) {
+                    canonical[i * size + j] = (byte) best[i * size + j];
+                } else {
+                    canonical[i * size + j] = (byte) bestLabel[board[source(i, j)]]; // best may hold a cut-off path
+                }
+            }
+        }
+        completeLabels();
+        fingerprint = hash(canonical);
+        return canonical;
+    }
+
+    /**
+     * Tells whether the last canonical form is exact, or the search ran out of
+     * steps and settled for the smallest form it had found.
+     *
+     * @return true if the form is the canonical one
+     */
+    public boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * Gets the fingerprint of the last canonical form.
+     *
+     * @return the fingerprint
+     */
+    public Fingerprint fingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Maps a grid in the last board's layout, such as its solution, into canonical
+     * coordinates and labels.
+     *
+     * @param grid the grid in the original layout
+     * @param out  receives the grid in canonical layout; must not be the same array
+     */
+    public void toCanonical(byte[] grid, byte[] out) {
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                out[i * size + j] = (byte) bestLabel[grid[source(i, j)]];
+            }
+        }
+    }
+
+    /**
+     * Maps a grid in canonical coordinates and labels back to the last board's
+     * layout, such as a solution found for the canonical form.
+     *
+     * @param grid the grid in canonical layout
+     * @param out  receives the grid in the original layout; must not be the same array
+     */
+    public void fromCanonical(byte[] grid, byte[] out) {
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                out[source(i, j)] = (byte) unlabel[grid[i * size + j]];
+            }
+        }
+    }
+
+    // Index in the original board of an output cell of the best transformation
+    private int source(int i, int j) {
+        int r = bestRows[i];
+        int c = bestCols[j];
+        return bestTransposed ? c * size + r : r * size + c;
+    }
+
+    /**
+     * Chooses the source row for output row i.
+     */
+    private void rowStep(int i) {
+        if (i == size) {
+            if (improved) {
+                saveTransform();
+                improved = false;
+                haveLeaf = true;
+            }
+            return;
+        }
+        if (!exact) {
+            return;
+        }
+        // Only the rows whose smallest arrangement ties for the smallest are tried
+        int[] picks = picked[i];
+        int count = 0;
+        boolean newBand = i % box == 0;
+        for (int b = 0; b < box; b++) {
+            boolean open = newBand ? !bandUsed[b] && (bandTwin[b] < 0 || bandUsed[bandTwin[b]])
+                : b == bandSrc[i / box];
+            for (int r = b * box; open && r < b * box + box; r++) {
+                if (rowUsed[r] || (rowTwin[r] >= 0 && !rowUsed[rowTwin[r]])) {
+                    continue; // Only the first of identical rows is tried
+                }
+                if (!rowKeys(i, r, rowBuffer, count > 0)) {
+                    continue;
+                }
+                int order = count == 0 ? -1 : Arrays.compare(rowBuffer, minRow);
+                if (order < 0) {
+                    System.arraycopy(rowBuffer, 0, minRow, 0, size);
+                    count = 0;
+                }
+                if (order <= 0) {
+                    picks[count++] = r;
+                }
+            }
+        }
+        for (int q = 0; q < count; q++) {
+            int r = picks[q];
+            if (newBand) {
+                bandUsed[r / box] = true;
+                bandSrc[i / box] = r / box;
+            }
+            rowUsed[r] = true;
+            rowSrc[i] = r;
+            int mark = trailSize;
+            advance(i, r, 0, 0);
+            unlabel(mark);
+            rowUsed[r] = false;
+            if (newBand) {
+                bandUsed[r / box] = false;
+            }
+        }
+    }
+
+    /**
+     * Fills out with the smallest output source row r can give as output row i
+     * under the current shape.
+     *
+     * @return false if it is larger than the smallest candidate so far, or the
+     *         best output, and so was left unfinished
+     */
+    private boolean rowKeys(int i, int r, int[] out, boolean haveMin) {
+        int next = trailSize;
+        int p = i * size;
+        boolean tiesBest = true; // Still equal to best so far
+        for (int slot = 0; slot < box; ) {
+            int end = slot + 1;
+            while (end < box && shape.stackTie[end]) {
+                end++;
+            }
+            for (int q = slot; q < end; q++) {
+                segment(r, shape.stackPerm[q] * box);
+                int at = q * box;
+                System.arraycopy(tokens, 0, out, at, box);
+                // Tied stacks go in order of their segments
+                while (at > slot * box && Arrays.compare(out, at - box, at, out, at, at + box) > 0) {
+                    System.arraycopy(out, at - box, tokens, 0, box);
+                    System.arraycopy(out, at, out, at - box, box);
+                    System.arraycopy(tokens, 0, out, at, box);
+                    at -= box;
+                }
+            }
+            int from = slot * box;
+            int to = end * box;
+            for (int j = from; j < to; j++) {
+                if (out[j] == newToken) {
+                    out[j] = ++next; // New digits are labeled in order of appearance
+                }
+            }
+            if (haveMin) {
+                int order = Arrays.compare(out, from, to, minRow, from, to);
+                if (order > 0) {
+                    return false;
+                }
+                haveMin = order == 0; // Once smaller, the rest cannot make it larger
+            }
+            if (tiesBest && p + from < validLength) {
+                int stop = Math.min(to, validLength - p);
+                int order = Arrays.compare(out, from, stop, best, p + from, p + stop);
+                if (order > 0) {
+                    return false;
+                }
+                tiesBest = order == 0;
+            }
+            slot = end;
+        }
+        return true;
+    }
+
+    /**
+     * Places source row r as output row i from stack slot {@code slot}, position
+     * k on, refining the column order as it goes.
+     */
+    private void advance(int i, int r, int slot, int k) {
+        if (haveLeaf && ++steps > STEP_BUDGET) {
+            exact = false;
+            return;
+        }
+        if (k == box) {
+            slot++;
+            k = 0;
+        }
+        if (slot == box) {
+            rowStep(i + 1);
+            return;
+        }
+        if (k == 0) {
+            int end = slot + 1;
+            while (end < box && shape.stackTie[end]) {
+                end++;
+            }
+            if (end - slot > 1) {
+                chooseStacks(i, r, slot, end);
+                return;
+            }
+        }
+        int base = shape.stackPerm[slot] * box;
+        int end = k + 1;
+        while (end < box && shape.colTie[base + end]) {
+            end++;
+        }
+        int p = i * size + slot * box + k;
+        if (end - k == 1) {
+            if (place(p, key(r, shape.colPerm[base + k]))) {
+                advance(i, r, slot, k + 1);
+            }
+            return;
+        }
+        int min = Integer.MAX_VALUE;
+        for (int m = k; m < end; m++) {
+            min = Math.min(min, token(r, shape.colPerm[base + m]));
+        }
+        if (min != newToken) {
+            // The columns holding the smallest token come next, still tied with each other
+            int n = k;
+            while (n < end && token(r, shape.colPerm[base + n]) == min) {
+                n++;
+            }
+            if (n == end) {
+                boolean alive = true;
+                for (int m = k; m < end && alive; m++) {
+                    alive = place(p + m - k, min); // The whole group ties, so nothing to reorder
+                }
+                if (alive) {
+                    advance(i, r, slot, end);
+                }
+                return;
+            }
+            save();
+            n = k;
+            for (int m = k; m < end; m++) {
+                int c = shape.colPerm[base + m];
+                if (token(r, c) == min) {
+                    System.arraycopy(shape.colPerm, base + n, shape.colPerm, base + n + 1, m - n);
+                    shape.colPerm[base + n++] = c;
+                }
+            }
+            if (n < end) {
+                shape.colTie[base + n] = false;
+            }
+            boolean alive = true;
+            for (int m = k; m < n && alive; m++) {
+                alive = place(p + m - k, min);
+            }
+            if (alive) {
+                advance(i, r, slot, n);
+            }
+            restore();
+        } else {
+            // Only digits not labeled yet are left; each order labels them differently
+            for (int m = k; m < end; m++) {
+                save();
+                int c = shape.colPerm[base + m];
+                shape.colPerm[base + m] = shape.colPerm[base + k];
+                shape.colPerm[base + k] = c;
+                shape.colTie[base + k + 1] = false;
+                int mark = trailSize;
+                if (place(p, key(r, c))) {
+                    advance(i, r, slot, k + 1);
+                }
+                unlabel(mark);
+                restore();
+            }
+        }
+    }
+
+    /**
+     * Orders the tied stacks in slots [slot, end) by their smallest segment of
+     * source row r.
+     */
+    private void chooseStacks(int i, int r, int slot, int end) {
+        int[] min = stackMin[i * box + slot]; // Each row and slot is chosen at most once on the stack
+        boolean[] inGroup = stackGroup[i * box + slot];
+        for (int q = slot; q < end; q++) {
+            segment(r, shape.stackPerm[q] * box);
+            int order = q == slot ? -1 : Arrays.compare(tokens, min);
+            if (order < 0) {
+                System.arraycopy(tokens, 0, min, 0, box);
+                Arrays.fill(inGroup, false);
+            }
+            inGroup[q - slot] = order <= 0;
+        }
+        boolean hasNew = false;
+        for (int t : min) {
+            hasNew |= t == newToken;
+        }
+        if (hasNew) {
+            // Stacks with digits not labeled yet are tried first in turn
+            for (int q = slot; q < end; q++) {
+                if (inGroup[q - slot]) {
+                    save();
+                    int s = shape.stackPerm[q];
+                    shape.stackPerm[q] = shape.stackPerm[slot];
+                    shape.stackPerm[slot] = s;
+                    shape.stackTie[slot + 1] = false;
+                    int mark = trailSize;
+                    advance(i, r, slot, 0);
+                    unlabel(mark);
+                    restore();
+                }
+            }
+            return;
+        }
+        // The smallest stacks come next, still tied, each with its columns sorted
+        save();
+        int n = slot;
+        for (int q = slot; q < end; q++) {
+            if (inGroup[q - slot]) {
+                int s = shape.stackPerm[q];
+                System.arraycopy(shape.stackPerm, n, shape.stackPerm, n + 1, q - n);
+                shape.stackPerm[n++] = s;
+            }
+        }
+        if (n < end) {
+            shape.stackTie[n] = false;
+        }
+        boolean alive = true;
+        for (int q = slot; q < n && alive; q++) {
+            sortStack(r, shape.stackPerm[q] * box);
+            for (int k = 0; k < box && alive; k++) {
+                alive = place(i * size + q * box + k, min[k]);
+            }
+        }
+        if (alive) {
+            advance(i, r, n, 0);
+        }
+        restore();
+    }
+
+    // Fills tokens with the smallest arrangement of row r in the stack at base
+    private void segment(int r, int base) {
+        int start = 0;
+        for (int k = 0; k < box; k++) {
+            if (!shape.colTie[base + k]) {
+                start = k;
+            }
+            int t = token(r, shape.colPerm[base + k]);
+            int n = k;
+            while (n > start && tokens[n - 1] > t) {
+                tokens[n] = tokens[n - 1];
+                n--;
+            }
+            tokens[n] = t;
+        }
+    }
+
+    // Sorts each tied group of columns in the stack at base by row r, splitting unequal ones
+    private void sortStack(int r, int base) {
+        for (int start = 0; start < box; ) {
+            int end = start + 1;
+            while (end < box && shape.colTie[base + end]) {
+                end++;
+            }
+            for (int m = start + 1; m < end; m++) {
+                int c = shape.colPerm[base + m];
+                int t = token(r, c);
+                int n = m;
+                while (n > start && token(r, shape.colPerm[base + n - 1]) > t) {
+                    shape.colPerm[base + n] = shape.colPerm[base + n - 1];
+                    n--;
+                }
+                shape.colPerm[base + n] = c;
+            }
+            for (int m = start + 1; m < end; m++) {
+                shape.colTie[base + m] = token(r, shape.colPerm[base + m]) == token(r, shape.colPerm[base + m - 1]);
+            }
+            start = end;
+        }
+    }
+
+    // Sort key of a cell without labeling: 0 if empty, its label, or newToken
+    private int token(int r, int c) {
+        int digit = work[r * size + c];
+        return digit == 0 ? 0 : label[digit] != 0 ? label[digit] : newToken;
+    }
+
+    // Output value of a cell, labeling its digit if it is new
+    private int key(int r, int c) {
+        int digit = work[r * size + c];
+        if (digit != 0 && label[digit] == 0) {
+            trail[trailSize++] = digit;
+            label[digit] = trailSize;
+        }
+        return label[digit];
+    }
+
+    /**
+     * Puts a value at output position p and compares it with the best output.
+     *
+     * @return false if the output is now larger than the best, so the branch ends
+     */
+    private boolean place(int p, int value) {
+        if (p < validLength) {
+            if (value > best[p]) {
+                return false;
+            }
+            if (value == best[p]) {
+                return true;
+            }
+        }
+        best[p] = value; // Smaller, or past the known best: this path is the new best
+        validLength = p + 1;
+        improved = true;
+        return true;
+    }
+
+    // Forgets the labels given since the mark
+    private void unlabel(int mark) {
+        while (trailSize > mark) {
+            label[trail[--trailSize]] = 0;
+        }
+    }
+
+    private void save() {
+        if (savedDepth == saved.size()) {
+            saved.add(new Shape(box));
+        }
+        saved.get(savedDepth++).copyFrom(shape);
+    }
+
+    private void restore() {
+        shape.copyFrom(saved.get(--savedDepth));
+    }
+
+    // Links each row and band to the previous identical one, which makes them interchangeable
+    private void findTwins() {
+        for (int r = 0; r < size; r++) {
+            rowTwin[r] = -1;
+            for (int other = r - 1; other >= r - r % box && rowTwin[r] < 0; other--) {
+                if (Arrays.equals(work, r * size, r * size + size, work, other * size, other * size + size)) {
+                    rowTwin[r] = other;
+                }
+            }
+        }
+        int span = box * size;
+        for (int b = 0; b < box; b++) {
+            bandTwin[b] = -1;
+            for (int other = b - 1; other >= 0 && bandTwin[b] < 0; other--) {
+                if (Arrays.equals(work, b * span, b * span + span, work, other * span, other * span + span)) {
+                    bandTwin[b] = other;
+                }
+            }
+        }
+    }
+
+    private void saveTransform() {
+        bestTransposed = transposed;
+        System.arraycopy(rowSrc, 0, bestRows, 0, size);
+        for (int slot = 0; slot < box; slot++) {
+            // Columns still tied are identical, so any order of them will do
+            System.arraycopy(shape.colPerm, shape.stackPerm[slot] * box, bestCols, slot * box, box);
+        }
+        System.arraycopy(label, 0, bestLabel, 0, size + 1);
+    }
+
+    // Gives the digits missing from the board the remaining labels, in digit order
+    private void completeLabels() {
+        int next = 0;
+        for (int digit = 1; digit <= size; digit++) {
+            next = Math.max(next, bestLabel[digit]);
+        }
+        for (int digit = 1; digit <= size; digit++) {
+            if (bestLabel[digit] == 0) {
+                bestLabel[digit] = ++next;
+            }
+        }
+        bestLabel[0] = 0;
+        for (int digit = 0; digit <= size; digit++) {
+            unlabel[bestLabel[digit]] = digit;
+        }
+    }
+
+    private Fingerprint hash(byte[] form) {
+        long high = 0x9E3779B97F4A7C15L ^ size;
+        long low = 0xC2B2AE3D27D4EB4FL ^ cells;
+        for (byte cell : form) {
+            high = (high ^ cell) * 0x100000001B3L;
+            low = Long.rotateLeft(low ^ cell, 23) * 0x9E3779B97F4A7C15L;
+        }
+        return new Fingerprint(mix(high), mix(low ^ high));
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    /**
+     * Removes duplicate puzzles from a corpus file. The first puzzle of each
+     * equivalence class is kept and written in the one-line format.
+     * Usage: Canonicalizer puzzles.txt unique.txt
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: java Canonicalizer <puzzles.txt> <unique.txt>");
+            System.exit(1);
+        }
+        Set<Fingerprint> seen = new HashSet<>();
+        Canonicalizer canonicalizer = null;
+        long read = 0;
+        long inexact = 0;
+        long start = System.nanoTime();
+        try (PuzzleReader in = PuzzleReader.open(Paths.get(args[0]));
+             OutputStream out = new BufferedOutputStream(new FileOutputStream(args[1]), 1 << 16)) {
+            while (in.next()) {
+                read++;
+                if (!PuzzleReader.fitsLine(in.size())) {
+                    throw new IOException("Puzzle " + read + " is " + in.size() + "x" + in.size()
+                        + "; unique puzzles are written one per line, which holds boards up to 25x25");
+                }
+                if (canonicalizer == null || canonicalizer.getSize() != in.size()) {
+                    canonicalizer = new Canonicalizer(in.size());
+                }
+                canonicalizer.canonicalize(in.grid());
+                if (!canonicalizer.isExact()) {
+                    inexact++;
+                }
+                if (seen.add(canonicalizer.fingerprint())) {
+                    for (byte cell : in.grid()) {
+                        out.write(PuzzleReader.cellChar(cell));
+                    }
+                    out.write('\n');
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("%d puzzles, %d unique, %d duplicates removed in %.3f s%n",
+            read, seen.size(), read - seen.size(), seconds);
+        if (inexact > 0) {
+            System.err.printf("%d puzzles had too many ties for an exact form; their copies may remain%n", inexact);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class CanonicalizerTest {
+    // Level su1 as an 81-cell grid, 0 = empty
+    private static final String LEVEL =
+        "986000000040000000002000000054106007200045009008200004060007045009000060700000210";
+
+    private static byte[] parse(String text) {
+        byte[] grid = new byte[text.length()];
+        for (int i = 0; i < grid.length; i++) {
+            grid[i] = (byte) (text.charAt(i) - '0');
+        }
+        return grid;
+    }
+
+    @Test
+    public void testEquivalentPuzzlesShareFingerprint() {
+        byte[] puzzle = parse(LEVEL);
+        // Transpose, swap bands 0 and 2, swap rows 3 and 5, swap stacks 0 and 1, relabel d -> 10 - d
+        int[] rows = {6, 7, 8, 5, 4, 3, 0, 1, 2};
+        int[] cols = {3, 4, 5, 0, 1, 2, 6, 7, 8};
+        byte[] copy = new byte[81];
+        for (int r = 0; r < 9; r++) {
+            for (int c = 0; c < 9; c++) {
+                int digit = puzzle[cols[c] * 9 + rows[r]];
+                copy[r * 9 + c] = (byte) (digit == 0 ? 0 : 10 - digit);
+            }
+        }
+        Canonicalizer canonicalizer = new Canonicalizer(9);
+        byte[] form = canonicalizer.canonicalize(puzzle).clone();
+        Canonicalizer.Fingerprint fingerprint = canonicalizer.fingerprint();
+        assertArrayEquals(form, canonicalizer.canonicalize(copy), "Equivalent puzzles share a canonical form");
+        assertEquals(fingerprint, canonicalizer.fingerprint());
+
+        byte[] solution = new byte[81];
+        assertTrue(new SudokuSolver(9).solve(copy, solution));
+        byte[] canonicalSolution = new byte[81];
+        canonicalizer.toCanonical(solution, canonicalSolution);
+        byte[] mapped = new byte[81];
+        canonicalizer.fromCanonical(canonicalSolution, mapped);
+        assertArrayEquals(solution, mapped, "Mapping to canonical form and back should give the grid again");
+
+        copy[80] = copy[80] == 0 ? (byte) 1 : 0;
+        canonicalizer.canonicalize(copy);
+        assertNotEquals(fingerprint, canonicalizer.fingerprint(), "A different puzzle gets another fingerprint");
+    }
+}
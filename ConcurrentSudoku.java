@@ -0,0 +1,343 @@
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A board that several players edit at once, for collaborative games.
+ *
+ * A {@link Sudoku} is only ever used by one thread at a time, which the server
+ * enforces with a lock per session. This board takes moves from any number of
+ * threads instead. Its cells are striped by box: each box has its own
+ * StampedLock, and a move holds only the write lock of its cell's box, so
+ * players working in different boxes never wait for each other. The row,
+ * column and box digit counters a move also touches are atomic, and the
+ * solution match and conflict counts are striped adders, so conflict checks
+ * and the win check stay exact without wider locks.
+ *
+ * Every move is appended to an ordered log without a lock: one atomic
+ * increment gives the move its sequence number and the entry is published
+ * into that slot of a chunked array. The number is taken under the stripe
+ * lock, so two moves on the same cell are logged in the order they were made,
+ * and replaying the log from the starting board gives the current board.
+ * Entries are packed like {@link MoveLog} entries.
+ *
+ * {@link #snapshot(byte[])} copies the board for rendering without blocking
+ * writers in the common case. It copies under optimistic reads of every stripe
+ * and keeps the copy only if no stripe was written meanwhile, falling back to
+ * read locks on all stripes after a few tries. Either way the copy is a state
+ * the board actually passed through, made of exactly the first moves of the log.
+ */
+public class ConcurrentSudoku {
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS; // Log entries per chunk
+    private static final int MAX_CHUNKS = 1 << 16;         // So the log holds up to 2^28 moves
+    private static final int OPTIMISTIC_TRIES = 4;         // Snapshot copies before locking
+
+    private final int gameSize;
+    private final int boxSize;
+    private final byte[] board;                // Each cell written under its box's stripe
+    private final byte[] solution;             // Null if unknown
+    private final long[] givens;               // One bit per given cell, never changed
+    private final StampedLock[] stripes;       // One per box
+    private final AtomicIntegerArray rowCount; // Occurrences of each digit per row
+    private final AtomicIntegerArray colCount; // Occurrences of each digit per column
+    private final AtomicIntegerArray boxCount; // Occurrences of each digit per box
+    private final LongAdder matched = new LongAdder();   // Cells that agree with the solution
+    private final LongAdder conflicts = new LongAdder(); // Unit and digit pairs seen more than once
+    private final AtomicLong sequence = new AtomicLong(); // Moves given a place in the log
+    private final AtomicReferenceArray<AtomicIntegerArray> log = new AtomicReferenceArray<>(MAX_CHUNKS);
+
+    /**
+     * Constructs a shared board starting from a game's current board, givens and
+     * solution. The game's history is not carried over, and the game itself is
+     * not changed by moves made here.
+     *
+     * @param game the game to start from
+     */
+    public ConcurrentSudoku(Sudoku game) {
+        gameSize = game.getGameSize();
+        boxSize = game.getBoxSize();
+        board = game.boardCells().clone();
+        solution = game.solutionCells() != null ? game.solutionCells().clone() : null;
+        givens = game.givenMask().clone();
+        stripes = new StampedLock[gameSize];
+        for (int box = 0; box < gameSize; box++) {
+            stripes[box] = new StampedLock();
+        }
+        rowCount = new AtomicIntegerArray(board.length);
+        colCount = new AtomicIntegerArray(board.length);
+        boxCount = new AtomicIntegerArray(board.length);
+        for (int index = 0; index < board.length; index++) {
+            if (solution != null && board[index] == solution[index]) {
+                matched.increment();
+            }
+            if (board[index] != 0) {
+                count(index, board[index], 1);
+            }
+        }
+    }
+
+    /**
+     * Gets the board size.
+     *
+     * @return the number of rows and columns
+     */
+    public int getGameSize() {
+        return gameSize;
+    }
+
+    /**
+     * Makes a move. Safe to call from any thread.
+     *
+     * @param row   the row index
+     * @param col   the column index
+     * @param digit the digit, or 0 to erase
+     * @return true if the move was made, false if it is off the board or out
+     *         of range or the cell is a given
+     */
+    public boolean makeMove(int row, int col, int digit) {
+        return row >= 0 && row < gameSize && col >= 0 && col < gameSize && makeMove(row * gameSize + col, digit);
+    }
+
+    /**
+     * Makes a move on a cell given by its index in row-major order. Safe to
+     * call from any thread.
+     *
+     * @param index the cell index
+     * @param digit the digit, or 0 to erase
+     * @return true if the move was made, false if it is off the board or out
+     *         of range or the cell is a given
+     */
+    public boolean makeMove(int index, int digit) {
+        if (index < 0 || index >= board.length || digit < 0 || digit > gameSize
+                || (givens[index >>> 6] & (1L << index)) != 0) {
+            return false;
+        }
+        long start = EngineMetrics.start();
+        StampedLock stripe = stripes[boxOf(index)];
+        long stamp = stripe.writeLock();
+        try {
+            long seq = sequence.getAndIncrement();
+            AtomicIntegerArray slots = chunk(seq);
+            int old = board[index];
+            if (old != digit) {
+                if (solution != null) {
+                    int target = solution[index];
+                    matched.add((digit == target ? 1 : 0) - (old == target ? 1 : 0));
+                }
+                if (old != 0) {
+                    count(index, old, -1);
+                }
+                if (digit != 0) {
+                    count(index, digit, 1);
+                }
+                board[index] = (byte) digit;
+            }
+            slots.set((int) seq & (CHUNK_SIZE - 1), MoveLog.encode(index, old, digit) + 1); // 0 marks an empty slot
+        } finally {
+            stripe.unlockWrite(stamp);
+            EngineMetrics.record(EngineMetrics.Op.MOVE, start);
+        }
+        return true;
+    }
+
+    /**
+     * Gets the digit in a cell.
+     *
+     * @param row the row index
+     * @param col the column index
+     * @return the digit, 0 for an empty cell
+     */
+    public int getDigit(int row, int col) {
+        int index = row * gameSize + col;
+        StampedLock stripe = stripes[boxOf(index)];
+        long stamp = stripe.tryOptimisticRead();
+        int digit = board[index];
+        if (!stripe.validate(stamp)) {
+            stamp = stripe.readLock();
+            try {
+                digit = board[index];
+            } finally {
+                stripe.unlockRead(stamp);
+            }
+        }
+        return digit;
+    }
+
+    /**
+     * Checks whether a cell was given by the level and so cannot be changed.
+     *
+     * @param row the row index
+     * @param col the column index
+     * @return true if the cell is a given
+     */
+    public boolean isGiven(int row, int col) {
+        int index = row * gameSize + col;
+        return (givens[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Checks whether the digit in a cell also appears elsewhere in its row,
+     * column or box.
+     *
+     * @param row the row index
+     * @param col the column index
+     * @return true if the cell clashes with another
+     */
+    public boolean isConflict(int row, int col) {
+        int digit = getDigit(row, col);
+        if (digit == 0) {
+            return false;
+        }
+        int d = digit - 1;
+        int box = (row / boxSize) * boxSize + col / boxSize;
+        return rowCount.get(row * gameSize + d) > 1 || colCount.get(col * gameSize + d) > 1
+            || boxCount.get(box * gameSize + d) > 1;
+    }
+
+    /**
+     * Checks whether any digit appears twice in a row, column or box.
+     *
+     * @return true if the board has a clash
+     */
+    public boolean hasConflicts() {
+        return conflicts.sum() > 0;
+    }
+
+    /**
+     * Checks whether every cell matches the solution.
+     *
+     * @return true if the board is solved
+     */
+    public boolean checkWin() {
+        return solution != null && matched.sum() == board.length;
+    }
+
+    /**
+     * Gets the number of moves given a place in the log. The last few may
+     * still be being written; {@link #readLog} stops before those.
+     *
+     * @return the move count
+     */
+    public long getMoveCount() {
+        return sequence.get();
+    }
+
+    /**
+     * Copies moves out of the log, oldest first, stopping early at a move
+     * still being written.
+     *
+     * @param from the sequence number of the first move wanted
+     * @param into where to copy the moves, packed like {@link MoveLog} entries
+     * @return the number of moves copied
+     */
+    public int readLog(long from, int[] into) {
+        int n = 0;
+        while (n < into.length) {
+            long seq = from + n;
+            int chunk = (int) (seq >>> CHUNK_BITS);
+            AtomicIntegerArray slots = chunk < MAX_CHUNKS ? log.get(chunk) : null;
+            int slot = slots != null ? slots.get((int) seq & (CHUNK_SIZE - 1)) : 0;
+            if (slot == 0) {
+                break;
+            }
+            into[n++] = slot - 1;
+        }
+        return n;
+    }
+
+    /**
+     * Copies the board into an array as it stood after some prefix of the log,
+     * without blocking writers unless they keep every copy from validating.
+     *
+     * @param cells the array to copy the board into, one byte per cell
+     * @return the number of logged moves the copy includes
+     */
+    public long snapshot(byte[] cells) {
+        long[] stamps = new long[stripes.length];
+        for (int attempt = 0; attempt < OPTIMISTIC_TRIES; attempt++) {
+            boolean free = true;
+            for (int box = 0; box < stripes.length && free; box++) {
+                stamps[box] = stripes[box].tryOptimisticRead();
+                free = stamps[box] != 0;
+            }
+            if (free) {
+                long moves = sequence.get();
+                System.arraycopy(board, 0, cells, 0, board.length);
+                boolean valid = true;
+                for (int box = 0; box < stripes.length && valid; box++) {
+                    valid = stripes[box].validate(stamps[box]);
+                }
+                if (valid) {
+                    return moves;
+                }
+            }
+            Thread.onSpinWait();
+        }
+        for (int box = 0; box < stripes.length; box++) { // In box order, so two snapshots cannot deadlock
+            stamps[box] = stripes[box].readLock();
+        }
+        try {
+            System.arraycopy(board, 0, cells, 0, board.length);
+            return sequence.get();
+        } finally {
+            for (int box = 0; box < stripes.length; box++) {
+                stripes[box].unlockRead(stamps[box]);
+            }
+        }
+    }
+
+    /**
+     * Copies the board into a new single-player game with no history, for
+     * rendering, hints or saving.
+     *
+     * @return the copy
+     */
+    public Sudoku snapshot() {
+        byte[] cells = new byte[board.length];
+        snapshot(cells);
+        Sudoku copy = Sudoku.blank();
+        byte[] solved = solution != null ? solution.clone() : null; // restore keeps it, and the copy must not share it
+        copy.restore(gameSize, cells, solved, givens, new MoveLog());
+        return copy;
+    }
+
+    // Gets the log chunk holding a sequence number, creating it if needed
+    private AtomicIntegerArray chunk(long seq) {
+        int chunk = (int) (seq >>> CHUNK_BITS);
+        if (chunk >= MAX_CHUNKS) {
+            throw new IllegalStateException("Move log is full");
+        }
+        AtomicIntegerArray slots = log.get(chunk);
+        if (slots == null) {
+            log.compareAndSet(chunk, null, new AtomicIntegerArray(CHUNK_SIZE));
+            slots = log.get(chunk);
+        }
+        return slots;
+    }
+
+    // Adjusts the row, column and box counters of a digit for one cell
+    private void count(int index, int digit, int delta) {
+        int row = index / gameSize;
+        int col = index - row * gameSize;
+        int d = digit - 1;
+        conflicts.add(bump(rowCount, row * gameSize + d, delta)
+            + bump(colCount, col * gameSize + d, delta)
+            + bump(boxCount, boxOf(index) * gameSize + d, delta));
+    }
+
+    private int boxOf(int index) {
+        int row = index / gameSize;
+        int col = index - row * gameSize;
+        return (row / boxSize) * boxSize + col / boxSize;
+    }
+
+    // Changes one counter and returns how the number of duplicated digits changed
+    private static int bump(AtomicIntegerArray counts, int slot, int delta) {
+        int before = counts.getAndAdd(slot, delta);
+        int after = before + delta;
+        return (after > 1 ? 1 : 0) - (before > 1 ? 1 : 0);
+    }
+}
@@ -0,0 +1,113 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ConcurrentSudokuTest {
+    private static final int SIZE = 16;
+
+    @Test
+    public void testConcurrentMovesAreNeitherLostNorReordered() throws Exception {
+        Sudoku start = game();
+        ConcurrentSudoku board = new ConcurrentSudoku(start);
+        int writers = 4;
+        int movesEach = 50_000;
+        List<byte[]> snapshots = new ArrayList<>();
+        List<Long> versions = new ArrayList<>();
+        AtomicBoolean done = new AtomicBoolean();
+        Thread reader = new Thread(() -> {
+            while (!done.get() && snapshots.size() < 10_000) {
+                byte[] cells = new byte[SIZE * SIZE];
+                versions.add(board.snapshot(cells));
+                snapshots.add(cells);
+                Thread.yield();
+            }
+        });
+        reader.start();
+        assertEquals((long) writers * movesEach, play(board, writers, movesEach), "Every move should be accepted");
+        done.set(true);
+        reader.join();
+
+        assertEquals((long) writers * movesEach, board.getMoveCount(), "No move should be lost from the log");
+        int[] log = new int[writers * movesEach];
+        assertEquals(log.length, board.readLog(0, log), "Every logged move should be readable");
+
+        // Replaying the log in order must rebuild the board, passing through every snapshot on the way
+        byte[] replayed = start.boardCells().clone();
+        int next = 0;
+        for (int seq = 0; seq <= log.length; seq++) {
+            while (next < versions.size() && versions.get(next) == seq) {
+                assertArrayEquals(replayed, snapshots.get(next), "Snapshot " + next + " should be a state of the log");
+                next++;
+            }
+            if (seq < log.length) {
+                int index = MoveLog.index(log[seq]);
+                assertEquals(replayed[index], MoveLog.oldDigit(log[seq]), "Move " + seq + " is out of order");
+                replayed[index] = (byte) MoveLog.newDigit(log[seq]);
+            }
+        }
+        assertEquals(versions.size(), next, "Snapshots should be taken in log order");
+        Sudoku copy = board.snapshot();
+        assertArrayEquals(replayed, copy.boardCells(), "The log should rebuild the board");
+
+        assertEquals(copy.hasConflicts(), board.hasConflicts(), "The conflict count should be exact");
+        for (int row = 0; row < SIZE; row++) {
+            for (int col = 0; col < SIZE; col++) {
+                assertEquals(copy.isConflict(row, col), board.isConflict(row, col));
+            }
+        }
+        byte[] solution = start.solutionCells();
+        for (int index = 0; index < solution.length; index++) {
+            board.makeMove(index, solution[index]);
+        }
+        assertTrue(board.checkWin(), "The solution count should be exact after concurrent moves");
+        assertFalse(board.hasConflicts());
+        assertFalse(board.makeMove(0, 0, 1), "Givens should be refused");
+    }
+
+    // A 16x16 game with every other cell given, so it takes no search to make
+    private static Sudoku game() {
+        byte[] solution = new byte[SIZE * SIZE];
+        new SudokuGenerator(SIZE, 25L).fullGrid(solution);
+        byte[] puzzle = new byte[solution.length];
+        for (int i = 0; i < puzzle.length; i += 2) {
+            puzzle[i] = solution[i];
+        }
+        return new Sudoku(SIZE, puzzle, solution);
+    }
+
+    // Makes random moves on free cells from several threads at once and counts those accepted
+    private static long play(ConcurrentSudoku board, int writers, int movesEach) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            SplittableRandom random = new SplittableRandom(w);
+            results.add(pool.submit(() -> {
+                go.await();
+                int made = 0;
+                for (int i = 0; i < movesEach; i++) {
+                    int index = 2 * random.nextInt(SIZE * SIZE / 2) + 1; // Odd cells are free
+                    if (board.makeMove(index, random.nextInt(SIZE + 1))) {
+                        made++;
+                    }
+                }
+                return made;
+            }));
+        }
+        go.countDown();
+        long made = 0;
+        for (Future<Integer> result : results) {
+            made += result.get();
+        }
+        pool.shutdown();
+        return made;
+    }
+}
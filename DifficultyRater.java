@@ -0,0 +1,508 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Rates puzzles by the human solving techniques they need rather than by clue
+ * count. The rater keeps a candidate bitmask per cell and repeatedly applies the
+ * easiest technique that makes progress, starting again from the easiest after
+ * every step. The rating is the hardest technique used plus a score that sums the
+ * weight of every step. Time spent in each technique is measured so slow
+ * techniques show up when rating in bulk.
+ *
+ * All buffers belong to the rater and are reused, so rating allocates nothing;
+ * keep one rater per thread.
+ */
+public class DifficultyRater {
+
+    /**
+     * Techniques in the order they are tried, easiest first.
+     */
+    public enum Technique {
+        NAKED_SINGLE(1), HIDDEN_SINGLE(2), NAKED_PAIR(5), POINTING(6),
+        BOX_LINE(7), HIDDEN_PAIR(8), X_WING(12),
+        /** Not a technique: the puzzle needs guessing past this point. */
+        GUESS(50);
+
+        private final int weight;
+
+        Technique(int weight) {
+            this.weight = weight;
+        }
+
+        /**
+         * Gets the score added each time this technique makes progress.
+         *
+         * @return the weight
+         */
+        public int getWeight() {
+            return weight;
+        }
+    }
+
+    private static final Technique[] TECHNIQUES = Technique.values();
+
+    private final int size;
+    private final int box;
+    private final int cells;
+    private final int[][] units;       // Rows, then columns, then boxes
+    private final int[][] unitsOfCell; // The row, column and box of each cell
+    private final byte[] grid;
+    private final int[] cand;          // Candidates of each empty cell
+    private final long[] nanos = new long[TECHNIQUES.length];
+    private final int[] uses = new int[TECHNIQUES.length];
+    private int empty;
+    private int score;
+    private Technique hardest;
+
+    /**
+     * Constructs a rater for boards of the given size.
+     *
+     * @param size the board size, a perfect square up to 25
+     */
+    public DifficultyRater(int size) {
+        int b = (int) Math.round(Math.sqrt(size));
+        if (size < 1 || size > 25 || b * b != size) {
+            throw new IllegalArgumentException("Unsupported board size: " + size);
+        }
+        this.size = size;
+        this.box = b;
+        this.cells = size * size;
+        units = new int[3 * size][size];
+        unitsOfCell = new int[cells][3];
+        int[] filled = new int[3 * size];
+        for (int i = 0; i < cells; i++) {
+            int row = i / size;
+            int col = i % size;
+            int[] mine = {row, size + col, 2 * size + (row / b) * b + col / b};
+            for (int k = 0; k < 3; k++) {
+                units[mine[k]][filled[mine[k]]++] = i;
+            }
+            unitsOfCell[i] = mine;
+        }
+        grid = new byte[cells];
+        cand = new int[cells];
+    }
+
+    /**
+     * Rates a puzzle. The results are read with the getters until the next call.
+     *
+     * @param puzzle the board in row-major order, 0 for an empty cell
+     * @return the hardest technique needed, or {@link Technique#GUESS} if the
+     *         techniques alone cannot solve it
+     */
+    public Technique rate(byte[] puzzle) {
+        if (puzzle.length != cells) {
+            throw new IllegalArgumentException("Expected " + cells + " cells but got " + puzzle.length);
+        }
+        Arrays.fill(uses, 0);
+        score = 0;
+        hardest = Technique.NAKED_SINGLE;
+        empty = 0;
+        int full = (1 << size) - 1;
+        for (int i = 0; i < cells; i++) {
+            grid[i] = puzzle[i];
+            cand[i] = grid[i] == 0 ? full : 0;
+            if (grid[i] == 0) {
+                empty++;
+            }
+        }
+        for (int i = 0; i < cells; i++) {
+            if (grid[i] != 0) {
+                eliminatePeers(i, 1 << (grid[i] - 1));
+            }
+        }
+        while (empty > 0) {
+            Technique used = step();
+            if (used == null) {
+                record(Technique.GUESS);
+                break;
+            }
+            record(used);
+        }
+        return hardest;
+    }
+
+    /**
+     * Gets the hardest technique the last rated puzzle needed.
+     *
+     * @return the hardest technique
+     */
+    public Technique getHardest() {
+        return hardest;
+    }
+
+    /**
+     * Gets the score of the last rated puzzle, the sum of the weights of every
+     * step taken.
+     *
+     * @return the score
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Checks whether the techniques solved the last rated puzzle.
+     *
+     * @return true if no guessing was needed
+     */
+    public boolean isSolved() {
+        return empty == 0;
+    }
+
+    /**
+     * Gets how many times a technique made progress on the last rated puzzle.
+     *
+     * @param technique the technique
+     * @return the number of steps
+     */
+    public int getUses(Technique technique) {
+        return uses[technique.ordinal()];
+    }
+
+    /**
+     * Gets the total time spent in a technique since the rater was created or
+     * the timings were reset, including attempts that found nothing.
+     *
+     * @param technique the technique
+     * @return the time in nanoseconds
+     */
+    public long getNanos(Technique technique) {
+        return nanos[technique.ordinal()];
+    }
+
+    /**
+     * Resets the per-technique timings.
+     */
+    public void resetTimings() {
+        Arrays.fill(nanos, 0);
+    }
+
+    /**
+     * Maps the last rating onto the generator's difficulty tiers.
+     *
+     * @return the tier
+     */
+    public SudokuGenerator.Difficulty getDifficulty() {
+        switch (hardest) {
+            case NAKED_SINGLE:
+            case HIDDEN_SINGLE:
+                return SudokuGenerator.Difficulty.EASY;
+            case NAKED_PAIR:
+            case POINTING:
+                return SudokuGenerator.Difficulty.MEDIUM;
+            case BOX_LINE:
+            case HIDDEN_PAIR:
+                return SudokuGenerator.Difficulty.HARD;
+            default:
+                return SudokuGenerator.Difficulty.EXPERT;
+        }
+    }
+
+    private void record(Technique technique) {
+        uses[technique.ordinal()]++;
+        score += technique.getWeight();
+        if (technique.compareTo(hardest) > 0) {
+            hardest = technique;
+        }
+    }
+
+    // Tries each technique in turn and returns the first that made progress
+    private Technique step() {
+        for (Technique technique : TECHNIQUES) {
+            if (technique == Technique.GUESS) {
+                break;
+            }
+            long start = System.nanoTime();
+            boolean progress = apply(technique);
+            nanos[technique.ordinal()] += System.nanoTime() - start;
+            if (progress) {
+                return technique;
+            }
+        }
+        return null;
+    }
+
+    private boolean apply(Technique technique) {
+        switch (technique) {
+            case NAKED_SINGLE:
+                return nakedSingles();
+            case HIDDEN_SINGLE:
+                return hiddenSingles();
+            case NAKED_PAIR:
+                return nakedPairs();
+            case POINTING:
+                return pointing();
+            case BOX_LINE:
+                return boxLine();
+            case HIDDEN_PAIR:
+                return hiddenPairs();
+            case X_WING:
+                return xWing();
+            default:
+                return false;
+        }
+    }
+
+    private boolean nakedSingles() {
+        boolean progress = false;
+        for (int i = 0; i < cells; i++) {
+            int c = cand[i];
+            if (grid[i] == 0 && c != 0 && (c & (c - 1)) == 0) {
+                place(i, c);
+                progress = true;
+            }
+        }
+        return progress;
+    }
+
+    private boolean hiddenSingles() {
+        for (int[] unit : units) {
+            int once = 0;
+            int twice = 0;
+            for (int i : unit) {
+                twice |= once & cand[i];
+                once |= cand[i];
+            }
+            int hidden = once & ~twice;
+            if (hidden != 0) {
+                int bit = hidden & -hidden;
+                for (int i : unit) {
+                    if ((cand[i] & bit) != 0) {
+                        place(i, bit);
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean nakedPairs() {
+        boolean progress = false;
+        for (int[] unit : units) {
+            for (int a = 0; a < size; a++) {
+                int pair = cand[unit[a]];
+                if (Integer.bitCount(pair) != 2) {
+                    continue;
+                }
+                for (int b = a + 1; b < size; b++) {
+                    if (cand[unit[b]] == pair) {
+                        for (int k = 0; k < size; k++) {
+                            int i = unit[k];
+                            if (k != a && k != b && (cand[i] & pair) != 0) {
+                                cand[i] &= ~pair;
+                                progress = true;
+                            }
+                        }
+                    }
+                }
+            }
+            if (progress) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // A digit confined to one row or column inside a box leaves the rest of that line
+    private boolean pointing() {
+        for (int b = 0; b < size; b++) {
+            int[] unit = units[2 * size + b];
+            for (int bit = 1; bit <= 1 << (size - 1); bit <<= 1) {
+                int row = -1;
+                int col = -1;
+                boolean oneRow = true;
+                boolean oneCol = true;
+                for (int i : unit) {
+                    if ((cand[i] & bit) != 0) {
+                        int r = i / size;
+                        int c = i % size;
+                        oneRow &= row < 0 || row == r;
+                        oneCol &= col < 0 || col == c;
+                        row = r;
+                        col = c;
+                    }
+                }
+                if (row < 0) {
+                    continue;
+                }
+                boolean progress = false;
+                if (oneRow) {
+                    progress |= eliminateOutside(units[row], 2 * size + b, bit);
+                }
+                if (oneCol) {
+                    progress |= eliminateOutside(units[size + col], 2 * size + b, bit);
+                }
+                if (progress) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // A digit confined to one box inside a row or column leaves the rest of that box
+    private boolean boxLine() {
+        for (int u = 0; u < 2 * size; u++) {
+            int[] unit = units[u];
+            for (int bit = 1; bit <= 1 << (size - 1); bit <<= 1) {
+                int inBox = -1;
+                boolean oneBox = true;
+                for (int i : unit) {
+                    if ((cand[i] & bit) != 0) {
+                        int b = unitsOfCell[i][2];
+                        oneBox &= inBox < 0 || inBox == b;
+                        inBox = b;
+                    }
+                }
+                if (inBox >= 0 && oneBox && eliminateOutside(units[inBox], u, bit)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean hiddenPairs() {
+        for (int[] unit : units) {
+            for (int d1 = 0; d1 < size; d1++) {
+                int first = positions(unit, 1 << d1);
+                if (Integer.bitCount(first) != 2) {
+                    continue;
+                }
+                for (int d2 = d1 + 1; d2 < size; d2++) {
+                    if (positions(unit, 1 << d2) != first) {
+                        continue;
+                    }
+                    int pair = (1 << d1) | (1 << d2);
+                    boolean progress = false;
+                    for (int k = 0; k < size; k++) {
+                        int i = unit[k];
+                        if ((first & (1 << k)) != 0 && (cand[i] & ~pair) != 0) {
+                            cand[i] &= pair;
+                            progress = true;
+                        }
+                    }
+                    if (progress) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // Two rows (or columns) holding a digit in the same two places lock those columns (or rows)
+    private boolean xWing() {
+        for (int orientation = 0; orientation < 2; orientation++) {
+            int base = orientation * size;
+            int cross = size - base;
+            for (int bit = 1; bit <= 1 << (size - 1); bit <<= 1) {
+                for (int a = 0; a < size; a++) {
+                    int spots = positions(units[base + a], bit);
+                    if (Integer.bitCount(spots) != 2) {
+                        continue;
+                    }
+                    for (int b = a + 1; b < size; b++) {
+                        if (positions(units[base + b], bit) != spots) {
+                            continue;
+                        }
+                        boolean progress = false;
+                        for (int s = spots; s != 0; s &= s - 1) {
+                            int[] line = units[cross + Integer.numberOfTrailingZeros(s)];
+                            for (int k = 0; k < size; k++) {
+                                int i = line[k];
+                                if (k != a && k != b && (cand[i] & bit) != 0) {
+                                    cand[i] &= ~bit;
+                                    progress = true;
+                                }
+                            }
+                        }
+                        if (progress) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // Mask of the positions within a unit where a digit is a candidate
+    private int positions(int[] unit, int bit) {
+        int spots = 0;
+        for (int k = 0; k < size; k++) {
+            if ((cand[unit[k]] & bit) != 0) {
+                spots |= 1 << k;
+            }
+        }
+        return spots;
+    }
+
+    // Removes a digit from the cells of a unit that are not in another unit
+    private boolean eliminateOutside(int[] unit, int keepUnit, int bit) {
+        boolean progress = false;
+        for (int i : unit) {
+            int[] mine = unitsOfCell[i];
+            if ((cand[i] & bit) != 0 && mine[0] != keepUnit && mine[1] != keepUnit && mine[2] != keepUnit) {
+                cand[i] &= ~bit;
+                progress = true;
+            }
+        }
+        return progress;
+    }
+
+    private void place(int i, int bit) {
+        grid[i] = (byte) (Integer.numberOfTrailingZeros(bit) + 1);
+        cand[i] = 0;
+        empty--;
+        eliminatePeers(i, bit);
+    }
+
+    private void eliminatePeers(int i, int bit) {
+        for (int u : unitsOfCell[i]) {
+            for (int peer : units[u]) {
+                cand[peer] &= ~bit;
+            }
+        }
+    }
+
+    /**
+     * Rates every puzzle in a file and prints one line per puzzle with the
+     * hardest technique and the score, followed by timings per technique.
+     * Usage: DifficultyRater puzzles.txt
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: java DifficultyRater <puzzles.txt>");
+            System.exit(1);
+        }
+        DifficultyRater rater = null;
+        PrintStream out = new PrintStream(new BufferedOutputStream(System.out, 1 << 16), false);
+        long start = System.nanoTime();
+        try (PuzzleReader reader = PuzzleReader.open(Paths.get(args[0]))) {
+            while (reader.next()) {
+                if (rater == null || rater.size != reader.size()) {
+                    rater = new DifficultyRater(reader.size());
+                }
+                rater.rate(reader.grid());
+                out.print(rater.getHardest());
+                out.print('\t');
+                out.println(rater.getScore());
+            }
+            out.flush();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.err.printf("%d puzzles in %.3f s, %.0f puzzles/sec%n",
+                reader.count(), seconds, reader.count() / seconds);
+        }
+        if (rater != null) {
+            for (Technique technique : TECHNIQUES) {
+                System.err.printf("  %-13s %10.3f ms%n", technique, rater.getNanos(technique) / 1e6);
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class DifficultyRaterTest {
+    // Level su1 as an 81-cell grid, 0 = empty
+    private static final String LEVEL =
+        "986000000040000000002000000054106007200045009008200004060007045009000060700000210";
+
+    private static byte[] parse(String text) {
+        byte[] grid = new byte[text.length()];
+        for (int i = 0; i < grid.length; i++) {
+            grid[i] = (byte) (text.charAt(i) - '0');
+        }
+        return grid;
+    }
+
+    @Test
+    public void testRaterSolvesLevelWithTechniques() {
+        DifficultyRater rater = new DifficultyRater(9);
+        DifficultyRater.Technique hardest = rater.rate(parse(LEVEL));
+        assertTrue(rater.isSolved(), "The level should need no guessing");
+        assertNotEquals(DifficultyRater.Technique.GUESS, hardest, "Hardest technique should be a real one");
+        assertTrue(rater.getScore() >= rater.getUses(DifficultyRater.Technique.NAKED_SINGLE),
+            "Score should include every step");
+    }
+}
@@ -0,0 +1,277 @@
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Counts and times the engine's operations: moves, batches of moves, undo and redo, win checks,
+ * hints, saves, loads and solver runs. Each operation brackets its work with
+ * {@link #start()} and {@link #record}:
+ *
+ * <pre>
+ * long start = EngineMetrics.start();
+ * ... the work ...
+ * EngineMetrics.record(EngineMetrics.Op.MOVE, start);
+ * </pre>
+ *
+ * Measuring is off unless the system property sudoku.metrics is true or it is
+ * switched on through JMX. While off, start() is one volatile read and record()
+ * returns at once. While on, an operation adds to a count, a running total and
+ * a histogram of power-of-two latency buckets, all striped counters, so threads
+ * do not contend and nothing is allocated unless the operation is slow. One slower than the
+ * threshold (sudoku.metrics.slow, in microseconds, default 1000) is also
+ * committed as a sudoku.SlowOperation JFR event when a recording asks for it.
+ *
+ * {@link #register()} publishes the figures as the MXBean sudoku:type=EngineMetrics.
+ */
+public final class EngineMetrics {
+    /**
+     * The measured operations.
+     */
+    public enum Op { MOVE, MOVE_BATCH, UNDO, REDO, CHECK_WIN, HINT, SAVE, LOAD, SOLVE }
+
+    private static final long NOT_TIMED = Long.MIN_VALUE; // Returned by start() while off
+    private static final int OPS = Op.values().length;
+    private static final int BUCKETS = 64; // Bucket b holds latencies below 2^b nanoseconds
+
+    private static volatile boolean enabled = Boolean.getBoolean("sudoku.metrics");
+    private static volatile long slowNanos = TimeUnit.MICROSECONDS.toNanos(Long.getLong("sudoku.metrics.slow", 1000));
+
+    private static final LongAdder[] counts = adders(OPS);
+    private static final LongAdder[] totals = adders(OPS);
+    private static final LongAdder[] buckets = adders(OPS * BUCKETS);
+    private static final LongAccumulator[] maxima = new LongAccumulator[OPS];
+    static {
+        for (int op = 0; op < OPS; op++) {
+            maxima[op] = new LongAccumulator(Math::max, 0);
+        }
+        if (enabled) {
+            register();
+        }
+    }
+
+    private EngineMetrics() {
+    }
+
+    /**
+     * Starts timing an operation.
+     *
+     * @return the start time, to pass to {@link #record}
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : NOT_TIMED;
+    }
+
+    /**
+     * Records an operation timed from {@link #start()}. Does nothing if measuring
+     * was off when the operation started.
+     *
+     * @param op    the operation
+     * @param start the value start() returned
+     */
+    public static void record(Op op, long start) {
+        if (start == NOT_TIMED) {
+            return;
+        }
+        long nanos = System.nanoTime() - start;
+        int i = op.ordinal();
+        counts[i].increment();
+        totals[i].add(nanos);
+        buckets[i * BUCKETS + Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos))].increment();
+        maxima[i].accumulate(nanos);
+        if (nanos >= slowNanos) {
+            SlowOperationEvent event = new SlowOperationEvent();
+            if (event.shouldCommit()) {
+                event.operation = op.name();
+                event.latency = nanos;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Tells whether operations are being measured.
+     *
+     * @return true if measuring
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts or stops measuring. Counts taken so far are kept.
+     *
+     * @param on true to measure
+     */
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /**
+     * Gets how many times an operation ran while measuring.
+     *
+     * @param op the operation
+     * @return the count
+     */
+    public static long getCount(Op op) {
+        return counts[op.ordinal()].sum();
+    }
+
+    /**
+     * Gets a latency percentile of an operation, to the power of two above it.
+     *
+     * @param op       the operation
+     * @param fraction the percentile as a fraction, such as 0.99
+     * @return the latency in nanoseconds, 0 if the operation never ran
+     */
+    public static long getPercentileNanos(Op op, double fraction) {
+        int base = op.ordinal() * BUCKETS;
+        long[] histogram = new long[BUCKETS];
+        long total = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            histogram[b] = buckets[base + b].sum();
+            total += histogram[b];
+        }
+        long rank = (long) Math.ceil(fraction * total);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += histogram[b];
+            if (seen >= rank && histogram[b] > 0) {
+                return b == BUCKETS - 1 ? Long.MAX_VALUE : (1L << b) - 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Clears every count and histogram.
+     */
+    public static void reset() {
+        for (LongAdder[] adders : new LongAdder[][] {counts, totals, buckets}) {
+            for (LongAdder adder : adders) {
+                adder.reset();
+            }
+        }
+        for (LongAccumulator max : maxima) {
+            max.reset();
+        }
+    }
+
+    /**
+     * Registers the MXBean with the platform MBean server, if not already done.
+     */
+    public static synchronized void register() {
+        try {
+            ObjectName name = new ObjectName("sudoku:type=EngineMetrics");
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), name);
+            }
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static LongAdder[] adders(int n) {
+        LongAdder[] adders = new LongAdder[n];
+        for (int i = 0; i < n; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    // Applies a figure to every operation that ran
+    private static <T> Map<String, T> byOp(Function<Op, T> figure) {
+        Map<String, T> map = new LinkedHashMap<>();
+        for (Op op : Op.values()) {
+            if (getCount(op) > 0) {
+                map.put(op.name(), figure.apply(op));
+            }
+        }
+        return map;
+    }
+
+    private static long micros(long nanos) {
+        return nanos == Long.MAX_VALUE ? nanos : TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    /**
+     * The MXBean, reading the static figures.
+     */
+    private static final class Bean implements EngineMetricsMXBean {
+        @Override
+        public boolean isEnabled() {
+            return EngineMetrics.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(boolean on) {
+            EngineMetrics.setEnabled(on);
+        }
+
+        @Override
+        public long getSlowThresholdMicros() {
+            return TimeUnit.NANOSECONDS.toMicros(slowNanos);
+        }
+
+        @Override
+        public void setSlowThresholdMicros(long micros) {
+            slowNanos = TimeUnit.MICROSECONDS.toNanos(micros);
+        }
+
+        @Override
+        public Map<String, Long> getCounts() {
+            return byOp(EngineMetrics::getCount);
+        }
+
+        @Override
+        public Map<String, Double> getMeanMicros() {
+            return byOp(op -> totals[op.ordinal()].sum() / 1000.0 / getCount(op));
+        }
+
+        @Override
+        public Map<String, Long> getP50Micros() {
+            return byOp(op -> micros(getPercentileNanos(op, 0.5)));
+        }
+
+        @Override
+        public Map<String, Long> getP99Micros() {
+            return byOp(op -> micros(getPercentileNanos(op, 0.99)));
+        }
+
+        @Override
+        public Map<String, Long> getMaxMicros() {
+            return byOp(op -> micros(maxima[op.ordinal()].get()));
+        }
+
+        @Override
+        public void reset() {
+            EngineMetrics.reset();
+        }
+    }
+
+    /**
+     * A JFR event for an operation that took longer than the threshold.
+     */
+    @Name("sudoku.SlowOperation")
+    @Label("Slow Sudoku Operation")
+    @Category("Sudoku")
+    @Description("An engine operation that took longer than sudoku.metrics.slow microseconds")
+    static final class SlowOperationEvent extends jdk.jfr.Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("Latency")
+        @Timespan(Timespan.NANOSECONDS)
+        long latency;
+    }
+}
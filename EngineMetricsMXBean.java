@@ -0,0 +1,76 @@
+import java.util.Map;
+
+/**
+ * The JMX view of {@link EngineMetrics}, registered as sudoku:type=EngineMetrics.
+ * Maps are keyed by operation name; latencies are in microseconds, and
+ * percentiles are the upper bound of the power-of-two bucket they fall in.
+ */
+public interface EngineMetricsMXBean {
+    /**
+     * Tells whether operations are being measured.
+     *
+     * @return true if measuring
+     */
+    boolean isEnabled();
+
+    /**
+     * Starts or stops measuring. Counts taken so far are kept.
+     *
+     * @param enabled true to measure
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Gets the latency from which an operation is recorded as a JFR event.
+     *
+     * @return the threshold in microseconds
+     */
+    long getSlowThresholdMicros();
+
+    /**
+     * Sets the latency from which an operation is recorded as a JFR event.
+     *
+     * @param micros the threshold in microseconds
+     */
+    void setSlowThresholdMicros(long micros);
+
+    /**
+     * Gets how many times each operation ran while measuring.
+     *
+     * @return the count of each operation
+     */
+    Map<String, Long> getCounts();
+
+    /**
+     * Gets the mean latency of each operation.
+     *
+     * @return the mean in microseconds
+     */
+    Map<String, Double> getMeanMicros();
+
+    /**
+     * Gets the median latency of each operation.
+     *
+     * @return the median in microseconds
+     */
+    Map<String, Long> getP50Micros();
+
+    /**
+     * Gets the 99th percentile latency of each operation.
+     *
+     * @return the 99th percentile in microseconds
+     */
+    Map<String, Long> getP99Micros();
+
+    /**
+     * Gets the longest latency of each operation.
+     *
+     * @return the maximum in microseconds
+     */
+    Map<String, Long> getMaxMicros();
+
+    /**
+     * Clears every count and histogram.
+     */
+    void reset();
+}
@@ -0,0 +1,75 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import javax.management.JMX;
+import javax.management.ObjectName;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class EngineMetricsTest {
+
+    @Test
+    public void testCountsOnlyWhileEnabled() throws Exception {
+        Sudoku game = new Sudoku();
+        EngineMetrics.reset();
+        game.makeMove("0", "5", "5");
+        assertEquals(0, EngineMetrics.getCount(EngineMetrics.Op.MOVE), "Nothing is counted while off");
+
+        EngineMetrics.setEnabled(true);
+        try {
+            game.makeMove("0", "5", "5");
+            game.makeMove("0", "6", "7");
+            game.undoLastMove();
+            game.checkWin();
+            game.getHint();
+        } finally {
+            EngineMetrics.setEnabled(false);
+        }
+        assertEquals(2, EngineMetrics.getCount(EngineMetrics.Op.MOVE));
+        assertEquals(1, EngineMetrics.getCount(EngineMetrics.Op.UNDO));
+        assertEquals(1, EngineMetrics.getCount(EngineMetrics.Op.CHECK_WIN));
+        assertEquals(1, EngineMetrics.getCount(EngineMetrics.Op.HINT));
+        assertTrue(EngineMetrics.getPercentileNanos(EngineMetrics.Op.MOVE, 0.99) > 0, "Moves take some time");
+
+        EngineMetrics.register();
+        Object counts = ManagementFactory.getPlatformMBeanServer()
+            .getAttribute(new ObjectName("sudoku:type=EngineMetrics"), "Counts");
+        assertNotNull(counts, "The counts should be readable over JMX");
+    }
+
+    @Test
+    public void testSlowOperationsBecomeJfrEvents() throws Exception {
+        Path dump = Files.createTempFile("metrics", ".jfr");
+        EngineMetrics.register();
+        EngineMetricsMXBean bean = JMX.newMXBeanProxy(ManagementFactory.getPlatformMBeanServer(),
+            new ObjectName("sudoku:type=EngineMetrics"), EngineMetricsMXBean.class);
+        long threshold = bean.getSlowThresholdMicros();
+        bean.setSlowThresholdMicros(0); // Every operation counts as slow
+        try (Recording recording = new Recording()) {
+            recording.enable("sudoku.SlowOperation");
+            recording.start();
+            EngineMetrics.setEnabled(true);
+            try {
+                new Sudoku().makeMove("0", "5", "5");
+            } finally {
+                EngineMetrics.setEnabled(false);
+                bean.setSlowThresholdMicros(threshold);
+            }
+            recording.stop();
+            recording.dump(dump);
+        }
+        boolean found = false;
+        for (RecordedEvent event : RecordingFile.readAllEvents(dump)) {
+            found |= event.getEventType().getName().equals("sudoku.SlowOperation")
+                && "MOVE".equals(event.getString("operation"));
+        }
+        assertTrue(found, "The move should be recorded as a JFR event");
+        Map<String, Long> counts = bean.getCounts();
+        assertTrue(counts.getOrDefault("MOVE", 0L) > 0, "The MXBean should report the move");
+    }
+}
@@ -0,0 +1,234 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The full, timestamped change stream of one game: the board it started from,
+ * its givens and solution, the wall-clock time it started and every move,
+ * direct cell write, undo, redo and clear, each with the cell, the digit before
+ * and after and the milliseconds since the start.
+ *
+ * A record attached with {@link Sudoku#setRecorder} is filled as the game is
+ * played; records are written to and streamed back from a {@link MoveStream}.
+ * Each change is kept as two ints, its time and a {@link MoveLog} entry with the
+ * kind in the top bits, so recording allocates only when the buffer doubles and
+ * a reader can reuse one record for every game it reads.
+ */
+public class GameRecord {
+    private static final int KIND_SHIFT = 28; // Above the 28 bits of a MoveLog entry
+    private static final int ENTRY_MASK = (1 << KIND_SHIFT) - 1;
+    private static final int MAX_CHANGES = 1 << 26; // Far beyond any game, and keeps the buffer sizes in range
+
+    private int size;
+    private byte[] cells;    // The board when recording started
+    private long[] given;    // Bitmap of the given cells
+    private byte[] solution; // Null if unknown
+    private long startMillis;
+    private long startNanos; // For timing changes while recording
+    private int[] events = new int[128]; // Time, then entry and kind, per change
+    private int count;
+    private byte[] scratch; // Changes as read, before decoding
+
+    /**
+     * Constructs an empty record, to be filled by {@link MoveStream.Reader#next}.
+     */
+    public GameRecord() {
+    }
+
+    /**
+     * Starts recording a game from its current board, which may already hold
+     * entries, as when a game is resumed. Attach the record with
+     * {@link Sudoku#setRecorder} so the game reports its changes to it.
+     *
+     * @param game the game
+     * @return the record, holding no changes yet
+     */
+    public static GameRecord start(Sudoku game) {
+        GameRecord record = new GameRecord();
+        record.size = game.getGameSize();
+        record.cells = game.boardCells().clone();
+        record.given = game.givenMask().clone();
+        record.solution = game.solutionCells() != null ? game.solutionCells().clone() : null;
+        record.startMillis = System.currentTimeMillis();
+        record.startNanos = System.nanoTime();
+        return record;
+    }
+
+    /**
+     * Adds a change, timed now. Called by the game after the change was made.
+     *
+     * @param kind     the kind, one of the MoveJournal record kinds
+     * @param index    the cell index, 0 for undo, redo or clear with no cell
+     * @param oldDigit the digit before the change
+     * @param newDigit the digit after the change
+     */
+    void add(int kind, int index, int oldDigit, int newDigit) {
+        if (2 * count == events.length) {
+            events = Arrays.copyOf(events, events.length * 2);
+        }
+        events[2 * count] = (int) ((System.nanoTime() - startNanos) / 1_000_000);
+        events[2 * count + 1] = kind << KIND_SHIFT | MoveLog.encode(index, oldDigit, newDigit);
+        count++;
+    }
+
+    /**
+     * Gets the board size.
+     *
+     * @return the number of rows and columns
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the wall-clock time the game started.
+     *
+     * @return milliseconds since the epoch
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * Gets the number of changes recorded.
+     *
+     * @return the change count
+     */
+    public int getMoveCount() {
+        return count;
+    }
+
+    /**
+     * Gets a recorded change as a {@link Move}.
+     *
+     * @param i the change number, oldest first
+     * @return the change
+     */
+    public Move getMove(int i) {
+        int index = index(i);
+        return new Move(Move.Kind.of(kind(i)), index / size, index % size,
+            symbol(oldDigit(i)), symbol(newDigit(i)), time(i));
+    }
+
+    // Accessors that read the packed changes without allocating
+
+    byte[] cells() {
+        return cells;
+    }
+
+    long[] given() {
+        return given;
+    }
+
+    byte[] solution() {
+        return solution;
+    }
+
+    int time(int i) {
+        return events[2 * i];
+    }
+
+    int kind(int i) {
+        return events[2 * i + 1] >>> KIND_SHIFT;
+    }
+
+    int index(int i) {
+        return MoveLog.index(events[2 * i + 1] & ENTRY_MASK);
+    }
+
+    int oldDigit(int i) {
+        return MoveLog.oldDigit(events[2 * i + 1]);
+    }
+
+    int newDigit(int i) {
+        return MoveLog.newDigit(events[2 * i + 1]);
+    }
+
+    /**
+     * Writes the record: size, start time, starting board, givens as a bitmap of
+     * one bit per cell, solution and changes.
+     *
+     * @param out the stream
+     * @throws IOException if writing fails
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeShort(size);
+        out.writeLong(startMillis);
+        out.write(cells);
+        for (int i = 0; i < cells.length; i += 8) {
+            out.writeByte((int) (given[i >>> 6] >>> (i & 63)));
+        }
+        out.writeBoolean(solution != null);
+        if (solution != null) {
+            out.write(solution);
+        }
+        out.writeInt(count);
+        for (int i = 0; i < 2 * count; i++) {
+            out.writeInt(events[i]);
+        }
+    }
+
+    /**
+     * Reads a record written by {@link #write}, reusing this record's buffers.
+     *
+     * @param in        the stream
+     * @param available the bytes left in the stream, so a corrupt change count
+     *                  is caught before buffers are sized for it
+     * @return the number of bytes read
+     * @throws EOFException if the record runs past the end of the stream
+     * @throws IOException  if reading fails or the record is malformed
+     */
+    long read(DataInput in, long available) throws IOException {
+        size = in.readShort();
+        if (size < 1 || size > Sudoku.MAX_SIZE) {
+            throw new IOException("Bad board size in move stream: " + size);
+        }
+        startMillis = in.readLong();
+        int length = size * size;
+        cells = buffer(cells, length);
+        in.readFully(cells);
+        int words = (length + 63) >>> 6;
+        if (given == null || given.length != words) {
+            given = new long[words];
+        } else {
+            Arrays.fill(given, 0);
+        }
+        for (int i = 0; i < length; i += 8) {
+            given[i >>> 6] |= (in.readByte() & 0xFFL) << (i & 63);
+        }
+        if (in.readBoolean()) {
+            solution = buffer(solution, length);
+            in.readFully(solution);
+        } else {
+            solution = null;
+        }
+        count = in.readInt();
+        if (count < 0 || count > MAX_CHANGES) {
+            throw new IOException("Bad change count in move stream: " + count);
+        }
+        long header = 2 + 8 + length + (length + 7) / 8 + 1 + (solution != null ? length : 0) + 4;
+        if (8L * count > available - header) {
+            throw new EOFException("Change count " + count + " runs past the end of the move stream");
+        }
+        if (events.length < 2 * count) {
+            events = new int[Integer.highestOneBit(2 * count) * 2];
+        }
+        if (scratch == null || scratch.length < 8 * count) {
+            scratch = new byte[events.length * 4];
+        }
+        in.readFully(scratch, 0, 8 * count); // One bulk read rather than an int at a time
+        ByteBuffer.wrap(scratch, 0, 8 * count).asIntBuffer().get(events, 0, 2 * count);
+        return header + 8L * count;
+    }
+
+    private static byte[] buffer(byte[] old, int length) {
+        return old != null && old.length == length ? old : new byte[length];
+    }
+
+    private static String symbol(int digit) {
+        return digit == 0 ? "-" : Integer.toString(digit);
+    }
+}
@@ -0,0 +1,180 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Runs the slow game operations, saving, loading, checking the board with the
+ * solver and finding hints, on background threads and hands each result to a
+ * callback executor; a Swing view passes {@code SwingUtilities::invokeLater} so
+ * results arrive on the Event Dispatch Thread.
+ *
+ * The game itself is only touched on the calling thread: a save encodes it and
+ * a check or hint copies it before anything is queued, so the background
+ * threads never see a game the player is changing. File work runs on one thread
+ * in the order it was asked for, so a load always sees the saves before it.
+ * Saves are never cancelled. Loads, checks and hints answer a question about
+ * the board as it was, so {@link #cancelPending()}, called on new input,
+ * interrupts them and drops any result still on its way.
+ */
+public class GameService implements Closeable {
+    private static final long CLOSE_TIMEOUT_SECONDS = 10; // Time given to pending saves on close
+
+    private final SaveFile saveFile;
+    private final Executor callbacks;
+    private final ExecutorService io = Executors.newSingleThreadExecutor(daemon("sudoku-io"));
+    private final ExecutorService compute = Executors.newSingleThreadExecutor(daemon("sudoku-compute"));
+    private final AtomicLong generation = new AtomicLong(); // Bumped to drop results of earlier requests
+    private final Set<Future<?>> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates a service.
+     *
+     * @param saveFile  the save file to read and write
+     * @param callbacks runs the result callbacks, such as {@code SwingUtilities::invokeLater}
+     */
+    public GameService(Path saveFile, Executor callbacks) {
+        this.saveFile = new SaveFile(saveFile);
+        this.callbacks = callbacks;
+    }
+
+    /**
+     * Saves a game into a slot in the background. The game is captured before
+     * this returns, so it may be changed straight away.
+     *
+     * @param game the game, captured on the calling thread
+     * @param slot the slot name
+     * @param done receives true if the game was saved
+     * @return the background task
+     */
+    public Future<?> save(Sudoku game, String slot, Consumer<Boolean> done) {
+        ByteBuffer record = SaveFile.encode(slot, game);
+        return io.submit(() -> {
+            boolean saved;
+            try {
+                saveFile.save(record);
+                saved = true;
+            } catch (IOException e) {
+                e.printStackTrace();
+                saved = false;
+            }
+            boolean result = saved;
+            callbacks.execute(() -> done.accept(result));
+        });
+    }
+
+    /**
+     * Loads a slot into a new game in the background. Only the save file is read.
+     *
+     * @param slot the slot name
+     * @param done receives the loaded game, or null if there is no such slot or
+     *             it could not be read
+     * @return the background task
+     */
+    public Future<?> load(String slot, Consumer<Sudoku> done) {
+        return submit(io, () -> {
+            Sudoku game = Sudoku.blank();
+            return saveFile.load(slot, game) ? game : null;
+        }, done);
+    }
+
+    /**
+     * Checks in the background whether the board as it is now, mistakes and all,
+     * can still be completed.
+     *
+     * @param game the game, copied on the calling thread
+     * @param done receives true if the entries so far lead to a solution
+     * @return the background task
+     */
+    public Future<?> check(Sudoku game, Consumer<Boolean> done) {
+        byte[] board = game.boardCells().clone();
+        int size = game.getGameSize();
+        return submit(compute, () -> Solver.forSize(size).solve(board, new byte[board.length]), done);
+    }
+
+    /**
+     * Finds a hint for the board as it is now in the background.
+     *
+     * @param game the game, copied on the calling thread
+     * @param done receives the hint, or null if the board is full
+     * @return the background task
+     */
+    public Future<?> hint(Sudoku game, Consumer<Hint> done) {
+        Sudoku copy = game.snapshot();
+        return submit(compute, copy::getHint, done);
+    }
+
+    /**
+     * Cancels the loads, checks and hints not yet answered, because the board
+     * they were asked about has changed. Saves carry on.
+     */
+    public void cancelPending() {
+        generation.incrementAndGet();
+        for (Future<?> future : pending) {
+            future.cancel(true);
+        }
+        pending.clear();
+    }
+
+    /**
+     * Cancels pending work and waits for queued saves to reach the disk.
+     */
+    @Override
+    public void close() {
+        cancelPending();
+        compute.shutdownNow();
+        io.shutdown();
+        try {
+            io.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Runs a cancellable request and passes its result on unless it was cancelled meanwhile
+    private <T> Future<?> submit(ExecutorService executor, Callable<T> work, Consumer<T> done) {
+        long ticket = generation.get();
+        pending.removeIf(Future::isDone);
+        Future<?> future = executor.submit(() -> {
+            T result;
+            try {
+                result = work.call();
+            } catch (Exception e) {
+                if (generation.get() == ticket) {
+                    e.printStackTrace(); // A cancelled load may fail on its interrupted channel
+                }
+                result = null;
+            }
+            if (Thread.interrupted() || generation.get() != ticket) {
+                return;
+            }
+            T value = result;
+            callbacks.execute(() -> {
+                if (generation.get() == ticket) {
+                    done.accept(value);
+                }
+            });
+        });
+        pending.add(future);
+        return future;
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return task -> {
+            Thread thread = new Thread(task, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,57 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class GameServiceTest {
+
+    @Test
+    public void testSaveThenLoadInBackground() throws Exception {
+        Path file = Files.createTempDirectory("service").resolve("save.dat");
+        try (GameService service = new GameService(file, Runnable::run)) {
+            Sudoku game = new Sudoku();
+            game.makeMove("0", "5", "5");
+            AtomicReference<Boolean> saved = new AtomicReference<>();
+            service.save(game, "slot", saved::set);
+            game.makeMove("0", "6", "7"); // Made after the save was asked for, so not saved
+
+            AtomicReference<Sudoku> loaded = new AtomicReference<>();
+            service.load("slot", loaded::set).get(); // Queued behind the save
+            assertTrue(saved.get(), "The save should have succeeded");
+            assertEquals("5", loaded.get().getIndividualMove(0, 5), "The saved move should load");
+            assertEquals("-", loaded.get().getIndividualMove(0, 6), "A later move should not be in the save");
+            assertTrue(loaded.get().isGiven(0, 0), "Givens should load");
+
+            AtomicReference<Sudoku> missing = new AtomicReference<>(game);
+            service.load("nothing", missing::set).get();
+            assertNull(missing.get(), "A missing slot should load as null");
+        }
+    }
+
+    @Test
+    public void testCancelPendingDropsStaleResults() throws Exception {
+        List<Runnable> queued = new ArrayList<>(); // Stands in for the event queue
+        try (GameService service = new GameService(Files.createTempFile("service", ".dat"), queued::add)) {
+            Sudoku game = new Sudoku();
+            List<Object> results = new ArrayList<>();
+            service.hint(game, results::add).get();
+            service.check(game, results::add).get();
+            assertEquals(2, queued.size(), "Both answers should be waiting for delivery");
+
+            Hint hint = game.getHint();
+            game.makeMove(String.valueOf(hint.getRow()), String.valueOf(hint.getCol()), String.valueOf(hint.getDigit()));
+            service.cancelPending(); // The board changed before the answers were shown
+            queued.forEach(Runnable::run);
+            assertTrue(results.isEmpty(), "Answers about the old board should be dropped");
+
+            queued.clear();
+            service.check(game, results::add).get();
+            queued.forEach(Runnable::run);
+            assertEquals(List.of(true), results, "A new check should be answered");
+        }
+    }
+}
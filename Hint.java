@@ -0,0 +1,78 @@
+/**
+ * A hint: a digit that can go in a cell, and the technique that shows it.
+ * Hints are made by {@link Sudoku#getHint()}.
+ */
+public class Hint {
+    private final int row;
+    private final int col;
+    private final int digit;
+    private final DifficultyRater.Technique technique;
+
+    /**
+     * Constructs a hint.
+     *
+     * @param row       the row index of the cell
+     * @param col       the column index of the cell
+     * @param digit     the digit for the cell
+     * @param technique the technique that finds it, or GUESS if the digit was
+     *                  taken from the solution because no single was left
+     */
+    Hint(int row, int col, int digit, DifficultyRater.Technique technique) {
+        this.row = row;
+        this.col = col;
+        this.digit = digit;
+        this.technique = technique;
+    }
+
+    /**
+     * Gets the row index of the cell.
+     *
+     * @return the row index
+     */
+    public int getRow() {
+        return row;
+    }
+
+    /**
+     * Gets the column index of the cell.
+     *
+     * @return the column index
+     */
+    public int getCol() {
+        return col;
+    }
+
+    /**
+     * Gets the digit for the cell.
+     *
+     * @return the digit
+     */
+    public int getDigit() {
+        return digit;
+    }
+
+    /**
+     * Gets the technique that finds this digit.
+     *
+     * @return the technique
+     */
+    public DifficultyRater.Technique getTechnique() {
+        return technique;
+    }
+
+    @Override
+    public String toString() {
+        String reason;
+        switch (technique) {
+            case NAKED_SINGLE:
+                reason = "it is the only number left for that cell";
+                break;
+            case HIDDEN_SINGLE:
+                reason = "that cell is the only place left for it in a row, column or box";
+                break;
+            default:
+                reason = "taken from the solution, no single is left";
+        }
+        return "Put " + digit + " in row " + row + ", column " + col + " (" + reason + ")";
+    }
+}
@@ -0,0 +1,303 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A catalog of levels stored as one packed data file plus a fixed-width index.
+ *
+ * Level IDs are positions in the index, starting at 0. Each index entry is 16
+ * bytes: the offset and length of the level in the data file, the board size, the
+ * difficulty tier and the clue count. Opening a level reads its index entry at
+ * a computed position and then its record in the data file, so level 750,000
+ * costs the same as level 0 and nothing else in either file is parsed. A record
+ * holds the givens and the solution packed as in the save file, so loading a
+ * level needs no solver run.
+ */
+public class LevelCatalog implements Closeable {
+    /** Base path of the catalog shipped with the game, without the file extensions. */
+    public static final String DEFAULT_CATALOG = "Levels/catalog";
+
+    private static final int MAGIC = 0x53444B43; // "SDKC"
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int ENTRY_SIZE = 16;
+    private static final int NO_DIFFICULTY = 0xFF;
+
+    private final FileChannel data;
+    private final FileChannel index;
+    private final int count;
+
+    /**
+     * Opens the catalog whose files are base + ".dat" and base + ".idx".
+     *
+     * @param base the path of the catalog without the extensions
+     * @return the open catalog
+     * @throws IOException if the files cannot be opened or are not a catalog
+     */
+    public static LevelCatalog open(String base) throws IOException {
+        return new LevelCatalog(Paths.get(base + ".dat"), Paths.get(base + ".idx"));
+    }
+
+    private LevelCatalog(Path dataFile, Path indexFile) throws IOException {
+        data = FileChannel.open(dataFile, StandardOpenOption.READ);
+        index = FileChannel.open(indexFile, StandardOpenOption.READ);
+        ByteBuffer header = read(index, 0, HEADER_SIZE);
+        if (header.getInt() != MAGIC || header.getShort() != VERSION) {
+            close();
+            throw new IOException(indexFile + " is not a level catalog index");
+        }
+        count = (int) ((index.size() - HEADER_SIZE) / ENTRY_SIZE);
+    }
+
+    /**
+     * Gets the number of levels in the catalog.
+     *
+     * @return the level count; IDs run from 0 to one less than this
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Gets the board size of a level without loading it.
+     *
+     * @param id the level ID
+     * @return the number of rows and columns
+     * @throws IOException if the index cannot be read
+     */
+    public int getGameSize(int id) throws IOException {
+        return entry(id).get(12) & 0xFF;
+    }
+
+    /**
+     * Gets the difficulty tier of a level without loading it.
+     *
+     * @param id the level ID
+     * @return the tier, or null if the level was not rated
+     * @throws IOException if the index cannot be read
+     */
+    public SudokuGenerator.Difficulty getDifficulty(int id) throws IOException {
+        int tier = entry(id).get(13) & 0xFF;
+        return tier == NO_DIFFICULTY ? null : SudokuGenerator.Difficulty.values()[tier];
+    }
+
+    /**
+     * Finds the next level at or after an ID that matches a board size and,
+     * optionally, a difficulty. Only the index is read.
+     *
+     * @param size       the board size wanted
+     * @param difficulty the tier wanted, or null for any
+     * @param from       the first ID to look at
+     * @return the matching ID, or -1 if there is none
+     * @throws IOException if the index cannot be read
+     */
+    public int find(int size, SudokuGenerator.Difficulty difficulty, int from) throws IOException {
+        int wantTier = difficulty == null ? -1 : difficulty.ordinal();
+        ByteBuffer block = ByteBuffer.allocate(ENTRY_SIZE * 4096);
+        for (int id = Math.max(from, 0); id < count; ) {
+            block.clear();
+            int entries = Math.min(4096, count - id);
+            block.limit(entries * ENTRY_SIZE);
+            readFully(index, HEADER_SIZE + (long) id * ENTRY_SIZE, block);
+            for (int i = 0; i < entries; i++, id++) {
+                int at = i * ENTRY_SIZE;
+                if ((block.get(at + 12) & 0xFF) == size
+                        && (wantTier < 0 || (block.get(at + 13) & 0xFF) == wantTier)) {
+                    return id;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Loads a level as a new game.
+     *
+     * @param id the level ID
+     * @return the game, set up with the level's givens and solution
+     * @throws IOException if the level cannot be read
+     */
+    public Sudoku load(int id) throws IOException {
+        ByteBuffer entry = entry(id);
+        long offset = entry.getLong(0);
+        int length = entry.getInt(8);
+        int size = entry.get(12) & 0xFF;
+        int cells = size * size;
+        int bits = SaveFile.bitsPerCell(size);
+        ByteBuffer record = read(data, offset, length);
+        byte[] puzzle = SaveFile.unpack(cells, bits, record);
+        byte[] solution = SaveFile.unpack(cells, bits, record);
+        return new Sudoku(size, puzzle, solution);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            data.close();
+        } finally {
+            index.close();
+        }
+    }
+
+    private ByteBuffer entry(int id) throws IOException {
+        if (id < 0 || id >= count) {
+            throw new IllegalArgumentException("No level " + id + " in a catalog of " + count);
+        }
+        return read(index, HEADER_SIZE + (long) id * ENTRY_SIZE, ENTRY_SIZE);
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        readFully(channel, position, buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void readFully(FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Level catalog is truncated");
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Appends levels to a new catalog.
+     */
+    public static class Writer implements Closeable {
+        private final FileChannel data;
+        private final FileChannel index;
+        private final ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+        private long offset;
+        private int count;
+
+        /**
+         * Creates a catalog, replacing any catalog already at the base path.
+         *
+         * @param base the path of the catalog without the extensions
+         * @throws IOException if the files cannot be created
+         */
+        public Writer(String base) throws IOException {
+            data = FileChannel.open(Paths.get(base + ".dat"), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            index = FileChannel.open(Paths.get(base + ".idx"), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putShort(VERSION).putShort((short) 0).flip();
+            index.write(header);
+        }
+
+        /**
+         * Appends a level.
+         *
+         * @param size       the board size
+         * @param puzzle     the givens, 0 for an empty cell
+         * @param solution   the solution
+         * @param difficulty the tier, or null if unrated
+         * @return the ID of the new level
+         * @throws IOException if the files cannot be written
+         */
+        public int add(int size, byte[] puzzle, byte[] solution, SudokuGenerator.Difficulty difficulty)
+                throws IOException {
+            int bits = SaveFile.bitsPerCell(size);
+            int length = 2 * SaveFile.packedLength(puzzle.length, bits);
+            ByteBuffer record = ByteBuffer.allocate(length);
+            SaveFile.pack(puzzle, bits, record);
+            SaveFile.pack(solution, bits, record);
+            record.flip();
+            while (record.hasRemaining()) {
+                data.write(record);
+            }
+            int clues = 0;
+            for (byte cell : puzzle) {
+                if (cell != 0) {
+                    clues++;
+                }
+            }
+            entry.clear();
+            entry.putLong(offset).putInt(length).put((byte) size)
+                .put((byte) (difficulty == null ? NO_DIFFICULTY : difficulty.ordinal()))
+                .putShort((short) clues).flip();
+            while (entry.hasRemaining()) {
+                index.write(entry);
+            }
+            offset += length;
+            return count++;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                data.force(true);
+                index.force(true);
+                data.close();
+            } finally {
+                index.close();
+            }
+        }
+    }
+
+    /**
+     * Builds a catalog from the command line, either from a puzzle file, solving
+     * and rating each puzzle, or by generating new levels.
+     * Usage: LevelCatalog build puzzles.txt [base]
+     *        LevelCatalog generate count size [base]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 2 && args[0].equals("build")) {
+            String base = args.length > 2 ? args[2] : DEFAULT_CATALOG;
+            int added = 0;
+            try (PuzzleReader reader = PuzzleReader.open(Paths.get(args[1]));
+                 Writer writer = new Writer(base)) {
+                Solver solver = null;
+                DifficultyRater rater = null;
+                while (reader.next()) {
+                    int size = reader.size();
+                    if (solver == null || solver.getSize() != size) {
+                        solver = Solver.forSize(size);
+                        rater = size <= SudokuSolver.MAX_SIZE ? new DifficultyRater(size) : null;
+                    }
+                    byte[] solution = new byte[size * size];
+                    if (!solver.solve(reader.grid(), solution)) {
+                        System.err.println("Skipping puzzle " + reader.count() + ": no solution");
+                        continue;
+                    }
+                    SudokuGenerator.Difficulty difficulty = null;
+                    if (rater != null) {
+                        rater.rate(reader.grid());
+                        difficulty = rater.getDifficulty();
+                    }
+                    writer.add(size, reader.grid(), solution, difficulty);
+                    added++;
+                }
+            }
+            System.err.println(added + " levels written to " + base);
+        } else if (args.length >= 3 && args[0].equals("generate")) {
+            int levels = Integer.parseInt(args[1]);
+            int size = Integer.parseInt(args[2]);
+            String base = args.length > 3 ? args[3] : DEFAULT_CATALOG;
+            SudokuGenerator generator = new SudokuGenerator(size);
+            SudokuGenerator.Difficulty[] tiers = SudokuGenerator.Difficulty.values();
+            byte[] puzzle = new byte[size * size];
+            byte[] solution = new byte[size * size];
+            try (Writer writer = new Writer(base)) {
+                for (int i = 0; i < levels; i++) {
+                    SudokuGenerator.Difficulty tier = tiers[i % tiers.length];
+                    generator.generate(tier, puzzle, solution);
+                    writer.add(size, puzzle, solution, tier);
+                }
+            }
+            System.err.println(levels + " levels written to " + base);
+        } else {
+            System.err.println("Usage: java LevelCatalog build <puzzles.txt> [base]");
+            System.err.println("       java LevelCatalog generate <count> <size> [base]");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class LevelCatalogTest {
+
+    @Test
+    public void testCatalogLoadsLevelById() throws IOException {
+        Path dir = Files.createTempDirectory("catalog");
+        String base = dir.resolve("levels").toString();
+        SudokuGenerator generator = new SudokuGenerator(4, 7);
+        byte[][] puzzles = new byte[20][16];
+        byte[][] solutions = new byte[20][16];
+        try (LevelCatalog.Writer writer = new LevelCatalog.Writer(base)) {
+            for (int i = 0; i < puzzles.length; i++) {
+                generator.generate(SudokuGenerator.Difficulty.MEDIUM, puzzles[i], solutions[i]);
+                assertEquals(i, writer.add(4, puzzles[i], solutions[i], SudokuGenerator.Difficulty.MEDIUM));
+            }
+        }
+        try (LevelCatalog catalog = LevelCatalog.open(base)) {
+            assertEquals(20, catalog.size());
+            assertEquals(SudokuGenerator.Difficulty.MEDIUM, catalog.getDifficulty(13));
+            assertEquals(-1, catalog.find(9, null, 0), "No 9x9 levels were added");
+            Sudoku game = catalog.load(13);
+            assertEquals(4, game.getGameSize());
+            for (int i = 0; i < 16; i++) {
+                assertEquals(puzzles[13][i] != 0, game.isGiven(i / 4, i % 4), "Givens of level 13");
+            }
+        }
+    }
+}
@@ -3,7 +3,9 @@ import java.io.Serializable;
 /**
  * Represents a move in the Sudoku game.
  * This class is used to store information about a move, including
- * the position of the move and the previous value of the cell.
+ * the position of the move, the previous and new value of the cell, what kind
+ * of change it was and when it was made. Moves read back from a
+ * {@link GameRecord} carry all of these.
  */
 public class Move implements Serializable {
     // Unique identifier for serialization
@@ -15,6 +17,41 @@ public class Move implements Serializable {
     int col;
     // Previous value 
     String previousValue;
+    // New value, null if not recorded
+    String newValue;
+    // Milliseconds since the game started, -1 if not recorded
+    long time = -1;
+    // What kind of change this was
+    Kind kind = Kind.MOVE;
+
+    /**
+     * The kinds of change a game records.
+     */
+    public enum Kind {
+        /** A digit entered or erased by the player, kept in the history. */
+        MOVE,
+        /** A cell written directly, outside the history. */
+        SET,
+        /** The last move undone. */
+        UNDO,
+        /** The last undone move made again. */
+        REDO,
+        /** Every entry erased. */
+        CLEAR,
+        /** A move made in the same batch as the one before it, undone with it. */
+        JOINED;
+
+        /**
+         * Gets the kind with the given record code, as written by
+         * {@link MoveJournal} and {@link GameRecord}.
+         *
+         * @param code the code, starting at 1
+         * @return the kind
+         */
+        public static Kind of(int code) {
+            return values()[code - 1];
+        }
+    }
 
     /**
      * Constructs a new Move with the specified row, column, and previous value.
@@ -29,6 +66,23 @@ public class Move implements Serializable {
         this.previousValue = previousValue;
     }
 
+    /**
+     * Constructs a fully recorded move.
+     *
+     * @param kind          what kind of change it was
+     * @param row           the row index of the move
+     * @param col           the column index of the move
+     * @param previousValue the value of the cell before the move
+     * @param newValue      the value of the cell after the move
+     * @param time          milliseconds since the game started
+     */
+    Move(Kind kind, int row, int col, String previousValue, String newValue, long time) {
+        this(row, col, previousValue);
+        this.kind = kind;
+        this.newValue = newValue;
+        this.time = time;
+    }
+
     // Getters for the fields
 
     /**
@@ -57,4 +111,31 @@ public class Move implements Serializable {
     public String getPreviousValue() {
         return previousValue;
     }
+
+    /**
+     * Gets the value of the cell after the move.
+     *
+     * @return the new value, or null if it was not recorded
+     */
+    public String getNewValue() {
+        return newValue;
+    }
+
+    /**
+     * Gets when the move was made.
+     *
+     * @return milliseconds since the game started, or -1 if not recorded
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Gets what kind of change the move was.
+     *
+     * @return the kind
+     */
+    public Kind getKind() {
+        return kind;
+    }
 }
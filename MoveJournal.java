@@ -0,0 +1,348 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * An autosave journal: a snapshot of a game plus an append-only log of every
+ * change made since, so a game survives a crash without rewriting the save file
+ * on each move.
+ *
+ * A game attached with {@link Sudoku#setJournal} appends a fixed 16-byte record
+ * for each move, undo, redo, clear or direct cell change. Records collect in
+ * memory and are written and forced to disk together, by a background thread
+ * every few milliseconds or at once when enough have collected, so one fsync
+ * covers a burst of moves. A crash loses at most the records of the last
+ * interval. Once the log holds enough records the game is snapshotted again
+ * and the log starts over, so recovery never replays more than that.
+ *
+ * A batch of moves made by {@link Sudoku#makeMoves} is logged behind a header
+ * giving its length, and is replayed whole or not at all.
+ *
+ * The snapshot is a {@link SaveFile} holding one slot named after the epoch it
+ * starts, and the log begins with the epoch it continues. A log whose epoch does
+ * not match the snapshot is left over from before the last snapshot and is
+ * ignored. Each record carries a CRC-32, so a record torn by a crash ends the
+ * replay instead of corrupting the game.
+ */
+public class MoveJournal implements Closeable {
+    static final int MOVE = 1;  // A move, kept in the history
+    static final int SET = 2;   // A cell set directly, outside the history
+    static final int UNDO = 3;
+    static final int REDO = 4;
+    static final int CLEAR = 5;
+    static final int JOINED = 6; // A move in the same batch as the one before it
+    static final int BATCH = 7;  // Header of a batch, with the count of its records as the cell index
+
+    private static final int RECORD_SIZE = 16; // Kind, cell index, digit, CRC-32 of the first 12 bytes
+    private static final int HEADER_SIZE = 8;  // The epoch
+
+    /** Milliseconds between forced writes when none is given. */
+    public static final long DEFAULT_SYNC_MILLIS = 200;
+    /** Records that force a write straight away when no count is given. */
+    public static final int DEFAULT_SYNC_RECORDS = 64;
+    /** Records after which a new snapshot is taken when no count is given. */
+    public static final int DEFAULT_COMPACT_RECORDS = 4096;
+
+    private final Path log;
+    private final SaveFile snapshot;
+    private final int syncRecords;
+    private final int compactRecords;
+    private final long syncMillis;
+    private final ScheduledExecutorService flusher;
+    private final CRC32 crc = new CRC32();
+    private final ByteBuffer crcInput = ByteBuffer.allocate(12); // Guarded by crc
+
+    // Guarded by this
+    private ByteBuffer pending;       // Records not yet written
+    private ByteBuffer pendingSnapshot; // A snapshot not yet written, which replaces the log
+    private long epoch;
+    private int logged;               // Records since the last snapshot
+    private boolean started;          // Whether the background writer is ticking
+
+    private FileChannel channel;      // Used only by flush(), under writeLock
+    private long durable;             // Log bytes written and forced, under writeLock
+    private final Object writeLock = new Object();
+
+    /**
+     * Opens a journal in a directory with the default timings.
+     *
+     * @param dir the directory holding the snapshot and the log
+     */
+    public MoveJournal(Path dir) {
+        this(dir, DEFAULT_SYNC_MILLIS, DEFAULT_SYNC_RECORDS, DEFAULT_COMPACT_RECORDS);
+    }
+
+    /**
+     * Opens a journal in a directory.
+     *
+     * @param dir            the directory holding the snapshot and the log
+     * @param syncMillis     the longest records wait before being forced to disk
+     * @param syncRecords    the records that force a write straight away
+     * @param compactRecords the records after which a new snapshot is taken
+     */
+    public MoveJournal(Path dir, long syncMillis, int syncRecords, int compactRecords) {
+        this.log = dir.resolve("journal.log");
+        this.snapshot = new SaveFile(dir.resolve("snapshot.dat"));
+        this.syncMillis = syncMillis;
+        this.syncRecords = syncRecords;
+        this.compactRecords = compactRecords;
+        this.pending = ByteBuffer.allocate(RECORD_SIZE * Math.max(syncRecords, 1));
+        this.epoch = lastEpoch();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "sudoku-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Rebuilds the game the journal was keeping: the last snapshot with the
+     * intact records of its log replayed on top.
+     *
+     * @return the game, or null if there is none or it was already won
+     * @throws IOException if the snapshot cannot be read
+     */
+    public Sudoku recover() throws IOException {
+        if (!Files.exists(snapshot.getPath())) {
+            return null;
+        }
+        List<String> slots = snapshot.slots();
+        if (slots.isEmpty()) {
+            return null;
+        }
+        String slot = slots.get(0);
+        Sudoku game = Sudoku.blank();
+        if (!snapshot.load(slot, game)) {
+            return null;
+        }
+        long snapshotEpoch = Long.parseLong(slot);
+        if (Files.exists(log)) {
+            ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(log));
+            if (data.remaining() >= HEADER_SIZE && data.getLong() == snapshotEpoch) {
+                while (data.remaining() >= RECORD_SIZE) {
+                    int kind = data.getInt();
+                    int index = data.getInt();
+                    int digit = data.getInt();
+                    if (data.getInt() != checksum(kind, index, digit)) {
+                        break; // Torn by a crash; nothing after it was forced
+                    }
+                    if (kind == BATCH) {
+                        if (!intact(data, index)) {
+                            break; // Cut short by a crash, so none of the batch is replayed
+                        }
+                        continue;
+                    }
+                    game.replay(kind, index, digit);
+                }
+            }
+        }
+        return game.checkWin() ? null : game;
+    }
+
+    /**
+     * Starts the journal over from the state of a game, as when the game is
+     * attached, loaded or replaced. Called on the game's thread.
+     *
+     * @param game the game to snapshot
+     */
+    synchronized void snapshot(Sudoku game) {
+        if (!started && !flusher.isShutdown()) { // Started on first attach; a journal only recovered needs none
+            started = true;
+            flusher.scheduleWithFixedDelay(this::flushQuietly, syncMillis, syncMillis, TimeUnit.MILLISECONDS);
+        }
+        epoch++;
+        pendingSnapshot = SaveFile.encode(Long.toString(epoch), game);
+        pending.clear(); // The snapshot covers them
+        logged = 0;
+        wake();
+    }
+
+    /**
+     * Appends a record. Called on the game's thread after the change was made.
+     *
+     * @param game  the game, snapshotted if the log is long enough
+     * @param kind  the kind of change
+     * @param index the cell index, for moves and direct sets
+     * @param digit the new digit, for moves and direct sets
+     */
+    synchronized void append(Sudoku game, int kind, int index, int digit) {
+        if (++logged >= compactRecords) {
+            snapshot(game);
+            return;
+        }
+        put(kind, index, digit);
+    }
+
+    /**
+     * Appends the records of a batch of moves behind a header, so that
+     * recovery replays the batch whole or not at all. Called on the game's
+     * thread after the whole batch was made.
+     *
+     * @param game  the game, snapshotted if the log is long enough
+     * @param moves the moves, packed as by MoveLog.encode
+     */
+    synchronized void appendBatch(Sudoku game, int[] moves) {
+        logged += moves.length + 1;
+        if (logged >= compactRecords) {
+            snapshot(game);
+            return;
+        }
+        put(BATCH, moves.length, 0);
+        for (int i = 0; i < moves.length; i++) {
+            put(i > 0 ? JOINED : MOVE, MoveLog.index(moves[i]), MoveLog.newDigit(moves[i]));
+        }
+    }
+
+    // Adds one record to the waiting ones, under the lock on this
+    private void put(int kind, int index, int digit) {
+        if (!pending.hasRemaining()) {
+            ByteBuffer bigger = ByteBuffer.allocate(pending.capacity() * 2);
+            pending.flip();
+            pending = bigger.put(pending);
+        }
+        pending.putInt(kind).putInt(index).putInt(digit).putInt(checksum(kind, index, digit));
+        if (pending.position() == RECORD_SIZE * syncRecords) {
+            wake();
+        }
+    }
+
+    /**
+     * Writes the waiting snapshot and records and forces them to disk. They
+     * stay waiting until the write succeeds, so a failed flush is retried whole.
+     *
+     * @throws IOException if the journal cannot be written
+     */
+    public void flush() throws IOException {
+        synchronized (writeLock) {
+            ByteBuffer records;
+            ByteBuffer newSnapshot;
+            long newEpoch;
+            synchronized (this) {
+                newSnapshot = pendingSnapshot;
+                newEpoch = epoch;
+                records = ByteBuffer.allocate(pending.position()).put(pending.duplicate().flip()).flip();
+            }
+            int taken = records.remaining();
+            if (newSnapshot != null) {
+                snapshot.replace(newSnapshot.duplicate()); // Forced and moved into place before the log is reset
+                if (channel != null) {
+                    channel.close();
+                    channel = null;
+                }
+                channel = FileChannel.open(log, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+                durable = 0;
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putLong(newEpoch).flip();
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                durable = HEADER_SIZE;
+            } else if (channel == null) {
+                if (taken == 0) {
+                    return; // Nothing attached yet
+                }
+                channel = FileChannel.open(log, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                durable = channel.size();
+            }
+            if (channel.size() > durable) {
+                channel.truncate(durable); // Drops a write that failed partway, which is written again below
+            }
+            while (records.hasRemaining()) {
+                channel.write(records);
+            }
+            channel.force(false);
+            durable += taken;
+            synchronized (this) {
+                if (epoch == newEpoch) { // Else a newer snapshot is waiting and its records replaced these
+                    pendingSnapshot = null;
+                    pending.flip().position(taken);
+                    pending.compact();
+                }
+            }
+        }
+    }
+
+    /**
+     * Forces what is waiting to disk and stops the background writer.
+     */
+    @Override
+    public void close() throws IOException {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        synchronized (writeLock) {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+
+    // Asks the background writer to flush now, unless the journal is closed
+    private void wake() {
+        if (!flusher.isShutdown()) {
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    // Gets the epoch of the snapshot on disk, so a new one never reuses it
+    private long lastEpoch() {
+        try {
+            if (Files.exists(snapshot.getPath())) {
+                for (String slot : snapshot.slots()) {
+                    return Long.parseLong(slot);
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Unreadable; the next snapshot replaces it whatever its epoch
+        }
+        return 0;
+    }
+
+    // Checks that the given number of intact records follow, without reading them
+    private boolean intact(ByteBuffer data, int count) {
+        ByteBuffer ahead = data.duplicate();
+        for (int i = 0; i < count; i++) {
+            if (ahead.remaining() < RECORD_SIZE) {
+                return false;
+            }
+            int kind = ahead.getInt();
+            int index = ahead.getInt();
+            int digit = ahead.getInt();
+            if (ahead.getInt() != checksum(kind, index, digit)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            e.printStackTrace(); // Tried again on the next tick
+        }
+    }
+
+    private int checksum(int kind, int index, int digit) {
+        synchronized (crc) {
+            crc.reset();
+            crcInput.clear();
+            crc.update(crcInput.putInt(kind).putInt(index).putInt(digit).flip());
+            return (int) crc.getValue();
+        }
+    }
+}
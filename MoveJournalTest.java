@@ -0,0 +1,98 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class MoveJournalTest {
+
+    @Test
+    public void testRecoversMovesUndoAndClear() throws Exception {
+        Path dir = Files.createTempDirectory("journal");
+        Sudoku game = new Sudoku();
+        MoveJournal journal = new MoveJournal(dir);
+        game.setJournal(journal);
+        game.makeMove("0", "5", "5");
+        game.makeMove("0", "6", "7");
+        game.makeMove("1", "2", "3");
+        game.undoLastMove();
+        journal.flush(); // As the background writer would; no close, as in a crash
+
+        Sudoku recovered = new MoveJournal(dir).recover();
+        assertArrayEquals(game.boardCells(), recovered.boardCells(), "The board should be rebuilt");
+        assertTrue(recovered.redoLastMove(), "The undone move should still be redoable");
+        assertEquals("3", recovered.getIndividualMove(1, 2));
+
+        game.clearBoard();
+        journal.close();
+        recovered = new MoveJournal(dir).recover();
+        assertEquals("-", recovered.getIndividualMove(0, 5), "The clear should be replayed");
+        assertFalse(recovered.undoLastMove(), "Clearing drops the history");
+    }
+
+    @Test
+    public void testCompactsAndIgnoresTornTail() throws Exception {
+        Path dir = Files.createTempDirectory("journal");
+        Sudoku game = new Sudoku();
+        try (MoveJournal journal = new MoveJournal(dir, 10, 4, 8)) {
+            game.setJournal(journal);
+            for (int i = 0; i < 20; i++) {
+                game.makeMove("0", "5", Integer.toString(i % 9 + 1));
+            }
+        }
+        Path log = dir.resolve("journal.log");
+        assertTrue(Files.size(log) < 8 + 8 * 16, "The log should have been compacted into a snapshot");
+
+        byte[] torn = new byte[16];
+        torn[3] = MoveJournal.MOVE; // A move whose checksum never made it to disk
+        torn[7] = 6;
+        torn[11] = 9;
+        Files.write(log, torn, StandardOpenOption.APPEND);
+        Sudoku recovered = new MoveJournal(dir).recover();
+        assertArrayEquals(game.boardCells(), recovered.boardCells(), "The torn record should be ignored");
+        assertEquals("2", recovered.getIndividualMove(0, 5));
+    }
+
+    @Test
+    public void testReplaysBatchWholeOrNotAtAll() throws Exception {
+        Path dir = Files.createTempDirectory("journal");
+        Sudoku game = new Sudoku();
+        try (MoveJournal journal = new MoveJournal(dir)) {
+            game.setJournal(journal);
+            game.makeMoves(new int[] {MoveLog.encode(5, 0, 5), MoveLog.encode(6, 0, 7), MoveLog.encode(12, 0, 3)});
+        }
+        Sudoku recovered = new MoveJournal(dir).recover();
+        assertArrayEquals(game.boardCells(), recovered.boardCells(), "The batch should be replayed");
+        assertTrue(recovered.undoLastMove());
+        assertEquals("-", recovered.getIndividualMove(0, 5), "The batch should still undo as one");
+        assertFalse(recovered.undoLastMove());
+
+        Path log = dir.resolve("journal.log");
+        byte[] data = Files.readAllBytes(log);
+        Files.write(log, java.util.Arrays.copyOf(data, data.length - 16)); // Lose the batch's last record
+        recovered = new MoveJournal(dir).recover();
+        assertEquals("-", recovered.getIndividualMove(0, 5), "A batch cut short should not be replayed");
+        assertEquals("-", recovered.getIndividualMove(0, 6));
+    }
+
+    @Test
+    public void testFailedFlushIsRetriedWhole() throws Exception {
+        Path dir = Files.createTempDirectory("journal");
+        Path log = dir.resolve("journal.log");
+        Files.createDirectory(log); // The log cannot be opened, so flushing fails after the snapshot
+        Sudoku game = new Sudoku();
+        MoveJournal journal = new MoveJournal(dir, 60_000, 64, 4096);
+        game.setJournal(journal);
+        game.makeMove("0", "5", "5");
+        assertThrows(java.io.IOException.class, journal::flush);
+        game.makeMove("0", "6", "7");
+        Files.delete(log);
+        journal.close();
+
+        Sudoku recovered = new MoveJournal(dir).recover();
+        assertArrayEquals(game.boardCells(), recovered.boardCells(), "Records of the failed flush should be kept");
+        assertTrue(recovered.undoLastMove());
+        assertTrue(recovered.undoLastMove(), "Both moves should be in the history");
+    }
+}
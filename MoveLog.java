@@ -0,0 +1,303 @@
+import java.io.Serializable;
+
+/**
+ * Undo and redo history for a Sudoku game, kept as a ring buffer of ints.
+ * Each entry packs the cell index, the digit before the move and the digit after
+ * it, so undoing or redoing a move reads one int and allocates nothing. The buffer
+ * starts small and doubles up to its depth limit, after which the oldest moves
+ * are overwritten.
+ *
+ * Moves made together by {@link Sudoku#makeMoves} are undone and redone as one
+ * step: every entry of such a batch but the first carries the {@link #JOINED}
+ * flag in its top bit, which the game follows when undoing and redoing. When
+ * the first move of a batch is overwritten, the rest of the batch is dropped
+ * from the history with it, so a batch is never undone by halves.
+ */
+public class MoveLog implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /** Number of moves kept when no limit is given. */
+    public static final int DEFAULT_DEPTH = 4096;
+
+    /** Flag on an entry made in the same batch as the entry before it. */
+    public static final int JOINED = 1 << 31;
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int DIGIT_BITS = 7;
+    private static final int DIGIT_MASK = (1 << DIGIT_BITS) - 1;
+    private static final int INDEX_MASK = (1 << 14) - 1; // Enough for MAX_SIZE squared cells
+
+    private final int depth; // Most moves kept
+    private int[] ring;
+    private int head;        // Slot the next move is written to
+    private int size;        // Moves that can be undone
+    private int redo;        // Undone moves that can be redone
+
+    /**
+     * Constructs a log that keeps the default number of moves.
+     */
+    public MoveLog() {
+        this(DEFAULT_DEPTH);
+    }
+
+    /**
+     * Constructs a log that keeps at most the given number of moves.
+     *
+     * @param depth the most moves kept, at least 1
+     */
+    public MoveLog(int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("History depth must be positive: " + depth);
+        }
+        this.depth = depth;
+        this.ring = new int[Math.min(depth, INITIAL_CAPACITY)];
+    }
+
+    /**
+     * Constructs a log holding saved entries, as returned by {@link #entries()}.
+     *
+     * @param depth   the most moves kept, at least 1
+     * @param entries the packed entries, oldest first, redoable ones last
+     * @param redo    how many of the entries at the end can be redone
+     */
+    public MoveLog(int depth, int[] entries, int redo) {
+        this(depth);
+        if (redo < 0 || redo > entries.length) {
+            throw new IllegalArgumentException("Redo count out of range: " + redo);
+        }
+        int from = Math.max(0, entries.length - depth);
+        while (from < entries.length && entries[from] < 0) {
+            from++; // The rest of a batch whose first move was cut off
+        }
+        int kept = entries.length - from;
+        ring = new int[Math.max(ring.length, kept)];
+        System.arraycopy(entries, from, ring, 0, kept);
+        this.redo = Math.min(redo, kept);
+        this.size = kept - this.redo;
+        this.head = size == ring.length ? 0 : size;
+    }
+
+    /**
+     * Packs a move into a single entry.
+     *
+     * @param index    the cell index in row-major order
+     * @param oldDigit the digit before the move, 0 for empty
+     * @param newDigit the digit after the move, 0 for empty
+     * @return the packed entry, never negative
+     */
+    public static int encode(int index, int oldDigit, int newDigit) {
+        return (index << (2 * DIGIT_BITS)) | (oldDigit << DIGIT_BITS) | newDigit;
+    }
+
+    /**
+     * Gets the cell index of a packed entry.
+     *
+     * @param entry the packed entry
+     * @return the cell index
+     */
+    public static int index(int entry) {
+        return (entry >>> (2 * DIGIT_BITS)) & INDEX_MASK;
+    }
+
+    /**
+     * Gets the digit before the move of a packed entry.
+     *
+     * @param entry the packed entry
+     * @return the old digit
+     */
+    public static int oldDigit(int entry) {
+        return (entry >>> DIGIT_BITS) & DIGIT_MASK;
+    }
+
+    /**
+     * Gets the digit after the move of a packed entry.
+     *
+     * @param entry the packed entry
+     * @return the new digit
+     */
+    public static int newDigit(int entry) {
+        return entry & DIGIT_MASK;
+    }
+
+    /**
+     * Records a move, dropping anything that could have been redone.
+     *
+     * @param index    the cell index in row-major order
+     * @param oldDigit the digit before the move
+     * @param newDigit the digit after the move
+     */
+    public void record(int index, int oldDigit, int newDigit) {
+        record(index, oldDigit, newDigit, false);
+    }
+
+    /**
+     * Records a move, dropping anything that could have been redone.
+     *
+     * @param index    the cell index in row-major order
+     * @param oldDigit the digit before the move
+     * @param newDigit the digit after the move
+     * @param joined   true if the move belongs to the same batch as the one
+     *                 recorded before it, so they are undone together
+     */
+    public void record(int index, int oldDigit, int newDigit, boolean joined) {
+        redo = 0;
+        if (size == ring.length && ring.length < depth) {
+            grow();
+        }
+        ring[head] = encode(index, oldDigit, newDigit) | (joined ? JOINED : 0);
+        head = head + 1 == ring.length ? 0 : head + 1;
+        if (size < ring.length) {
+            size++;
+        } else {
+            // The oldest move was overwritten. If it started a batch, the rest of
+            // the batch can no longer be undone whole, so it is dropped too.
+            for (int oldest = head; size > 0 && ring[oldest] < 0; oldest = oldest + 1 == ring.length ? 0 : oldest + 1) {
+                size--;
+            }
+        }
+    }
+
+    /**
+     * Steps back over the last move.
+     *
+     * @return the packed entry of the move, with the {@link #JOINED} flag if
+     *         the move before it belongs to the same batch, or -1 if there is
+     *         nothing to undo
+     */
+    public int undo() {
+        if (size == 0) {
+            return -1;
+        }
+        head = head == 0 ? ring.length - 1 : head - 1;
+        size--;
+        redo++;
+        return ring[head];
+    }
+
+    /**
+     * Steps forward over the last undone move.
+     *
+     * @return the packed entry of the move, with the {@link #JOINED} flag if it
+     *         belongs to the same batch as the move before it, or -1 if there
+     *         is nothing to redo
+     */
+    public int redo() {
+        if (redo == 0) {
+            return -1;
+        }
+        int entry = ring[head];
+        head = head + 1 == ring.length ? 0 : head + 1;
+        size++;
+        redo--;
+        return entry;
+    }
+
+    /**
+     * Checks whether the next move to redo belongs to the same batch as the
+     * move just redone, so it should be redone too.
+     *
+     * @return true if the next redo continues a batch
+     */
+    public boolean isRedoJoined() {
+        return redo > 0 && ring[head] < 0;
+    }
+
+    /**
+     * Checks whether an entry belongs to the same batch as the entry before it.
+     *
+     * @param entry the entry, as returned by {@link #undo} or {@link #redo}
+     * @return true if the entry carries the {@link #JOINED} flag
+     */
+    public static boolean isJoined(int entry) {
+        return entry < 0 && entry != -1;
+    }
+
+    /**
+     * Checks whether there is a move to undo.
+     *
+     * @return true if undo would succeed
+     */
+    public boolean canUndo() {
+        return size > 0;
+    }
+
+    /**
+     * Checks whether there is a move to redo.
+     *
+     * @return true if redo would succeed
+     */
+    public boolean canRedo() {
+        return redo > 0;
+    }
+
+    /**
+     * Gets the number of moves that can be undone.
+     *
+     * @return the undo depth in use
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the most moves this log keeps.
+     *
+     * @return the depth limit
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Gets the number of undone moves that can be redone.
+     *
+     * @return the redo depth in use
+     */
+    public int redoSize() {
+        return redo;
+    }
+
+    /**
+     * Gets the number of entries the buffer can hold before it grows.
+     *
+     * @return the buffer length
+     */
+    int capacity() {
+        return ring.length;
+    }
+
+    /**
+     * Copies out every entry, the undoable ones oldest first followed by the
+     * redoable ones in redo order.
+     *
+     * @return the packed entries
+     */
+    public int[] entries() {
+        int[] out = new int[size + redo];
+        int start = head - size < 0 ? head - size + ring.length : head - size;
+        for (int i = 0; i < out.length; i++) {
+            out[i] = ring[(start + i) % ring.length];
+        }
+        return out;
+    }
+
+    /**
+     * Forgets every move.
+     */
+    public void clear() {
+        head = 0;
+        size = 0;
+        redo = 0;
+    }
+
+    // Doubles the buffer, moving the entries so the oldest is at slot 0
+    private void grow() {
+        int[] larger = new int[Math.min(depth, ring.length * 2)];
+        int start = head - size < 0 ? head - size + ring.length : head - size;
+        for (int i = 0; i < size; i++) {
+            larger[i] = ring[(start + i) % ring.length];
+        }
+        ring = larger;
+        head = size;
+    }
+}
@@ -0,0 +1,145 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file of recorded games, written one {@link GameRecord} after another and read
+ * back as a stream, so files of millions of games are produced and consumed with
+ * constant memory. The file starts with a magic number and a format version;
+ * games are appended after it, so a file can grow across many sessions.
+ */
+public final class MoveStream {
+    private static final int MAGIC = 0x53444B4D; // "SDKM"
+    private static final short VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int HEADER_SIZE = 6; // Magic number and version
+
+    private MoveStream() {
+    }
+
+    /**
+     * Opens a file for appending games, creating it if needed.
+     *
+     * @param file the file
+     * @return a writer positioned at the end of the file
+     * @throws IOException if the file cannot be opened
+     */
+    public static Writer append(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        boolean fresh = !Files.exists(file) || Files.size(file) == 0;
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+            Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND), BUFFER_SIZE));
+        if (fresh) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+        }
+        return new Writer(out);
+    }
+
+    /**
+     * Opens a file of games for reading.
+     *
+     * @param file the file
+     * @return a reader positioned before the first game
+     * @throws IOException if the file cannot be opened or is not a move stream
+     */
+    public static Reader open(Path file) throws IOException {
+        long size = Files.size(file);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " is not a move stream");
+            }
+            short version = in.readShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported move stream version " + version);
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return new Reader(in, size - HEADER_SIZE);
+    }
+
+    /**
+     * Appends one recorded game to a file.
+     *
+     * @param file   the file
+     * @param record the game
+     * @throws IOException if the file cannot be written
+     */
+    public static void save(Path file, GameRecord record) throws IOException {
+        try (Writer writer = append(file)) {
+            writer.write(record);
+        }
+    }
+
+    /**
+     * Appends games to a move stream.
+     */
+    public static final class Writer implements Closeable {
+        private final DataOutputStream out;
+
+        private Writer(DataOutputStream out) {
+            this.out = out;
+        }
+
+        /**
+         * Appends a game.
+         *
+         * @param record the game
+         * @throws IOException if writing fails
+         */
+        public void write(GameRecord record) throws IOException {
+            record.write(out);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads the games of a move stream one at a time. Only the games in the
+     * file when it was opened are read.
+     */
+    public static final class Reader implements Closeable {
+        private final DataInputStream in;
+        private long remaining; // Bytes of the file not read yet
+
+        private Reader(DataInputStream in, long remaining) {
+            this.in = in;
+            this.remaining = remaining;
+        }
+
+        /**
+         * Reads the next game into a record, reusing its buffers.
+         *
+         * @param record the record to fill
+         * @return false at the end of the file, or at a game cut short by a crash
+         * @throws IOException if reading fails or a game is malformed
+         */
+        public boolean next(GameRecord record) throws IOException {
+            try {
+                remaining -= record.read(in, remaining);
+                return true;
+            } catch (EOFException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,297 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams puzzles out of a file by memory-mapping it and parsing the mapped bytes
+ * straight into a primitive grid. Two formats are understood, and may be mixed:
+ * <ul>
+ * <li>fixed-width lines of n*n cells, '1'-'9' then 'A'-'Z' for digits and '0'
+ *     or '.' for empty, one puzzle per line;</li>
+ * <li>the level format, a line with the board size followed by one
+ *     "row col value" line per cell, with '-' for empty. A new size line starts
+ *     the next puzzle, so level files can be concatenated.</li>
+ * </ul>
+ * The reader is a cursor: {@link #next()} moves to the next puzzle and
+ * {@link #grid()} returns it in a buffer that is reused for every puzzle, so
+ * scanning a file allocates nothing per puzzle or per cell. Large files are
+ * mapped one window at a time, so files beyond 2 GB are read with constant heap.
+ */
+public class PuzzleReader implements Closeable {
+    private static final long WINDOW = 1L << 30; // Bytes mapped at once
+    private static final int MAX_LINE_DIGIT = 35;  // 'Z', the last fixed-width cell character
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final int defaultSize;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long pos;            // File offset of the next unread line
+    private byte[] grid = new byte[0];
+    private int size;
+    private long count;
+
+    // Token bounds of the current line, as offsets into the window
+    private final int[] tokenStart = new int[4];
+    private final int[] tokenEnd = new int[4];
+
+    /**
+     * Opens a puzzle file.
+     *
+     * @param file the file to read
+     * @return a reader positioned before the first puzzle
+     * @throws IOException if the file cannot be opened
+     */
+    public static PuzzleReader open(Path file) throws IOException {
+        return new PuzzleReader(file, 0);
+    }
+
+    /**
+     * Opens a puzzle file whose triplets may come without a size line, as the
+     * solution files do.
+     *
+     * @param file        the file to read
+     * @param defaultSize the board size to assume when no size line is present
+     * @return a reader positioned before the first puzzle
+     * @throws IOException if the file cannot be opened
+     */
+    public static PuzzleReader open(Path file, int defaultSize) throws IOException {
+        return new PuzzleReader(file, defaultSize);
+    }
+
+    private PuzzleReader(Path file, int defaultSize) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        this.defaultSize = defaultSize;
+        map(0);
+    }
+
+    /**
+     * Moves to the next puzzle in the file.
+     *
+     * @return true if a puzzle was read, false at the end of the file
+     * @throws IOException if the file is malformed or cannot be read
+     */
+    public boolean next() throws IOException {
+        boolean inTriplets = false;
+        while (pos < fileSize) {
+            int end = lineEnd();
+            int tokens = tokenize((int) (pos - windowStart), end);
+            if (tokens == 0) {
+                pos = windowStart + end + 1;
+                continue;
+            }
+            if (tokens == 1) {
+                int length = tokenEnd[0] - tokenStart[0];
+                if (inTriplets) {
+                    return finish(); // Leave this line for the next puzzle
+                }
+                if (length <= 3) {
+                    resize((int) number(tokenStart[0], tokenEnd[0]));
+                    inTriplets = true;
+                } else {
+                    readLine(tokenStart[0], length);
+                    pos = windowStart + end + 1;
+                    return finish();
+                }
+            } else if (tokens == 3) {
+                if (!inTriplets) {
+                    if (defaultSize == 0) {
+                        throw new IOException("Cell triplet before a size line at byte " + pos);
+                    }
+                    resize(defaultSize);
+                    inTriplets = true;
+                }
+                int row = (int) number(tokenStart[0], tokenEnd[0]);
+                int col = (int) number(tokenStart[1], tokenEnd[1]);
+                int digit = tokenEnd[2] - tokenStart[2] == 1 && cellValue(window.get(tokenStart[2])) == 0
+                    ? 0 : (int) number(tokenStart[2], tokenEnd[2]);
+                if (row >= size || col >= size || digit > size) {
+                    throw new IOException("Cell out of range at byte " + pos);
+                }
+                grid[row * size + col] = (byte) digit;
+            } else {
+                throw new IOException("Unrecognised line at byte " + pos);
+            }
+            pos = windowStart + end + 1;
+        }
+        return inTriplets && finish();
+    }
+
+    /**
+     * Gets the current puzzle. The array is reused by the next call to
+     * {@link #next()}, so copy it if it must be kept.
+     *
+     * @return the cells in row-major order, 0 for empty
+     */
+    public byte[] grid() {
+        return grid;
+    }
+
+    /**
+     * Gets the board size of the current puzzle.
+     *
+     * @return the number of rows and columns
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the number of puzzles read so far.
+     *
+     * @return the puzzle count
+     */
+    public long count() {
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    /**
+     * Converts a puzzle character to a digit.
+     *
+     * @param c the character
+     * @return the digit, 0 for empty, or -1 if the character is not a cell
+     */
+    static int cellValue(int c) {
+        if (c >= '1' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 10;
+        } else if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 10;
+        } else if (c == '0' || c == '.' || c == '-') {
+            return 0;
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether a board can be written as a fixed-width line, whose cells
+     * go up to 'Z' for 35, so up to 25x25.
+     *
+     * @param size the board size
+     * @return true if {@link #cellChar} can write every digit of the board
+     */
+    static boolean fitsLine(int size) {
+        return size <= MAX_LINE_DIGIT;
+    }
+
+    /**
+     * Converts a digit to its puzzle character.
+     *
+     * @param digit the digit, 0 for empty
+     * @return the character
+     * @throws IllegalArgumentException if the digit is above 35, which has no
+     *         character; see {@link #fitsLine}
+     */
+    static byte cellChar(int digit) {
+        if (digit == 0) {
+            return '.';
+        } else if (digit > MAX_LINE_DIGIT) {
+            throw new IllegalArgumentException("Digit " + digit + " has no puzzle character");
+        }
+        return (byte) (digit <= 9 ? '0' + digit : 'A' + digit - 10);
+    }
+
+    private boolean finish() {
+        count++;
+        return true;
+    }
+
+    // Parses a fixed-width puzzle line
+    private void readLine(int start, int length) throws IOException {
+        int side = (int) Math.round(Math.sqrt(length));
+        if (side * side != length) {
+            throw new IOException("Puzzle line has " + length + " cells, not a square number, at byte " + pos);
+        }
+        resize(side);
+        for (int i = 0; i < length; i++) {
+            int digit = cellValue(window.get(start + i));
+            if (digit < 0 || digit > side) {
+                throw new IOException("Bad cell at byte " + (windowStart + start + i));
+            }
+            grid[i] = (byte) digit;
+        }
+    }
+
+    // Sets the board size and clears the grid, reallocating only on a size change
+    private void resize(int side) throws IOException {
+        if (side < 1 || side > Sudoku.MAX_SIZE) {
+            throw new IOException("Unsupported board size " + side + " at byte " + pos);
+        }
+        if (grid.length != side * side) {
+            grid = new byte[side * side];
+        } else {
+            java.util.Arrays.fill(grid, (byte) 0);
+        }
+        size = side;
+    }
+
+    private long number(int start, int end) throws IOException {
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int d = window.get(i) - '0';
+            if (d < 0 || d > 9) {
+                throw new IOException("Expected a number at byte " + (windowStart + i));
+            }
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    // Splits a line into at most four tokens, returning how many were found
+    private int tokenize(int start, int end) {
+        int tokens = 0;
+        int i = start;
+        while (i < end && tokens < tokenStart.length) {
+            while (i < end && window.get(i) <= ' ') {
+                i++;
+            }
+            if (i == end) {
+                break;
+            }
+            tokenStart[tokens] = i;
+            while (i < end && window.get(i) > ' ') {
+                i++;
+            }
+            tokenEnd[tokens++] = i;
+        }
+        return tokens;
+    }
+
+    /**
+     * Finds the end of the line starting at pos, as an offset into the window,
+     * remapping the window at pos if the line runs past it.
+     */
+    private int lineEnd() throws IOException {
+        while (true) {
+            int limit = window.limit();
+            for (int i = (int) (pos - windowStart); i < limit; i++) {
+                if (window.get(i) == '\n') {
+                    return i;
+                }
+            }
+            if (windowStart + limit >= fileSize) {
+                return limit; // Last line has no newline
+            }
+            if (pos == windowStart) {
+                throw new IOException("Line longer than " + WINDOW + " bytes at byte " + pos);
+            }
+            map(pos);
+        }
+    }
+
+    private void map(long start) throws IOException {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW, fileSize - start));
+    }
+}
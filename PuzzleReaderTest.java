@@ -0,0 +1,78 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class PuzzleReaderTest {
+
+    @Test
+    public void testReadsFixedWidthLines() throws IOException {
+        // '.' and '0' both mark empty cells, blank lines are skipped, and the last line has no newline
+        Path file = write("12..34..........\n\n0000000000000004");
+        try (PuzzleReader in = PuzzleReader.open(file)) {
+            assertTrue(in.next());
+            assertEquals(4, in.size());
+            assertArrayEquals(new byte[] {1, 2, 0, 0, 3, 4, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0}, in.grid());
+            assertTrue(in.next(), "A last line without a newline is still read");
+            assertArrayEquals(new byte[] {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 4}, in.grid());
+            assertFalse(in.next());
+            assertEquals(2, in.count());
+        }
+    }
+
+    @Test
+    public void testReadsConcatenatedLevelFilesMixedWithLines() throws IOException {
+        String wide = "G" + ".".repeat(15) + "A" + ".".repeat(239);
+        Path file = write("4\n0 0 1\n0 1 -\n3 3 4\n4\n1 2 3\n2 1 -\n" + wide + "\n");
+        try (PuzzleReader in = PuzzleReader.open(file)) {
+            assertTrue(in.next());
+            assertEquals(4, in.size());
+            assertArrayEquals(new byte[] {1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 4}, in.grid());
+            assertTrue(in.next(), "A new size line starts the next puzzle");
+            assertArrayEquals(new byte[] {0, 0, 0, 0, 0, 0, 3, 0, 0, 0, 0, 0, 0, 0, 0, 0}, in.grid(),
+                "Cells of the previous puzzle should not leak into the next");
+            assertTrue(in.next());
+            assertEquals(16, in.size(), "A 256-cell line is a 16x16 board");
+            assertEquals(16, in.grid()[0], "'G' is 16");
+            assertEquals(10, in.grid()[16], "'A' is 10");
+            assertFalse(in.next());
+            assertEquals(3, in.count());
+        }
+    }
+
+    @Test
+    public void testReadsTripletsWithoutSizeLineGivenDefault() throws IOException {
+        Path file = write("0 0 1\n1 1 2\n3 2 4");
+        try (PuzzleReader in = PuzzleReader.open(file, 4)) {
+            assertTrue(in.next());
+            assertEquals(4, in.size());
+            assertEquals(1, in.grid()[0]);
+            assertEquals(2, in.grid()[5]);
+            assertEquals(4, in.grid()[14], "A last triplet without a newline is still read");
+            assertFalse(in.next());
+        }
+    }
+
+    @Test
+    public void testRejectsMalformedInput() throws IOException {
+        assertMalformed(PuzzleReader.open(write("123412341234123\n")), "not a square number");
+        assertMalformed(PuzzleReader.open(write("4\n4 0 1\n")), "out of range");
+        assertMalformed(PuzzleReader.open(write("4\n0 0 5\n")), "out of range");
+        assertMalformed(PuzzleReader.open(write("0 0 1\n")), "before a size line");
+    }
+
+    private static void assertMalformed(PuzzleReader in, String message) throws IOException {
+        try (in) {
+            IOException e = assertThrows(IOException.class, in::next);
+            assertTrue(e.getMessage().contains(message), e.getMessage());
+        }
+    }
+
+    private static Path write(String text) throws IOException {
+        Path file = Files.createTempFile("puzzles", ".txt");
+        Files.writeString(file, text);
+        return file;
+    }
+}
@@ -0,0 +1,400 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Headless entry point that replays recorded games through {@link Sudoku} across
+ * all cores and sums up how they were played: how long players think per change,
+ * how often they undo and where, how many entries are wrong or clash with
+ * another, and how many games end solved.
+ *
+ * Games are read from a {@link MoveStream} in chunks, as {@link BatchSolver}
+ * reads puzzles: while the fork-join pool replays one chunk the next one is
+ * read, and each chunk's statistics are folded into the running totals before
+ * its records are reused, so memory stays constant however many games the
+ * stream holds. Each worker replays into its own reused game.
+ *
+ * A change whose recorded old digit does not match the replayed board means
+ * the changes do not belong to the starting board; the rest of that game is skipped
+ * and counted as inconsistent.
+ */
+public class ReplayEngine {
+    private static final int CHUNK_SIZE = 4096; // Games per chunk
+    private static final int LEAF_SIZE = 32;    // Games per fork-join leaf
+
+    private final ForkJoinPool pool;
+    private final ThreadLocal<Sudoku> boards = ThreadLocal.withInitial(Sudoku::blank);
+
+    /**
+     * Constructs a replay engine using the given pool.
+     *
+     * @param pool the pool to replay on
+     */
+    public ReplayEngine(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Replays every game in a stream.
+     *
+     * @param in    the games
+     * @param stats the totals to add to
+     * @return the number of games read
+     * @throws IOException if reading fails
+     */
+    public long run(MoveStream.Reader in, Stats stats) throws IOException {
+        Chunk current = new Chunk();
+        Chunk next = new Chunk();
+        long total = 0;
+        current.fill(in);
+        while (current.count > 0) {
+            ForkJoinTask<Stats> task = pool.submit(new ReplayTask(current, 0, current.count));
+            next.fill(in); // Read ahead while the pool replays
+            stats.add(task.join());
+            total += current.count;
+            Chunk done = current;
+            current = next;
+            next = done;
+        }
+        return total;
+    }
+
+    /**
+     * Replays one game into the calling thread's board.
+     *
+     * @param record the game
+     * @param stats  the totals to add to
+     */
+    void replay(GameRecord record, Stats stats) {
+        int size = record.getSize();
+        byte[] solution = record.solution();
+        Sudoku game = boards.get();
+        game.restore(size, record.cells(), solution, record.given(), new MoveLog());
+        byte[] board = game.boardCells();
+        int last = 0;
+        for (int i = 0; i < record.getMoveCount(); i++) {
+            int kind = record.kind(i);
+            int index = record.index(i);
+            int digit = record.newDigit(i);
+            if (index >= board.length || (kind != MoveJournal.CLEAR && board[index] != record.oldDigit(i))) {
+                stats.inconsistent++;
+                return;
+            }
+            int time = record.time(i);
+            stats.think(time - last);
+            last = time;
+            switch (kind) {
+                case MoveJournal.MOVE:
+                case MoveJournal.JOINED:
+                case MoveJournal.SET:
+                    stats.moves++;
+                    game.replay(kind, index, digit);
+                    if (digit == 0) {
+                        stats.erasures++;
+                    } else {
+                        if (solution != null && solution[index] != digit) {
+                            stats.wrong++;
+                        }
+                        if (game.isConflict(index / size, index % size)) {
+                            stats.conflicts++;
+                        }
+                    }
+                    break;
+                case MoveJournal.UNDO:
+                    stats.undos++;
+                    stats.undoneAt(size, index);
+                    game.replay(kind, index, digit);
+                    break;
+                case MoveJournal.REDO:
+                    stats.redos++;
+                    game.replay(kind, index, digit);
+                    break;
+                case MoveJournal.CLEAR:
+                    stats.clears++;
+                    game.replay(kind, index, digit);
+                    break;
+                default:
+                    break; // Written by a newer version
+            }
+        }
+        stats.games++;
+        stats.playMillis += last;
+        if (game.checkWin()) {
+            stats.won++;
+        }
+    }
+
+    /**
+     * Totals over replayed games. Think times are kept as a histogram of
+     * power-of-two buckets, so the totals take the same space for any number
+     * of games.
+     */
+    public static final class Stats {
+        private static final int BUCKETS = 32; // Bucket b holds think times below 2^b ms
+
+        long games;
+        long won;
+        long inconsistent;
+        long moves;
+        long erasures;
+        long wrong;
+        long conflicts;
+        long undos;
+        long redos;
+        long clears;
+        long playMillis;
+        private final long[] thinkBuckets = new long[BUCKETS];
+        private final Map<Integer, long[]> undosByCell = new TreeMap<>(); // By board size
+
+        // Counts the time between one change and the one before it
+        void think(int millis) {
+            thinkBuckets[Math.min(BUCKETS - 1, 32 - Integer.numberOfLeadingZeros(Math.max(0, millis)))]++;
+        }
+
+        void undoneAt(int size, int index) {
+            undosByCell.computeIfAbsent(size, s -> new long[s * s])[index]++;
+        }
+
+        /**
+         * Adds another set of totals into this one.
+         *
+         * @param other the totals to add
+         */
+        public void add(Stats other) {
+            games += other.games;
+            won += other.won;
+            inconsistent += other.inconsistent;
+            moves += other.moves;
+            erasures += other.erasures;
+            wrong += other.wrong;
+            conflicts += other.conflicts;
+            undos += other.undos;
+            redos += other.redos;
+            clears += other.clears;
+            playMillis += other.playMillis;
+            for (int b = 0; b < BUCKETS; b++) {
+                thinkBuckets[b] += other.thinkBuckets[b];
+            }
+            for (Map.Entry<Integer, long[]> entry : other.undosByCell.entrySet()) {
+                long[] cells = undosByCell.computeIfAbsent(entry.getKey(), s -> new long[s * s]);
+                for (int i = 0; i < cells.length; i++) {
+                    cells[i] += entry.getValue()[i];
+                }
+            }
+        }
+
+        /**
+         * Gets the number of games replayed to the end.
+         *
+         * @return the game count
+         */
+        public long getGames() {
+            return games;
+        }
+
+        /**
+         * Gets the number of replayed games that ended solved.
+         *
+         * @return the solved count
+         */
+        public long getWon() {
+            return won;
+        }
+
+        /**
+         * Gets the number of moves and direct cell writes replayed.
+         *
+         * @return the move count
+         */
+        public long getMoves() {
+            return moves;
+        }
+
+        /**
+         * Gets the number of entries that differ from the solution.
+         *
+         * @return the wrong entry count
+         */
+        public long getWrong() {
+            return wrong;
+        }
+
+        /**
+         * Gets the number of undos replayed.
+         *
+         * @return the undo count
+         */
+        public long getUndos() {
+            return undos;
+        }
+
+        /**
+         * Gets how often a cell's move was undone.
+         *
+         * @param size  the board size
+         * @param index the cell index
+         * @return the undo count of the cell
+         */
+        public long getUndos(int size, int index) {
+            long[] cells = undosByCell.get(size);
+            return cells == null ? 0 : cells[index];
+        }
+
+        /**
+         * Gets the number of games skipped because their changes did not fit
+         * their givens.
+         *
+         * @return the inconsistent count
+         */
+        public long getInconsistent() {
+            return inconsistent;
+        }
+
+        /**
+         * Gets a think-time percentile, to the power of two above it.
+         *
+         * @param fraction the percentile as a fraction, such as 0.9
+         * @return the think time in milliseconds
+         */
+        public long getThinkPercentile(double fraction) {
+            long total = 0;
+            for (long count : thinkBuckets) {
+                total += count;
+            }
+            long rank = (long) Math.ceil(fraction * total);
+            long seen = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                seen += thinkBuckets[b];
+                if (seen >= rank && thinkBuckets[b] > 0) {
+                    return (1L << b) - 1;
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Prints the totals, with the five most undone cells of each board size.
+         *
+         * @param out where to print
+         */
+        public void print(PrintStream out) {
+            long changes = moves + undos + redos + clears;
+            out.printf("%d games (%d solved, %d inconsistent), %d changes, %.1f s mean play time%n",
+                games, won, inconsistent, changes, games == 0 ? 0.0 : playMillis / 1000.0 / games);
+            out.printf("moves: %d entries, %d erasures, %.2f%% wrong, %.2f%% clashing%n",
+                moves - erasures, erasures, percent(wrong, moves - erasures), percent(conflicts, moves - erasures));
+            out.printf("undo: %d undos (%.2f per move), %d redos, %d clears%n",
+                undos, moves == 0 ? 0.0 : (double) undos / moves, redos, clears);
+            out.printf("think time per change: p50 < %d ms, p90 < %d ms, p99 < %d ms%n",
+                getThinkPercentile(0.5) + 1, getThinkPercentile(0.9) + 1, getThinkPercentile(0.99) + 1);
+            for (Map.Entry<Integer, long[]> entry : undosByCell.entrySet()) {
+                int size = entry.getKey();
+                long[] cells = entry.getValue().clone();
+                StringBuilder line = new StringBuilder("most undone cells on " + size + "x" + size + ":");
+                for (int n = 0; n < 5; n++) {
+                    int top = 0;
+                    for (int i = 1; i < cells.length; i++) {
+                        if (cells[i] > cells[top]) {
+                            top = i;
+                        }
+                    }
+                    if (cells[top] == 0) {
+                        break;
+                    }
+                    line.append(" (").append(top / size).append(',').append(top % size).append(")x").append(cells[top]);
+                    cells[top] = 0;
+                }
+                out.println(line);
+            }
+        }
+
+        private static double percent(long part, long whole) {
+            return whole == 0 ? 0.0 : 100.0 * part / whole;
+        }
+    }
+
+    /**
+     * A block of games, reused from chunk to chunk.
+     */
+    private static final class Chunk {
+        private final GameRecord[] records = new GameRecord[CHUNK_SIZE];
+        private int count;
+
+        // Reads the next chunk of games
+        void fill(MoveStream.Reader in) throws IOException {
+            count = 0;
+            while (count < CHUNK_SIZE) {
+                if (records[count] == null) {
+                    records[count] = new GameRecord();
+                }
+                if (!in.next(records[count])) {
+                    break;
+                }
+                count++;
+            }
+        }
+    }
+
+    /**
+     * Splits a range of a chunk in half until it is small enough to replay
+     * directly, and adds up the halves' totals.
+     */
+    private final class ReplayTask extends RecursiveTask<Stats> {
+        private static final long serialVersionUID = 1L;
+        private final transient Chunk chunk;
+        private final int from;
+        private final int to;
+
+        ReplayTask(Chunk chunk, int from, int to) {
+            this.chunk = chunk;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Stats compute() {
+            if (to - from <= LEAF_SIZE) {
+                Stats stats = new Stats();
+                for (int i = from; i < to; i++) {
+                    replay(chunk.records[i], stats);
+                }
+                return stats;
+            }
+            int mid = (from + to) >>> 1;
+            ReplayTask right = new ReplayTask(chunk, mid, to);
+            right.fork();
+            Stats stats = new ReplayTask(chunk, from, mid).compute();
+            stats.add(right.join());
+            return stats;
+        }
+    }
+
+    /**
+     * Replays move streams from the command line and prints the totals.
+     * Usage: ReplayEngine moves.dat [more.dat ...]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: java ReplayEngine <moves.dat> [more.dat ...]");
+            System.exit(1);
+        }
+        ReplayEngine engine = new ReplayEngine(ForkJoinPool.commonPool());
+        Stats stats = new Stats();
+        long start = System.nanoTime();
+        long total = 0;
+        for (String file : args) {
+            try (MoveStream.Reader in = MoveStream.open(Paths.get(file))) {
+                total += engine.run(in, stats);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        stats.print(System.out);
+        System.err.printf("%d games replayed in %.3f s, %.0f games/sec on %d threads%n",
+            total, seconds, total / seconds, ForkJoinPool.commonPool().getParallelism());
+    }
+}
@@ -0,0 +1,87 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+public class ReplayEngineTest {
+
+    @Test
+    public void testRecordsAndReplaysMoveStream() throws Exception {
+        Sudoku game = new Sudoku();
+        GameRecord record = GameRecord.start(game);
+        game.setRecorder(record);
+        byte[] solution = game.solutionCells();
+        int wrong = solution[5] % 9 + 1; // Any digit but the right one
+        game.makeMove("0", "5", Integer.toString(wrong));
+        game.undoLastMove();
+        game.redoLastMove();
+        game.makeMove("0", "5", Integer.toString(solution[5]));
+
+        assertEquals(4, record.getMoveCount());
+        Move undo = record.getMove(1);
+        assertEquals(Move.Kind.UNDO, undo.getKind());
+        assertEquals(5, undo.getCol());
+        assertEquals(Integer.toString(wrong), undo.getPreviousValue());
+        assertEquals("-", undo.getNewValue());
+        assertTrue(undo.getTime() >= 0, "Changes should be timed");
+
+        Path file = Files.createTempFile("moves", ".dat");
+        Files.delete(file);
+        for (int i = 0; i < 100; i++) {
+            MoveStream.save(file, record); // Appended session after session
+        }
+
+        ReplayEngine.Stats stats = new ReplayEngine.Stats();
+        try (MoveStream.Reader in = MoveStream.open(file)) {
+            assertEquals(100, new ReplayEngine(ForkJoinPool.commonPool()).run(in, stats));
+        }
+        assertEquals(100, stats.getGames());
+        assertEquals(0, stats.getInconsistent());
+        assertEquals(200, stats.getMoves(), "Two moves per game");
+        assertEquals(100, stats.getWrong(), "One wrong entry per game");
+        assertEquals(100, stats.getUndos());
+        assertEquals(100, stats.getUndos(9, 5), "Every undo was at cell (0,5)");
+        assertEquals(0, stats.getWon());
+    }
+
+    @Test
+    public void testRejectsCorruptChangeCount() throws Exception {
+        Path file = Files.createTempFile("moves", ".dat");
+        Files.delete(file);
+        GameRecord record = GameRecord.start(new Sudoku());
+        MoveStream.save(file, record);
+        MoveStream.save(file, record);
+        long count = (Files.size(file) - 6) / 2 + 6 - 4; // The first game has no changes, so its count ends it
+
+        corrupt(file, count, 1 << 20);
+        try (MoveStream.Reader in = MoveStream.open(file)) {
+            assertFalse(in.next(record), "A count running past the end of the file ends the stream");
+        }
+        corrupt(file, count, Integer.MAX_VALUE);
+        try (MoveStream.Reader in = MoveStream.open(file)) {
+            IOException e = assertThrows(IOException.class, () -> in.next(record));
+            assertTrue(e.getMessage().contains("Bad change count"), e.getMessage());
+        }
+        corrupt(file, count, -1);
+        try (MoveStream.Reader in = MoveStream.open(file)) {
+            assertThrows(IOException.class, () -> in.next(record));
+        }
+        corrupt(file, count, 0);
+        try (MoveStream.Reader in = MoveStream.open(file)) {
+            assertTrue(in.next(record));
+            assertTrue(in.next(record));
+            assertFalse(in.next(record));
+        }
+    }
+
+    private static void corrupt(Path file, long offset, int count) throws IOException {
+        try (RandomAccessFile out = new RandomAccessFile(file.toFile(), "rw")) {
+            out.seek(offset);
+            out.writeInt(count);
+        }
+    }
+}
@@ -0,0 +1,349 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * A binary save file holding any number of named save slots.
+ *
+ * The file starts with a magic number, a format version and the slot count. Each
+ * slot is a record made of its length, a CRC-32 of its body and the body: the slot
+ * name, the board size, the board and the solution packed at 4 bits per cell
+ * (8 bits for boards of 16 or more), the givens as a bitmap and the undo/redo
+ * history. The file is always written to a temporary sibling, forced to disk and
+ * then moved over the old one, so a crash mid-save leaves the previous file intact.
+ * Every write has its own temporary file, so threads may {@link #replace} the same
+ * file at once and the last one moved wins; {@link #save} rereads the other slots
+ * first, so saves into one shared file must still take turns.
+ * A record whose CRC does not match is reported rather than loaded.
+ */
+public class SaveFile {
+    private static final int MAGIC = 0x53444B53; // "SDKS"
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+
+    private final Path file;
+
+    /**
+     * Constructs a save file at the given path. Nothing is read or written until a
+     * slot is saved or loaded.
+     *
+     * @param file the save file
+     */
+    public SaveFile(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Gets the path of this save file.
+     *
+     * @return the path
+     */
+    public Path getPath() {
+        return file;
+    }
+
+    /**
+     * Saves a game into a slot, replacing any game already saved under that name.
+     *
+     * @param slot the slot name
+     * @param game the game to save
+     * @throws IOException if the file cannot be read or written
+     */
+    public void save(String slot, Sudoku game) throws IOException {
+        save(encode(slot, game));
+    }
+
+    /**
+     * Saves a record made by {@link #encode}, replacing any record of the same slot.
+     * Encoding first lets a game be captured on one thread and written on another.
+     *
+     * @param record the encoded record
+     * @throws IOException if the file cannot be read or written
+     */
+    void save(ByteBuffer record) throws IOException {
+        long start = EngineMetrics.start();
+        List<ByteBuffer> records = readRecords();
+        String slot = name(record);
+        int existing = find(records, slot);
+        if (existing >= 0) {
+            records.set(existing, record);
+        } else {
+            records.add(record);
+        }
+        writeRecords(records);
+        EngineMetrics.record(EngineMetrics.Op.SAVE, start);
+    }
+
+    /**
+     * Replaces the whole file with one record made by {@link #encode}, dropping
+     * every other slot.
+     *
+     * @param record the encoded record
+     * @throws IOException if the file cannot be written
+     */
+    void replace(ByteBuffer record) throws IOException {
+        List<ByteBuffer> records = new ArrayList<>(1);
+        records.add(record);
+        writeRecords(records);
+    }
+
+    /**
+     * Loads the game saved in a slot into an existing game.
+     *
+     * @param slot the slot name
+     * @param game the game to load into
+     * @return true if the slot was found and loaded, false if there is no such slot
+     * @throws IOException if the file cannot be read or the slot is corrupt
+     */
+    public boolean load(String slot, Sudoku game) throws IOException {
+        long start = EngineMetrics.start();
+        List<ByteBuffer> records = readRecords();
+        int index = find(records, slot);
+        if (index >= 0) {
+            decode(records.get(index), game);
+        }
+        EngineMetrics.record(EngineMetrics.Op.LOAD, start);
+        return index >= 0;
+    }
+
+    /**
+     * Removes a slot.
+     *
+     * @param slot the slot name
+     * @return true if the slot existed
+     * @throws IOException if the file cannot be read or written
+     */
+    public boolean delete(String slot) throws IOException {
+        List<ByteBuffer> records = readRecords();
+        int index = find(records, slot);
+        if (index < 0) {
+            return false;
+        }
+        records.remove(index);
+        writeRecords(records);
+        return true;
+    }
+
+    /**
+     * Lists the names of the saved slots, in the order they were first saved.
+     *
+     * @return the slot names
+     * @throws IOException if the file cannot be read
+     */
+    public List<String> slots() throws IOException {
+        List<String> names = new ArrayList<>();
+        for (ByteBuffer record : readRecords()) {
+            names.add(name(record));
+        }
+        return names;
+    }
+
+    /**
+     * Encodes a game as a single checksummed record.
+     *
+     * @param slot the slot name stored in the record
+     * @param game the game to encode
+     * @return the record, positioned at its start
+     */
+    static ByteBuffer encode(String slot, Sudoku game) {
+        byte[] name = slot.getBytes(StandardCharsets.UTF_8);
+        int size = game.getGameSize();
+        int cells = size * size;
+        int bits = bitsPerCell(size);
+        byte[] solution = game.solutionCells();
+        int[] history = game.history().entries();
+        int bodySize = 2 + name.length + 3 + packedLength(cells, bits) * (solution != null ? 2 : 1)
+            + (cells + 7) / 8 + 12 + 4 * history.length;
+
+        ByteBuffer record = ByteBuffer.allocate(8 + bodySize);
+        record.putInt(bodySize).putInt(0);
+        record.putShort((short) name.length).put(name);
+        record.put((byte) size).put((byte) bits).put((byte) (solution != null ? 1 : 0));
+        pack(game.boardCells(), bits, record);
+        if (solution != null) {
+            pack(solution, bits, record);
+        }
+        long[] givens = game.givenMask();
+        for (int i = 0; i < cells; i += 8) {
+            record.put((byte) (givens[i >>> 6] >>> (i & 63)));
+        }
+        record.putInt(game.history().getDepth()).putInt(history.length).putInt(game.history().redoSize());
+        for (int entry : history) {
+            record.putInt(entry);
+        }
+        record.putInt(4, crc(record.array(), 8, bodySize));
+        record.flip();
+        return record;
+    }
+
+    /**
+     * Decodes a record made by {@link #encode} into a game.
+     *
+     * @param record the record, positioned at its start
+     * @param game   the game to restore into
+     * @throws IOException if the record is corrupt
+     */
+    static void decode(ByteBuffer record, Sudoku game) throws IOException {
+        ByteBuffer in = record.duplicate();
+        int bodySize = in.getInt();
+        int expected = in.getInt();
+        if (crc(in.array(), in.arrayOffset() + in.position(), bodySize) != expected) {
+            throw new IOException("Save slot is corrupt (checksum mismatch)");
+        }
+        int nameLength = in.getShort() & 0xFFFF;
+        in.position(in.position() + nameLength);
+        int size = in.get() & 0xFF;
+        int bits = in.get();
+        boolean hasSolution = in.get() != 0;
+        int cells = size * size;
+        byte[] board = unpack(cells, bits, in);
+        byte[] solution = hasSolution ? unpack(cells, bits, in) : null;
+        long[] givens = new long[(cells + 63) >>> 6];
+        for (int i = 0; i < cells; i += 8) {
+            givens[i >>> 6] |= (in.get() & 0xFFL) << (i & 63);
+        }
+        int depth = in.getInt();
+        int[] history = new int[in.getInt()];
+        int redo = in.getInt();
+        for (int i = 0; i < history.length; i++) {
+            history[i] = in.getInt();
+        }
+        game.restore(size, board, solution, givens, new MoveLog(depth, history, redo));
+    }
+
+    // Reads every record in the file, or none if the file does not exist yet
+    private List<ByteBuffer> readRecords() throws IOException {
+        List<ByteBuffer> records = new ArrayList<>();
+        if (!Files.exists(file)) {
+            return records;
+        }
+        ByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            data = ByteBuffer.allocate((int) channel.size());
+            while (data.hasRemaining() && channel.read(data) >= 0) {
+                // Keep reading until the buffer is full
+            }
+        }
+        data.flip();
+        if (data.remaining() < HEADER_SIZE || data.getInt() != MAGIC) {
+            throw new IOException(file + " is not a Sudoku save file");
+        }
+        short version = data.getShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported save file version " + version);
+        }
+        int count = data.getShort() & 0xFFFF;
+        for (int i = 0; i < count; i++) {
+            if (data.remaining() < 8) {
+                throw new IOException(file + " is truncated");
+            }
+            int length = data.getInt(data.position());
+            if (length < 0 || data.remaining() < 8 + length) {
+                throw new IOException(file + " is truncated");
+            }
+            ByteBuffer record = data.slice(data.position(), 8 + length);
+            records.add(record);
+            data.position(data.position() + 8 + length);
+        }
+        return records;
+    }
+
+    // Writes all records to a temporary file and moves it over the save file
+    private void writeRecords(List<ByteBuffer> records) throws IOException {
+        if (records.size() > 0xFFFF) {
+            throw new IOException("Too many save slots");
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putShort(VERSION).putShort((short) records.size()).flip();
+        ByteBuffer[] buffers = new ByteBuffer[records.size() + 1];
+        buffers[0] = header;
+        for (int i = 0; i < records.size(); i++) {
+            buffers[i + 1] = records.get(i).duplicate();
+        }
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName() + ".", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                long total = 0;
+                for (ByteBuffer buffer : buffers) {
+                    total += buffer.remaining();
+                }
+                while (total > 0) {
+                    total -= channel.write(buffers);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp); // Only still there if the write or move failed
+        }
+    }
+
+    private static int find(List<ByteBuffer> records, String slot) {
+        for (int i = 0; i < records.size(); i++) {
+            if (name(records.get(i)).equals(slot)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String name(ByteBuffer record) {
+        int length = record.getShort(record.position() + 8) & 0xFFFF;
+        byte[] name = new byte[length];
+        record.get(record.position() + 10, name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    static int bitsPerCell(int size) {
+        return size < 16 ? 4 : 8;
+    }
+
+    static int packedLength(int cells, int bits) {
+        return bits == 4 ? (cells + 1) / 2 : cells;
+    }
+
+    // Writes cells two to a byte, high nibble first, or one per byte
+    static void pack(byte[] cells, int bits, ByteBuffer out) {
+        if (bits == 8) {
+            out.put(cells);
+            return;
+        }
+        for (int i = 0; i < cells.length; i += 2) {
+            int low = i + 1 < cells.length ? cells[i + 1] : 0;
+            out.put((byte) ((cells[i] << 4) | low));
+        }
+    }
+
+    static byte[] unpack(int count, int bits, ByteBuffer in) {
+        byte[] cells = new byte[count];
+        if (bits == 8) {
+            in.get(cells);
+            return cells;
+        }
+        for (int i = 0; i < count; i += 2) {
+            int packed = in.get() & 0xFF;
+            cells[i] = (byte) (packed >>> 4);
+            if (i + 1 < count) {
+                cells[i + 1] = (byte) (packed & 0x0F);
+            }
+        }
+        return cells;
+    }
+
+    private static int crc(byte[] data, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+        return (int) crc.getValue();
+    }
+}
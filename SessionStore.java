@@ -0,0 +1,465 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps many games in memory under a byte budget, moving the rest to disk.
+ *
+ * Resident games are kept in least-recently-used order. When their estimated
+ * size goes over the budget, or a game has not been used for the idle timeout,
+ * the oldest games are passivated: each is encoded as one save record (the same
+ * packed form {@link SaveFile} writes) into its own file in the spill directory
+ * and dropped from memory. The next access reads the record back, which takes
+ * tens of microseconds. Games in use are never passivated.
+ *
+ * The store lock only guards the maps. A game being written out or read back
+ * is locked by its own session lock instead, and its file is written or read
+ * after the store lock is released, so one game's disk I/O never holds up
+ * the other sessions.
+ *
+ * Callers use a game between {@link #acquire} and {@link #release}, which hold
+ * the session's lock, so one game is never used by two threads at once.
+ */
+public class SessionStore {
+    private final Path directory;
+    private final long budget;
+    private final long idleNanos;
+
+    private final ReentrantLock lock = new ReentrantLock(); // Guards resident and residentBytes
+    private final LinkedHashMap<String, Session> resident = new LinkedHashMap<>(256, 0.75f, true);
+    private final HashMap<String, Session> moving = new HashMap<>(); // Being written out, guarded by lock
+    private final Set<String> passivated = ConcurrentHashMap.newKeySet();
+    private long residentBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * A game checked out of the store.
+     */
+    public static final class Session {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final String id;
+        private final Sudoku game;
+        private long bytes;        // Estimate counted in residentBytes, guarded by the store lock
+        private volatile long lastUsed;   // System.nanoTime() of the last release
+        private volatile boolean evicted; // Set once passivated, so stale references retry
+
+        private Session(String id, Sudoku game, long bytes) {
+            this.id = id;
+            this.game = game;
+            this.bytes = bytes;
+            this.lastUsed = System.nanoTime();
+        }
+
+        /**
+         * Gets the session ID.
+         *
+         * @return the ID
+         */
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * Gets the game. Only use it between acquire and release.
+         *
+         * @return the game
+         */
+        public Sudoku getGame() {
+            return game;
+        }
+    }
+
+    /**
+     * Creates a store.
+     *
+     * @param directory   the directory passivated games are written to
+     * @param budget      the most bytes of games to keep in memory
+     * @param idleSeconds seconds without use after which a game is passivated
+     *                    by {@link #evictIdle()}
+     * @throws IOException if the directory cannot be created
+     */
+    public SessionStore(Path directory, long budget, long idleSeconds) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.budget = budget;
+        this.idleNanos = idleSeconds * 1_000_000_000L;
+    }
+
+    /**
+     * Adds a game under a new ID.
+     *
+     * @param game the game
+     * @return the session ID
+     */
+    public String add(Sudoku game) {
+        Session session = new Session(UUID.randomUUID().toString(), game, game.estimateBytes());
+        List<Session> spills;
+        lock.lock();
+        try {
+            resident.put(session.id, session);
+            residentBytes += session.bytes;
+            spills = trim();
+        } finally {
+            lock.unlock();
+        }
+        spill(spills);
+        return session.id;
+    }
+
+    /**
+     * Checks a game out, reading it back from disk if it was passivated, and
+     * locks it for the caller. Every successful call must be paired with
+     * {@link #release}.
+     *
+     * @param id the session ID
+     * @return the locked session, or null if there is no such session
+     * @throws UncheckedIOException if a passivated game cannot be read back;
+     *         the session is dropped
+     */
+    public Session acquire(String id) {
+        while (true) {
+            Session session;
+            boolean spilled;
+            lock.lock();
+            try {
+                session = resident.get(id);
+                spilled = session == null && passivated.remove(id);
+                if (session != null) {
+                    hits.incrementAndGet();
+                    if (session.lock.tryLock()) {
+                        return session;
+                    }
+                } else if (spilled) {
+                    misses.incrementAndGet();
+                    session = new Session(id, Sudoku.blank(), 0); // Filled in by activate
+                    session.lock.lock();
+                    resident.put(id, session);
+                } else {
+                    session = moving.get(id);
+                    if (session == null) {
+                        return null;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (spilled) {
+                return activate(session) ? session : null;
+            }
+            session.lock.lock(); // In use or being written out, so wait without blocking the store
+            if (!session.evicted) {
+                return session;
+            }
+            session.lock.unlock(); // Passivated before we got it, so read it back
+        }
+    }
+
+    /**
+     * Checks a game back in, unlocking it and passivating other games if it grew
+     * past the budget.
+     *
+     * @param session the session from {@link #acquire}
+     */
+    public void release(Session session) {
+        long bytes = session.game.estimateBytes();
+        session.lastUsed = System.nanoTime();
+        session.lock.unlock();
+        List<Session> spills = List.of();
+        lock.lock();
+        try {
+            if (!session.evicted && resident.containsKey(session.id)) {
+                residentBytes += bytes - session.bytes;
+                session.bytes = bytes;
+                spills = trim();
+            }
+        } finally {
+            lock.unlock();
+        }
+        spill(spills);
+    }
+
+    /**
+     * Removes a session from memory and disk.
+     *
+     * @param id the session ID
+     * @return true if the session existed
+     */
+    public boolean remove(String id) {
+        boolean spilled;
+        lock.lock();
+        try {
+            Session session = resident.remove(id);
+            if (session != null) {
+                residentBytes -= session.bytes;
+                session.evicted = true;
+                return true;
+            }
+            session = moving.remove(id);
+            if (session != null) {
+                session.evicted = true; // spill() deletes the file once written
+                return true;
+            }
+            spilled = passivated.remove(id);
+        } finally {
+            lock.unlock();
+        }
+        if (spilled) {
+            try {
+                Files.deleteIfExists(file(id));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return spilled;
+    }
+
+    /**
+     * Passivates every game that has not been used for the idle timeout.
+     *
+     * @return the number of games passivated
+     */
+    public int evictIdle() {
+        long cutoff = System.nanoTime() - idleNanos;
+        List<Session> spills = new ArrayList<>();
+        lock.lock();
+        try {
+            Iterator<Session> oldest = resident.values().iterator();
+            while (oldest.hasNext()) {
+                Session session = oldest.next();
+                if (session.lastUsed - cutoff > 0) {
+                    break; // The rest were used more recently
+                }
+                if (take(session)) {
+                    oldest.remove();
+                    spills.add(session);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return spill(spills);
+    }
+
+    /**
+     * Gets the number of sessions, in memory and on disk.
+     *
+     * @return the session count
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return resident.size() + moving.size() + passivated.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of sessions in memory.
+     *
+     * @return the resident count
+     */
+    public int getResidentCount() {
+        lock.lock();
+        try {
+            return resident.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the estimated bytes of the games in memory.
+     *
+     * @return the resident bytes
+     */
+    public long getResidentBytes() {
+        lock.lock();
+        try {
+            return residentBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of acquires that found the game in memory.
+     *
+     * @return the hit count
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of acquires that read the game back from disk.
+     *
+     * @return the miss count
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the number of games passivated to disk.
+     *
+     * @return the eviction count
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Takes least recently used games out of memory until the resident games
+     * fit the budget. Called with the store lock held; the caller passes the
+     * games to {@link #spill} once it has released the lock.
+     *
+     * @return the games taken
+     */
+    private List<Session> trim() {
+        List<Session> spills = List.of();
+        Iterator<Session> oldest = resident.values().iterator();
+        while (residentBytes > budget && oldest.hasNext()) {
+            Session session = oldest.next();
+            if (take(session)) {
+                oldest.remove();
+                if (spills.isEmpty()) {
+                    spills = new ArrayList<>();
+                }
+                spills.add(session);
+            }
+        }
+        return spills;
+    }
+
+    /**
+     * Locks a game and moves it from the resident games to those being written
+     * out. Called with the store lock held; the caller removes it from the
+     * resident map.
+     *
+     * @return false if the game is in use and was left alone
+     */
+    private boolean take(Session session) {
+        if (session.lock.isHeldByCurrentThread() || !session.lock.tryLock()) {
+            return false;
+        }
+        moving.put(session.id, session);
+        residentBytes -= session.bytes;
+        return true;
+    }
+
+    /**
+     * Writes games taken by {@link #take} to their spill files and unlocks
+     * them. Called without the store lock. A game that cannot be written is
+     * kept in memory rather than lost.
+     *
+     * @return the number of games passivated
+     */
+    private int spill(List<Session> sessions) {
+        int spilled = 0;
+        for (Session session : sessions) {
+            boolean written = false;
+            try {
+                ByteBuffer record = SaveFile.encode(session.id, session.game);
+                try (FileChannel channel = FileChannel.open(file(session.id), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    while (record.hasRemaining()) {
+                        channel.write(record);
+                    }
+                }
+                written = true;
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            boolean removed;
+            lock.lock();
+            try {
+                removed = !moving.remove(session.id, session);
+                if (removed) {
+                    session.evicted = true;
+                } else if (written) {
+                    passivated.add(session.id);
+                    session.evicted = true;
+                    evictions.incrementAndGet();
+                    spilled++;
+                } else {
+                    resident.put(session.id, session);
+                    residentBytes += session.bytes;
+                }
+            } finally {
+                lock.unlock();
+                session.lock.unlock();
+            }
+            if (removed && written) {
+                try {
+                    Files.deleteIfExists(file(session.id)); // Removed while it was being written
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        return spilled;
+    }
+
+    /**
+     * Reads a passivated game back into the empty session made for it, which
+     * the caller holds locked. Called without the store lock.
+     *
+     * @return false if the session was removed while it was read
+     * @throws UncheckedIOException if the game cannot be read back; the
+     *         session is dropped, and its file left for inspection
+     */
+    private boolean activate(Session session) {
+        Path file = file(session.id);
+        try {
+            SaveFile.decode(ByteBuffer.wrap(Files.readAllBytes(file)), session.game);
+            Files.delete(file);
+        } catch (IOException | RuntimeException e) { // A truncated file underflows before its checksum is read
+            lock.lock();
+            try {
+                resident.remove(session.id, session);
+                session.evicted = true; // Sends anyone waiting back to find it gone
+            } finally {
+                lock.unlock();
+                session.lock.unlock();
+            }
+            throw new UncheckedIOException("Could not read back session " + session.id,
+                e instanceof IOException ? (IOException) e : new IOException(e));
+        }
+        List<Session> spills;
+        lock.lock();
+        try {
+            if (resident.get(session.id) != session) {
+                session.lock.unlock(); // Removed meanwhile
+                return false;
+            }
+            session.bytes = session.game.estimateBytes();
+            residentBytes += session.bytes;
+            spills = trim(); // A game read back may push the others over the budget
+        } finally {
+            lock.unlock();
+        }
+        spill(spills);
+        return true;
+    }
+
+    private Path file(String id) {
+        return directory.resolve(id + ".ses");
+    }
+}
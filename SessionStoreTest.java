@@ -0,0 +1,65 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class SessionStoreTest {
+
+    @Test
+    public void testEvictsToDiskAndReadsBack() throws IOException {
+        Path dir = Files.createTempDirectory("sessions");
+        long oneGame = new Sudoku().estimateBytes();
+        SessionStore store = new SessionStore(dir, 3 * oneGame, 600);
+        String[] ids = new String[5];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = store.add(new Sudoku());
+        }
+        assertEquals(5, store.size(), "Every session should be kept");
+        assertEquals(3, store.getResidentCount(), "Only three games fit the budget");
+        assertEquals(2, store.getEvictions(), "The two oldest games should be on disk");
+
+        SessionStore.Session session = store.acquire(ids[0]);
+        session.getGame().makeMove("0", "5", "5");
+        store.release(session);
+        assertEquals(1, store.getMisses(), "The oldest game had to be read back");
+
+        for (int i = 1; i < ids.length; i++) {
+            store.release(store.acquire(ids[i])); // Push the first game out again
+        }
+        session = store.acquire(ids[0]);
+        assertEquals("5", session.getGame().getIndividualMove(0, 5), "The move should survive passivation");
+        assertTrue(session.getGame().undoLastMove(), "History should survive passivation");
+        assertTrue(session.getGame().isGiven(0, 0), "Givens should survive passivation");
+        store.release(session);
+
+        assertTrue(store.remove(ids[1]));
+        assertNull(store.acquire(ids[1]), "A removed session should be gone");
+        assertEquals(4, store.size());
+    }
+
+    @Test
+    public void testEvictIdleSkipsGamesInUse() throws IOException {
+        SessionStore store = new SessionStore(Files.createTempDirectory("sessions"), Long.MAX_VALUE, 0);
+        String idle = store.add(new Sudoku());
+        String busy = store.add(new Sudoku());
+        SessionStore.Session held = store.acquire(busy);
+        assertEquals(1, store.evictIdle(), "Only the game not in use should be passivated");
+        assertEquals(1, store.getResidentCount());
+        store.release(held);
+        assertNotNull(store.acquire(idle), "An idle game should come back on access");
+    }
+
+    @Test
+    public void testUnreadableSpillFileDropsSession() throws IOException {
+        Path dir = Files.createTempDirectory("sessions");
+        SessionStore store = new SessionStore(dir, Long.MAX_VALUE, 0);
+        String id = store.add(new Sudoku());
+        assertEquals(1, store.evictIdle());
+        Files.write(dir.resolve(id + ".ses"), new byte[] {1, 2, 3}); // Corrupt it
+        assertThrows(java.io.UncheckedIOException.class, () -> store.acquire(id), "The failure should be reported");
+        assertNull(store.acquire(id), "The session should be dropped rather than fail forever");
+        assertEquals(0, store.size());
+    }
+}
@@ -4,6 +4,8 @@ import java.io.Serializable;
  * Represents a slot in the Sudoku grid.
  * This class is used to store information about each cell in the grid,
  * including its position, state, and whether it is fillable by the user.
+ * Slots handed out by {@link Sudoku#getMoves()} are views onto the game's packed
+ * board rather than copies of it.
  */
 public class Slot implements Serializable {
     // Unique identifier for serialization
@@ -16,6 +18,8 @@ public class Slot implements Serializable {
     // State of the slot
     private String state;
     private boolean fillable;
+    // Game this slot is a view of, or null for a standalone slot
+    private transient Sudoku game;
 
     /**
      * Constructs a new Slot with the specified column, row, state, and fillable status.
@@ -32,6 +36,19 @@ public class Slot implements Serializable {
         this.fillable = fillable;
     }
 
+    /**
+     * Constructs a slot that views a cell of the given game.
+     *
+     * @param game the game whose board backs this slot
+     * @param col  the column index of the slot
+     * @param row  the row index of the slot
+     */
+    Slot(Sudoku game, int col, int row) {
+        this.col = col;
+        this.row = row;
+        this.game = game;
+    }
+
     /**
      * Gets the column index of this slot.
      *
@@ -56,7 +73,7 @@ public class Slot implements Serializable {
      * @return the state of the slot
      */
     public String getState() {
-        return state;
+        return game != null ? game.getIndividualMove(row, col) : state;
     }
 
     /**
@@ -65,7 +82,11 @@ public class Slot implements Serializable {
      * @param state the new state to set
      */
     public void setState(String state) {
-        this.state = state;
+        if (game != null) {
+            game.setState(row, col, state);
+        } else {
+            this.state = state;
+        }
     }
 
     /**
@@ -74,6 +95,6 @@ public class Slot implements Serializable {
      * @return true if the slot is fillable, false otherwise
      */
     public boolean getFillable() {
-        return fillable;
+        return game != null ? !game.isGiven(row, col) : fillable;
     }
 }
@@ -0,0 +1,177 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers solutions by the canonical form of their puzzle, so a puzzle that is
+ * a relabeled, permuted or transposed copy of one solved before is answered by
+ * mapping the stored solution back instead of searching again.
+ *
+ * Each puzzle is first looked up by its exact cells, which costs a hash of the
+ * bytes, so verbatim repeats are answered without canonicalizing. A puzzle not
+ * seen in that exact form is canonicalized and its solution kept under both
+ * keys, except on boards up to 9x9: those solve several times faster than they
+ * canonicalize, so a new one is simply solved and kept by its cells.
+ *
+ * The cache is safe to share between threads; each thread keeps its own
+ * {@link Canonicalizer} and {@link Solver}. Once either table holds its
+ * capacity of solutions it stops adding new ones, keeping the puzzles it saw first.
+ */
+public class SolveCache {
+    private static final byte[] NO_SOLUTION = new byte[0];
+    private static final int CANONICAL_MIN_SIZE = 16; // Smaller boards solve faster than they canonicalize
+
+    private final int capacity;
+    private final ConcurrentHashMap<Canonicalizer.Fingerprint, byte[]> solutions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Cells, byte[]> exact = new ConcurrentHashMap<>(); // Solutions in the puzzle's own layout
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final ThreadLocal<Canonicalizer> canonicalizers = new ThreadLocal<>();
+    private final ThreadLocal<Solver> solvers = new ThreadLocal<>();
+
+    /**
+     * Constructs a cache.
+     *
+     * @param capacity the most solutions to keep
+     */
+    public SolveCache(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Solves a puzzle, using a cached solution of an equivalent puzzle if there is one.
+     *
+     * @param size   the board size
+     * @param puzzle the puzzle in row-major order, 0 for an empty cell
+     * @param out    receives the solution; may be the puzzle array
+     * @return true if the puzzle has a solution
+     */
+    public boolean solve(int size, byte[] puzzle, byte[] out) {
+        Cells cells = new Cells(puzzle); // Wraps the puzzle until it is stored, as out may overwrite it
+        byte[] solution = exact.get(cells);
+        if (solution != null) {
+            hits.increment();
+            if (solution == NO_SOLUTION) {
+                return false;
+            }
+            System.arraycopy(solution, 0, out, 0, solution.length);
+            return true;
+        }
+        cells = cells.copy();
+        boolean solved;
+        if (size < CANONICAL_MIN_SIZE) {
+            misses.increment();
+            solved = solver(size).solve(puzzle, out);
+        } else {
+            solved = solveCanonical(size, puzzle, out);
+        }
+        if (exact.size() < capacity) {
+            exact.putIfAbsent(cells, solved ? out.clone() : NO_SOLUTION);
+        }
+        return solved;
+    }
+
+    // Solves a puzzle through the cache of canonical forms
+    private boolean solveCanonical(int size, byte[] puzzle, byte[] out) {
+        Canonicalizer canonicalizer = canonicalizer(size);
+        byte[] canonical = canonicalizer.canonicalize(puzzle);
+        Canonicalizer.Fingerprint key = canonicalizer.fingerprint();
+        byte[] solution = solutions.get(key);
+        if (solution != null) {
+            hits.increment();
+            if (solution == NO_SOLUTION) {
+                return false;
+            }
+            canonicalizer.fromCanonical(solution, out);
+            return true;
+        }
+        misses.increment();
+        boolean solved = solver(size).solve(puzzle, out); // The puzzle's own layout can solve much faster
+        if (solved) {
+            solution = new byte[canonical.length];
+            canonicalizer.toCanonical(out, solution);
+        }
+        if (solutions.size() < capacity) {
+            solutions.putIfAbsent(key, solved ? solution : NO_SOLUTION);
+        }
+        return solved;
+    }
+
+    /**
+     * Gets the number of puzzles held, counting each one as written.
+     *
+     * @return the cached count
+     */
+    public int size() {
+        return exact.size();
+    }
+
+    /**
+     * Gets the number of puzzles answered from the cache.
+     *
+     * @return the hit count
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of puzzles that had to be solved.
+     *
+     * @return the miss count
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * A puzzle's cells as a map key, hashed once.
+     */
+    private static final class Cells {
+        private final byte[] cells;
+        private final int hash;
+
+        Cells(byte[] cells) {
+            this(cells, Arrays.hashCode(cells));
+        }
+
+        private Cells(byte[] cells, int hash) {
+            this.cells = cells;
+            this.hash = hash;
+        }
+
+        // Copies the cells, so the key no longer shares the caller's array
+        Cells copy() {
+            return new Cells(cells.clone(), hash);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Cells && ((Cells) other).hash == hash
+                && Arrays.equals(((Cells) other).cells, cells);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private Canonicalizer canonicalizer(int size) {
+        Canonicalizer canonicalizer = canonicalizers.get();
+        if (canonicalizer == null || canonicalizer.getSize() != size) {
+            canonicalizer = new Canonicalizer(size);
+            canonicalizers.set(canonicalizer);
+        }
+        return canonicalizer;
+    }
+
+    private Solver solver(int size) {
+        Solver solver = solvers.get();
+        if (solver == null || solver.getSize() != size) {
+            solver = Solver.forSize(size);
+            solvers.set(solver);
+        }
+        return solver;
+    }
+}
@@ -0,0 +1,59 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class SolveCacheTest {
+
+    @Test
+    public void testAnswersRepeatsAndEquivalentCopies() {
+        byte[] puzzle = new byte[81];
+        new SudokuGenerator(9, 5).generate(SudokuGenerator.Difficulty.MEDIUM, puzzle, new byte[81]);
+        SolveCache cache = new SolveCache(16);
+        byte[] solution = new byte[81];
+        assertTrue(cache.solve(9, puzzle, solution));
+        byte[] again = new byte[81];
+        assertTrue(cache.solve(9, puzzle.clone(), again));
+        assertEquals(1, cache.getHits(), "A verbatim repeat should come from the cache");
+        assertArrayEquals(solution, again);
+        byte[] inPlace = transposed(puzzle, 9);
+        assertTrue(cache.solve(9, inPlace, inPlace));
+        assertEquals(1, cache.getHits(), "A 9x9 copy is solved, not canonicalized");
+        assertArrayEquals(transposed(solution, 9), inPlace, "The solution may be written over the puzzle");
+
+        // From 16x16 up an equivalent copy is answered from the cache too
+        byte[] big = new byte[256];
+        new SudokuGenerator(16, 3).generate(SudokuGenerator.Difficulty.EASY, big, new byte[256]);
+        byte[] bigCopy = transposed(big, 16);
+        assertTrue(cache.solve(16, big, new byte[256]));
+        byte[] bigSolution = new byte[256];
+        assertTrue(cache.solve(16, bigCopy, bigSolution));
+        assertEquals(2, cache.getHits(), "The equivalent 16x16 puzzle should come from the cache");
+        byte[] expected = new byte[256];
+        assertTrue(new SudokuSolver(16).solve(bigCopy, expected));
+        assertArrayEquals(expected, bigSolution, "The cached solution should map back to the copy's layout");
+        assertEquals(4, cache.size(), "Every puzzle is kept as written");
+    }
+
+    @Test
+    public void testRemembersUnsolvablePuzzles() {
+        byte[] clash = new byte[81];
+        clash[0] = 1;
+        clash[1] = 1;
+        SolveCache cache = new SolveCache(16);
+        assertFalse(cache.solve(9, clash, new byte[81]));
+        assertFalse(cache.solve(9, clash.clone(), new byte[81]));
+        assertEquals(1, cache.getHits(), "The repeat should be answered from the cache");
+        assertEquals(1, cache.getMisses());
+    }
+
+    // A grid transposed and relabeled d -> size + 1 - d, so equivalent but written differently
+    private static byte[] transposed(byte[] grid, int size) {
+        byte[] copy = new byte[grid.length];
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                int digit = grid[c * size + r];
+                copy[r * size + c] = (byte) (digit == 0 ? 0 : size + 1 - digit);
+            }
+        }
+        return copy;
+    }
+}
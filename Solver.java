@@ -0,0 +1,64 @@
+import java.util.Random;
+
+/**
+ * Solves Sudoku boards of one size. Boards up to 25x25 keep a unit's candidates
+ * in a single int; larger boards need candidate sets spread over several words,
+ * so {@link #forSize(int)} picks the implementation that fits. A solver reuses
+ * its buffers between calls, so keep one per thread rather than sharing it.
+ */
+public interface Solver {
+
+    /**
+     * Creates a solver for boards of the given size.
+     *
+     * @param size the board size, a perfect square
+     * @return a {@link SudokuSolver} up to 25x25, otherwise a {@link WideSudokuSolver}
+     */
+    static Solver forSize(int size) {
+        return size <= SudokuSolver.MAX_SIZE ? new SudokuSolver(size) : new WideSudokuSolver(size);
+    }
+
+    /**
+     * Gets the board size this solver handles.
+     *
+     * @return the number of rows and columns
+     */
+    int getSize();
+
+    /**
+     * Gets the number of guesses the last call needed. Zero means the board was
+     * solved by singles alone.
+     *
+     * @return the number of guesses
+     */
+    long getGuesses();
+
+    /**
+     * Makes guesses try candidates in random order instead of lowest digit first,
+     * so solving an empty or sparse board gives a random grid. Pass null to go
+     * back to the deterministic order.
+     *
+     * @param random the source of randomness, or null
+     */
+    void setRandom(Random random);
+
+    /**
+     * Solves a board. If the thread is interrupted the search stops early and
+     * reports no solution, so long solves can be cancelled.
+     *
+     * @param puzzle the board in row-major order, 0 for an empty cell
+     * @param out    receives the solution, may be the same array as the puzzle
+     * @return true if a solution was found
+     */
+    boolean solve(byte[] puzzle, byte[] out);
+
+    /**
+     * Counts the solutions of a board, stopping once the limit is reached.
+     * A limit of 2 is enough to tell whether a puzzle has a unique solution.
+     *
+     * @param puzzle the board in row-major order, 0 for an empty cell
+     * @param limit  the number of solutions after which to stop
+     * @return the number of solutions found, at most the limit
+     */
+    int countSolutions(byte[] puzzle, int limit);
+}
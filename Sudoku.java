@@ -1,206 +1,1129 @@
 import java.io.*;
+import java.nio.file.Paths;
 import java.util.*;
 
 /**
  * Represents a Sudoku game, including methods for making moves, checking for wins,
  * saving/loading game states, and undoing moves.
+ *
+ * The board is stored as packed primitives: one byte per cell holding the digit
+ * (0 for an empty cell) in row-major order, plus a bitmask marking the given cells.
+ * {@link Slot} objects are only created as views when old callers ask for them.
  */
 public class Sudoku implements Serializable {
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 2L;
+
+    /** Largest board side the packed byte representation supports. */
+    static final int MAX_SIZE = 121;
+
+    // Text for each digit, index 0 is the empty cell
+    private static final String[] SYMBOLS = new String[MAX_SIZE + 1];
+
+    static {
+        SYMBOLS[0] = "-";
+        for (int digit = 1; digit <= MAX_SIZE; digit++) {
+            SYMBOLS[digit] = Integer.toString(digit);
+        }
+    }
 
-    private transient Slot[][] populatedBoard; // Current game board
-    private transient Slot[][] defaultBoard;   // Initial board setup
-    private transient Slot[][] solutionBoard;  // Solution board 
     private int gameSize;                      // Size of the Sudoku board
-    private transient Stack<Move> moveHistory; // move history
+    private int boxSize;                       // Side of one box
+    private byte[] board;                      // Current digits, 0 = empty
+    private byte[] solution;                   // Solution digits
+    private long[] givens;                     // One bit per given cell
+    private int matched;                       // Cells that agree with the solution
+    private byte[] rowCount;                   // Occurrences of each digit per row
+    private byte[] colCount;                   // Occurrences of each digit per column
+    private byte[] boxCount;                   // Occurrences of each digit per box
+    private int conflicts;                     // Unit and digit pairs seen more than once
+    private int words;                         // Longs per candidate set
+    private long[] candidates;                 // Digits no unit of each cell holds yet
+    private MoveLog history;                   // Undo and redo history
+    private transient Slot[][] slotView;       // Lazily created view for old callers
+    private transient List<BoardListener> listeners; // Null until one is added
+    private transient MoveJournal journal;           // Null unless autosaving
+    private transient GameRecord recorder;           // Null unless recording
+    private String levelFile = "Levels/su1.txt"; // Default level file path
     private String solutionFile = "Solutions/su1solution.txt"; // Default solution file path
 
+    /** File that holds the save slots. */
+    public static final String SAVE_FILE = "Solutions/saveGame.dat";
+    public static final String JOURNAL_DIR = "Solutions/journal"; // Autosave snapshot and log
+    public static final String RECORDINGS_FILE = "Solutions/moves.dat"; // Played games, for ReplayEngine
+    static final String DEFAULT_SLOT = "default";
+
     /**
      * Constructs a new Sudoku game and initializes it by loading a level and solution.
      */
     public Sudoku() {
-        moveHistory = new Stack<>();
+        history = new MoveLog();
         try {
             initializeGame();
-        } catch (FileNotFoundException e) {
+        } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Constructs a game with no board, to be filled by {@link #restore}.
+     */
+    private Sudoku(MoveLog history) {
+        this.history = history;
+    }
+
+    /**
+     * Creates a game with no board yet, for loading a save into without reading
+     * a level file first.
+     *
+     * @return an empty game that must be restored before use
+     */
+    static Sudoku blank() {
+        return new Sudoku(new MoveLog());
+    }
+
+    /**
+     * Constructs a new Sudoku game from the given level file. The solution is read
+     * from the matching file in Solutions/ (so Levels/esu1.txt pairs with
+     * Solutions/esu1solution.txt), or worked out by the solver if there is none.
+     *
+     * @param levelFile the level file to load
+     * @throws IOException if the level file cannot be read
+     */
+    public Sudoku(String levelFile) throws IOException {
+        history = new MoveLog();
+        this.levelFile = levelFile;
+        String name = Paths.get(levelFile).getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String stem = dot > 0 ? name.substring(0, dot) : name;
+        java.nio.file.Path levels = Paths.get(levelFile).toAbsolutePath().getParent();
+        this.solutionFile = levels.resolveSibling("Solutions").resolve(stem + "solution.txt").toString();
+        initializeGame();
+    }
+
+    /**
+     * Constructs a new Sudoku game from a board already in memory.
+     *
+     * @param size     the board size
+     * @param puzzle   the givens in row-major order, 0 for an empty cell
+     * @param solution the solution, or null to work it out with the solver
+     */
+    public Sudoku(int size, byte[] puzzle, byte[] solution) {
+        history = new MoveLog();
+        if (puzzle.length != size * size || (solution != null && solution.length != puzzle.length)) {
+            throw new IllegalArgumentException("Board arrays do not match size " + size);
+        }
+        setUp(size, puzzle, solution != null ? solution.clone() : null);
+    }
+
+    /**
+     * Constructs a new Sudoku game from a freshly generated puzzle instead of the
+     * level file.
+     *
+     * @param generator the generator to draw the puzzle from
+     * @param clues     the number of clues wanted
+     */
+    public Sudoku(SudokuGenerator generator, int clues) {
+        history = new MoveLog();
+        int size = generator.getSize();
+        byte[] puzzle = new byte[size * size];
+        byte[] solved = new byte[size * size];
+        generator.generate(clues, puzzle, solved);
+        setUp(size, puzzle, solved);
+    }
+
+    /**
+     * Constructs a new Sudoku game from a freshly generated puzzle of the given
+     * difficulty.
+     *
+     * @param generator  the generator to draw the puzzle from
+     * @param difficulty the difficulty tier
+     */
+    public Sudoku(SudokuGenerator generator, SudokuGenerator.Difficulty difficulty) {
+        this(generator, difficulty.clues(generator.getSize()));
+    }
+
+    /**
+     * Sets up the board from a puzzle whose filled cells are the givens.
+     *
+     * @param size   the board size
+     * @param puzzle the givens, 0 for an empty cell
+     * @param solved the solution, or null to work it out
+     */
+    private void setUp(int size, byte[] puzzle, byte[] solved) {
+        allocate(size);
+        for (int index = 0; index < puzzle.length; index++) {
+            if (puzzle[index] != 0) {
+                board[index] = puzzle[index];
+                givens[index >>> 6] |= 1L << index;
+            }
+        }
+        if (solved != null) {
+            solution = solved;
+        } else {
+            solveGivens();
+        }
+        recount();
+    }
+
     /**
      * Initializes the game board and loads the initial setup and solution from files.
      *
-     * @throws FileNotFoundException if the level or solution file is not found
+     * @throws IOException if the level or solution file cannot be read
      */
-    private void initializeGame() throws FileNotFoundException {
-        Scanner reader = new Scanner(new File("Levels/su1.txt")); // Load level data
-        gameSize = Integer.parseInt(reader.next()); // Read the size of the board
-        populatedBoard = new Slot[gameSize][gameSize];
-        defaultBoard = new Slot[gameSize][gameSize];
-        solutionBoard = new Slot[gameSize][gameSize];
+    private void initializeGame() throws IOException {
+        try (PuzzleReader reader = PuzzleReader.open(Paths.get(levelFile))) { // Load level data
+            if (!reader.next()) {
+                throw new IOException("Level file holds no puzzle");
+            }
+            byte[] puzzle = reader.grid();
+            int size = reader.size();
+
+            // Load solution, or work it out when the level has no solution file
+            byte[] solved = null;
+            if (new File(solutionFile).exists()) {
+                try (PuzzleReader solutionReader = PuzzleReader.open(Paths.get(solutionFile), size)) {
+                    if (solutionReader.next() && solutionReader.size() == size) {
+                        solved = solutionReader.grid().clone();
+                    }
+                }
+            }
+            setUp(size, puzzle, solved);
+        }
+    }
 
-        // Initialize the board
-        for (int row = 0; row < gameSize; row++) {
-            for (int col = 0; col < gameSize; col++) {
-                populatedBoard[row][col] = new Slot(col, row, "-", true);
-                defaultBoard[row][col] = new Slot(col, row, "-", true);
+    /**
+     * Fills the solution by solving the given cells of the board.
+     */
+    private void solveGivens() {
+        byte[] puzzle = new byte[board.length];
+        for (int index = 0; index < board.length; index++) {
+            if ((givens[index >>> 6] & (1L << index)) != 0) {
+                puzzle[index] = board[index];
+            }
+        }
+        solution = new byte[board.length];
+        if (!Solver.forSize(gameSize).solve(puzzle, solution)) {
+            solution = null; // No solution, so the game cannot be won
+        }
+    }
+
+    /**
+     * Allocates empty packed storage for a board of the given size.
+     *
+     * @param size the number of rows and columns
+     */
+    private void allocate(int size) {
+        int box = (int) Math.round(Math.sqrt(size));
+        if (size < 1 || size > MAX_SIZE || box * box != size) {
+            throw new IllegalArgumentException("Unsupported board size: " + size);
+        }
+        gameSize = size;
+        boxSize = box;
+        board = new byte[size * size];
+        givens = new long[(size * size + 63) >>> 6];
+        solution = null;
+        slotView = null;
+        matched = 0;
+        rowCount = new byte[size * size];
+        colCount = new byte[size * size];
+        boxCount = new byte[size * size];
+        conflicts = 0;
+        words = (size + 63) >>> 6;
+        candidates = new long[size * size * words];
+    }
+
+    /**
+     * Writes one cell, keeps the solution match count and the digit counters
+     * current and tells the listeners. Every change to the board goes through here.
+     *
+     * @param index the cell index in row-major order
+     * @param digit the new digit, 0 for empty
+     */
+    private void setCell(int index, int digit) {
+        int old = board[index];
+        if (old == digit) {
+            return;
+        }
+        if (solution != null) {
+            int target = solution[index];
+            matched += (digit == target ? 1 : 0) - (old == target ? 1 : 0);
+        }
+        if (old != 0) {
+            track(index, old, -1);
+        }
+        if (digit != 0) {
+            track(index, digit, 1);
+        }
+        board[index] = (byte) digit;
+        if (listeners != null) {
+            int row = index / gameSize;
+            for (BoardListener listener : listeners) {
+                listener.cellChanged(row, index - row * gameSize, digit);
             }
         }
+    }
+
+    /**
+     * Adjusts the row, column and box counters of a digit for one cell.
+     */
+    private void count(int index, int digit, int delta) {
+        int row = index / gameSize;
+        int col = index - row * gameSize;
+        int box = (row / boxSize) * boxSize + col / boxSize;
+        int d = digit - 1;
+        conflicts += bump(rowCount, row * gameSize + d, delta)
+            + bump(colCount, col * gameSize + d, delta)
+            + bump(boxCount, box * gameSize + d, delta);
+    }
 
-        // Load initial moves
-        while (reader.hasNext()) {
-            int row = Integer.parseInt(reader.next());
-            int col = Integer.parseInt(reader.next());
-            String move = reader.next();
-            populatedBoard[row][col] = new Slot(col, row, move, move.equals("-"));
-            defaultBoard[row][col] = new Slot(col, row, move, move.equals("-"));
+    /**
+     * Adjusts the counters like {@link #count}, and when a unit gains its first
+     * copy of the digit or loses its last one, refreshes the digit's candidate
+     * bit in the cells of that unit. Other moves leave the candidates alone.
+     */
+    private void track(int index, int digit, int delta) {
+        count(index, digit, delta);
+        int row = index / gameSize;
+        int col = index - row * gameSize;
+        int box = (row / boxSize) * boxSize + col / boxSize;
+        int d = digit - 1;
+        int edge = delta > 0 ? 1 : 0; // Count a unit has right after a 0/1 transition
+        if (rowCount[row * gameSize + d] == edge) {
+            refreshCandidates(row * gameSize, 1, d);
+        }
+        if (colCount[col * gameSize + d] == edge) {
+            refreshCandidates(col, gameSize, d);
         }
-        reader.close();
+        if (boxCount[box * gameSize + d] == edge) {
+            for (int r = 0; r < boxSize; r++) {
+                refreshCandidates(((box / boxSize) * boxSize + r) * gameSize + (box % boxSize) * boxSize, 1,
+                    d, boxSize);
+            }
+        }
+    }
+
+    private void refreshCandidates(int first, int step, int d) {
+        refreshCandidates(first, step, d, gameSize);
+    }
 
-        // Load solution
-        try (Scanner solutionScanner = new Scanner(new File(solutionFile))) {
-            while (solutionScanner.hasNext()) {
-                int row = Integer.parseInt(solutionScanner.next());
-                int col = Integer.parseInt(solutionScanner.next());
-                String move = solutionScanner.next();
-                solutionBoard[row][col] = new Slot(col, row, move, false);
+    /**
+     * Recomputes one digit's candidate bit for a run of cells.
+     *
+     * @param first the index of the first cell
+     * @param step  the index distance between cells
+     * @param d     the digit minus one
+     * @param n     the number of cells
+     */
+    private void refreshCandidates(int first, int step, int d, int n) {
+        int word = d >>> 6;
+        long bit = 1L << d;
+        for (int k = 0, index = first; k < n; k++, index += step) {
+            int row = index / gameSize;
+            int col = index - row * gameSize;
+            int box = (row / boxSize) * boxSize + col / boxSize;
+            int slot = index * words + word;
+            if ((rowCount[row * gameSize + d] | colCount[col * gameSize + d] | boxCount[box * gameSize + d]) == 0) {
+                candidates[slot] |= bit;
+            } else {
+                candidates[slot] &= ~bit;
             }
         }
     }
 
-   
+    /**
+     * Changes one counter and returns how the number of duplicated digits changed.
+     */
+    private static int bump(byte[] counts, int slot, int delta) {
+        int before = counts[slot];
+        int after = before + delta;
+        counts[slot] = (byte) after;
+        return (after > 1 ? 1 : 0) - (before > 1 ? 1 : 0);
+    }
+
+    /**
+     * Rebuilds the solution match count, the digit counters and the candidate
+     * sets after the board or the solution was replaced wholesale.
+     */
+    private void recount() {
+        matched = 0;
+        conflicts = 0;
+        Arrays.fill(rowCount, (byte) 0);
+        Arrays.fill(colCount, (byte) 0);
+        Arrays.fill(boxCount, (byte) 0);
+        for (int index = 0; index < board.length; index++) {
+            if (solution != null && board[index] == solution[index]) {
+                matched++;
+            }
+            if (board[index] != 0) {
+                count(index, board[index], 1);
+            }
+        }
+        for (int d = 0; d < gameSize; d++) {
+            for (int row = 0; row < gameSize; row++) {
+                refreshCandidates(row * gameSize, 1, d);
+            }
+        }
+    }
+
+    /**
+     * Parses a cell token into a digit without allocating.
+     *
+     * @param token the token, "-" or "" for an empty cell
+     * @param size  the board size, which bounds the digit
+     * @return the digit, 0 for empty, or -1 if the token is not a valid digit
+     */
+    static int parseDigit(String token, int size) {
+        int length = token.length();
+        if (length == 0 || (length == 1 && token.charAt(0) == '-')) {
+            return 0;
+        }
+        int value = 0;
+        for (int i = 0; i < length; i++) {
+            int d = token.charAt(i) - '0';
+            if (d < 0 || d > 9 || value > size) {
+                return -1;
+            }
+            value = value * 10 + d;
+        }
+        return value >= 1 && value <= size ? value : -1;
+    }
+
+    /**
+     * Parses a row or column token without allocating.
+     *
+     * @param token the token
+     * @param size  the board size, which bounds the index
+     * @return the index, or -1 if the token is not a number below the size
+     */
+    static int parseIndex(String token, int size) {
+        int length = token.length();
+        if (length == 0) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = 0; i < length; i++) {
+            int d = token.charAt(i) - '0';
+            if (d < 0 || d > 9 || value >= size) {
+                return -1;
+            }
+            value = value * 10 + d;
+        }
+        return value < size ? value : -1;
+    }
+
+    /**
+     * Returns the display text for a digit, shared across all games.
+     *
+     * @param digit the digit, 0 for an empty cell
+     * @return the digit as text, or "-" for an empty cell
+     */
+    static String symbol(int digit) {
+        return SYMBOLS[digit];
+    }
+
+    /**
+     * Returns the board as a grid of slots. The slots are live views of this game,
+     * so they are created once and always reflect the current board.
+     *
+     * @return the board as slots
+     */
     public Slot[][] getMoves() {
-        return populatedBoard;
+        if (slotView == null || slotView.length != gameSize) {
+            Slot[][] view = new Slot[gameSize][gameSize];
+            for (int row = 0; row < gameSize; row++) {
+                for (int col = 0; col < gameSize; col++) {
+                    view[row][col] = new Slot(this, col, row);
+                }
+            }
+            slotView = view;
+        }
+        return slotView;
+    }
+
+    /**
+     * Gets the digit in a cell without allocating.
+     *
+     * @param row the row index
+     * @param col the column index
+     * @return the digit, 0 for an empty cell
+     */
+    public int getDigit(int row, int col) {
+        return board[row * gameSize + col];
     }
 
-    
     public String getIndividualMove(int row, int col) {
-        if (populatedBoard == null) {
-            throw new IllegalStateException("populatedBoard is not initialized.");
+        if (board == null) {
+            throw new IllegalStateException("board is not initialized.");
         }
-        return populatedBoard[row][col].getState();
+        return SYMBOLS[board[row * gameSize + col]];
     }
 
-    
+
     public int getGameSize() {
         return gameSize;
     }
 
-   
+    /**
+     * Gets the side of one box, the square root of the game size.
+     *
+     * @return the box size
+     */
+    public int getBoxSize() {
+        return boxSize;
+    }
+
+    /**
+     * Registers a listener to be told about every change to the board.
+     *
+     * @param listener the listener
+     */
+    public void addBoardListener(BoardListener listener) {
+        if (listeners == null) {
+            listeners = new ArrayList<>(2);
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener.
+     *
+     * @param listener the listener
+     */
+    public void removeBoardListener(BoardListener listener) {
+        if (listeners != null && listeners.remove(listener) && listeners.isEmpty()) {
+            listeners = null;
+        }
+    }
+
+    /**
+     * Checks whether a cell was given by the level and so cannot be changed.
+     *
+     * @param row the row index
+     * @param col the column index
+     * @return true if the cell is a given
+     */
+    public boolean isGiven(int row, int col) {
+        int index = row * gameSize + col;
+        return (givens[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Gets the fingerprint of the level's canonical form, which is the same for
+     * every level equal to this one up to relabeling, row and column swaps
+     * within bands and stacks, band and stack swaps, and transposition.
+     *
+     * @return the fingerprint of the givens
+     */
+    public Canonicalizer.Fingerprint getFingerprint() {
+        byte[] level = new byte[board.length];
+        for (int index = 0; index < level.length; index++) {
+            if ((givens[index >>> 6] & (1L << index)) != 0) {
+                level[index] = board[index];
+            }
+        }
+        Canonicalizer canonicalizer = new Canonicalizer(gameSize);
+        canonicalizer.canonicalize(level);
+        return canonicalizer.fingerprint();
+    }
+
+    /**
+     * Checks whether the digit in a cell also appears elsewhere in its row,
+     * column or box.
+     *
+     * @param row the row index
+     * @param col the column index
+     * @return true if the cell is part of a conflict
+     */
+    public boolean isConflict(int row, int col) {
+        int d = board[row * gameSize + col] - 1;
+        if (d < 0) {
+            return false;
+        }
+        int box = (row / boxSize) * boxSize + col / boxSize;
+        return rowCount[row * gameSize + d] > 1 || colCount[col * gameSize + d] > 1
+            || boxCount[box * gameSize + d] > 1;
+    }
+
+    /**
+     * Checks whether putting a digit in a cell would repeat a digit already in its
+     * row, column or box. The cell's own current digit is not counted.
+     *
+     * @param row   the row index
+     * @param col   the column index
+     * @param digit the digit to try
+     * @return true if the move would create a conflict
+     */
+    public boolean wouldConflict(int row, int col, int digit) {
+        if (digit < 1 || digit > gameSize) {
+            return false;
+        }
+        int d = digit - 1;
+        int own = board[row * gameSize + col] == digit ? 1 : 0;
+        int box = (row / boxSize) * boxSize + col / boxSize;
+        return rowCount[row * gameSize + d] > own || colCount[col * gameSize + d] > own
+            || boxCount[box * gameSize + d] > own;
+    }
+
+    /**
+     * Checks whether any digit is repeated in a row, column or box.
+     *
+     * @return true if the board has conflicts
+     */
+    public boolean hasConflicts() {
+        return conflicts > 0;
+    }
+
+    /**
+     * Lists the cells that are part of a conflict.
+     *
+     * @return the cell indices in row-major order, empty when there are no conflicts
+     */
+    public int[] getConflictingCells() {
+        if (conflicts == 0) {
+            return new int[0];
+        }
+        int[] found = new int[board.length];
+        int size = 0;
+        for (int index = 0; index < board.length; index++) {
+            if (isConflict(index / gameSize, index % gameSize)) {
+                found[size++] = index;
+            }
+        }
+        return Arrays.copyOf(found, size);
+    }
+
+    /**
+     * Checks whether a digit is still possible in a cell, that is whether no cell
+     * in its row, column or box holds it.
+     *
+     * @param row   the row index
+     * @param col   the column index
+     * @param digit the digit
+     * @return true if the digit is a candidate
+     */
+    public boolean isCandidate(int row, int col, int digit) {
+        if (digit < 1 || digit > gameSize) {
+            return false;
+        }
+        int d = digit - 1;
+        return (candidates[(row * gameSize + col) * words + (d >>> 6)] & (1L << d)) != 0;
+    }
+
+    /**
+     * Finds the next logical step from the current board. A naked single (an empty
+     * cell with one candidate) is preferred, then a hidden single (a digit with
+     * one place left in a row, column or box). If neither exists, the empty cell
+     * with the fewest candidates is filled from the solution. The candidate sets
+     * are kept up to date as moves are made, so this only scans them.
+     *
+     * @return the hint, or null if the board is full or nothing can be suggested
+     */
+    public Hint getHint() {
+        long start = EngineMetrics.start();
+        try {
+            int fewest = -1;
+            int fewestCount = Integer.MAX_VALUE;
+            for (int index = 0; index < board.length; index++) {
+                if (board[index] != 0) {
+                    continue;
+                }
+                int count = 0;
+                int digit = 0;
+                for (int w = 0, base = index * words; w < words; w++) {
+                    long set = candidates[base + w];
+                    if (set != 0) {
+                        count += Long.bitCount(set);
+                        digit = (w << 6) + Long.numberOfTrailingZeros(set) + 1;
+                    }
+                }
+                if (count == 1) {
+                    return new Hint(index / gameSize, index % gameSize, digit, DifficultyRater.Technique.NAKED_SINGLE);
+                }
+                if (count < fewestCount) {
+                    fewest = index;
+                    fewestCount = count;
+                }
+            }
+            if (fewest < 0) {
+                return null; // No empty cells
+            }
+            Hint hidden = findHiddenSingle();
+            if (hidden != null) {
+                return hidden;
+            }
+            if (solution == null) {
+                return null;
+            }
+            return new Hint(fewest / gameSize, fewest % gameSize, solution[fewest], DifficultyRater.Technique.GUESS);
+        } finally {
+            EngineMetrics.record(EngineMetrics.Op.HINT, start);
+        }
+    }
+
+    /**
+     * Looks for a digit with exactly one candidate cell in a row, column or box.
+     */
+    private Hint findHiddenSingle() {
+        long[] once = new long[words];
+        long[] twice = new long[words];
+        for (int unit = 0; unit < 3 * gameSize; unit++) {
+            Arrays.fill(once, 0);
+            Arrays.fill(twice, 0);
+            for (int k = 0; k < gameSize; k++) {
+                int index = unitCell(unit, k);
+                if (board[index] == 0) {
+                    for (int w = 0; w < words; w++) {
+                        long set = candidates[index * words + w];
+                        twice[w] |= once[w] & set;
+                        once[w] |= set;
+                    }
+                }
+            }
+            for (int w = 0; w < words; w++) {
+                long hidden = once[w] & ~twice[w];
+                if (hidden != 0) {
+                    int d = (w << 6) + Long.numberOfTrailingZeros(hidden);
+                    for (int k = 0; k < gameSize; k++) {
+                        int index = unitCell(unit, k);
+                        if (board[index] == 0 && (candidates[index * words + w] & (1L << d)) != 0) {
+                            return new Hint(index / gameSize, index % gameSize, d + 1,
+                                DifficultyRater.Technique.HIDDEN_SINGLE);
+                        }
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the index of the k-th cell of a unit: rows first, then columns, then boxes.
+     */
+    private int unitCell(int unit, int k) {
+        if (unit < gameSize) {
+            return unit * gameSize + k;
+        } else if (unit < 2 * gameSize) {
+            return k * gameSize + unit - gameSize;
+        }
+        int box = unit - 2 * gameSize;
+        return ((box / boxSize) * boxSize + k / boxSize) * gameSize + (box % boxSize) * boxSize + k % boxSize;
+    }
+
+    /**
+     * Writes a cell directly, bypassing move history. Used by {@link Slot} views.
+     *
+     * @param row   the row index
+     * @param col   the column index
+     * @param state the new state, "-" for empty
+     */
+    void setState(int row, int col, String state) {
+        int digit = parseDigit(state, gameSize);
+        if (digit >= 0) {
+            int index = row * gameSize + col;
+            int old = board[index];
+            setCell(index, digit);
+            changed(MoveJournal.SET, index, old, digit);
+        }
+    }
+
+
+    /**
+     * Makes a move from text, as typed by a player: the row and column as
+     * numbers from 0 and the digit from 1, or "-" or "" to erase. Parses the
+     * text and hands it to {@link #makeMove(int, int, int)}.
+     *
+     * @param row    the row index
+     * @param col    the column index
+     * @param number the digit
+     * @return true if the move was made, false if the text is not a valid move
+     *         or the cell is a given
+     */
     public boolean makeMove(String row, String col, String number) {
-        int enteredRow = Integer.parseInt(row);
-        int enteredCol = Integer.parseInt(col);
-        if (populatedBoard[enteredRow][enteredCol].getFillable()) {
-            saveState(); // Save the current state before making the move
-            moveHistory.push(new Move(enteredRow, enteredCol, populatedBoard[enteredRow][enteredCol].getState()));
-            populatedBoard[enteredRow][enteredCol].setState(number);
+        int enteredRow = parseIndex(row, gameSize);
+        int enteredCol = parseIndex(col, gameSize);
+        return enteredRow >= 0 && enteredCol >= 0 && makeMove(enteredRow, enteredCol, parseDigit(number, gameSize));
+    }
+
+    /**
+     * Makes a move without parsing or allocating.
+     *
+     * @param row   the row index
+     * @param col   the column index
+     * @param digit the digit, or 0 to erase
+     * @return true if the move was made, false if it is off the board or out
+     *         of range or the cell is a given
+     */
+    public boolean makeMove(int row, int col, int digit) {
+        return row >= 0 && row < gameSize && col >= 0 && col < gameSize && makeMove(row * gameSize + col, digit);
+    }
+
+    /**
+     * Makes a move on a cell given by its index in row-major order,
+     * row * size + col, without parsing or allocating.
+     *
+     * @param index the cell index
+     * @param digit the digit, or 0 to erase
+     * @return true if the move was made, false if it is off the board or out
+     *         of range or the cell is a given
+     */
+    public boolean makeMove(int index, int digit) {
+        long start = EngineMetrics.start();
+        try {
+            if (index < 0 || index >= board.length || digit < 0 || digit > gameSize
+                    || (givens[index >>> 6] & (1L << index)) != 0) {
+                return false;
+            }
+            int old = board[index];
+            history.record(index, old, digit);
+            setCell(index, digit);
+            changed(MoveJournal.MOVE, index, old, digit);
             return true;
-        } else {
-            return false;
+        } finally {
+            EngineMetrics.record(EngineMetrics.Op.MOVE, start);
         }
     }
 
-    
-    public boolean checkWin() {
-        for (int i = 0; i < gameSize; i++) {
-            for (int c = 0; c < gameSize; c++) {
-                if (!populatedBoard[i][c].getState().equals(solutionBoard[i][c].getState())) {
+
+    /**
+     * Makes a batch of moves as one step, as bots and imports do: either every
+     * move is made or, if any is off the board, out of range or on a given,
+     * none is. The batch is kept in the history as one unit, so a single undo
+     * or redo covers all of it, and is autosaved whole. Listeners hear about
+     * each cell; check for a win or conflicts once afterwards.
+     *
+     * @param moves the moves in order, each packed by {@link MoveLog#encode}
+     *              from the cell index and new digit; the old digit is ignored
+     * @return true if the moves were made, false if none were, including
+     *         when the batch is longer than the history depth and so could
+     *         not be undone as one step
+     */
+    public boolean makeMoves(int[] moves) {
+        long start = EngineMetrics.start();
+        try {
+            if (moves.length > history.getDepth()) {
+                return false;
+            }
+            for (int move : moves) {
+                int index = MoveLog.index(move);
+                if (move < 0 || index >= board.length || MoveLog.newDigit(move) > gameSize
+                        || (givens[index >>> 6] & (1L << index)) != 0) {
                     return false;
                 }
             }
+            for (int i = 0; i < moves.length; i++) {
+                int index = MoveLog.index(moves[i]);
+                int digit = MoveLog.newDigit(moves[i]);
+                int old = board[index];
+                history.record(index, old, digit, i > 0);
+                setCell(index, digit);
+                if (recorder != null) {
+                    recorder.add(i > 0 ? MoveJournal.JOINED : MoveJournal.MOVE, index, old, digit);
+                }
+            }
+            if (journal != null && moves.length > 0) {
+                journal.appendBatch(this, moves);
+            }
+            return true;
+        } finally {
+            EngineMetrics.record(EngineMetrics.Op.MOVE_BATCH, start);
         }
-        return true;
     }
 
     /**
-     * Saves the current state of the board
+     * Checks whether every cell matches the solution. The number of matching cells
+     * is kept up to date as cells change, so this is a single comparison.
+     *
+     * @return true if the board is solved
+     */
+    public boolean checkWin() {
+        long start = EngineMetrics.start();
+        boolean won = solution != null && matched == board.length;
+        EngineMetrics.record(EngineMetrics.Op.CHECK_WIN, start);
+        return won;
+    }
+
+    /**
+     * Undoes the last move made, or the whole of the last batch of moves.
      */
-    private void saveState() {
-        Slot[][] boardCopy = new Slot[gameSize][gameSize];
-        for (int i = 0; i < gameSize; i++) {
-            for (int j = 0; j < gameSize; j++) {
-                Slot original = populatedBoard[i][j];
-                boardCopy[i][j] = new Slot(original.getCol(), original.getRow(), original.getState(), original.getFillable());
+    public boolean undoLastMove() {
+        long start = EngineMetrics.start();
+        int last = history.undo();
+        if (last != -1) {
+            int entry = last;
+            setCell(MoveLog.index(entry), MoveLog.oldDigit(entry));
+            while (MoveLog.isJoined(entry) && (entry = history.undo()) != -1) {
+                setCell(MoveLog.index(entry), MoveLog.oldDigit(entry));
             }
+            changed(MoveJournal.UNDO, MoveLog.index(last), MoveLog.newDigit(last), MoveLog.oldDigit(last));
         }
-        moveHistory.push(new Move(-1, -1, "SAVE")); // Push a special move to indicate a saved state
+        EngineMetrics.record(EngineMetrics.Op.UNDO, start);
+        return last != -1;
     }
 
     /**
-     * Undoes the last move made.
+     * Redoes the last move that was undone, or the whole of the last batch.
+     *
+     * @return true if a move was redone, false if there was nothing to redo
      */
-    public boolean undoLastMove() {
-        if (moveHistory.isEmpty()) {
-            return false;
+    public boolean redoLastMove() {
+        long start = EngineMetrics.start();
+        int first = history.redo();
+        if (first != -1) {
+            setCell(MoveLog.index(first), MoveLog.newDigit(first));
+            while (history.isRedoJoined()) {
+                int entry = history.redo();
+                setCell(MoveLog.index(entry), MoveLog.newDigit(entry));
+            }
+            changed(MoveJournal.REDO, MoveLog.index(first), MoveLog.oldDigit(first), MoveLog.newDigit(first));
         }
-        Move lastMove = moveHistory.pop();
-        if (lastMove.row == -1 && lastMove.col == -1) {
-            return true;
+        EngineMetrics.record(EngineMetrics.Op.REDO, start);
+        return first != -1;
+    }
+
+    /**
+     * Sets how many moves can be undone. The current history is discarded.
+     *
+     * @param depth the most moves kept, at least 1
+     */
+    public void setHistoryDepth(int depth) {
+        history = new MoveLog(depth);
+        if (journal != null) {
+            journal.snapshot(this);
         }
-        populatedBoard[lastMove.row][lastMove.col].setState(lastMove.previousValue);
-        return true;
     }
 
     /**
      * Clears the board
      */
     public void clearBoard() {
-        moveHistory.clear();
-        for (int i = 0; i < gameSize; i++) {
-            for (int j = 0; j < gameSize; j++) {
-                if (populatedBoard[i][j].getFillable()) {
-                    populatedBoard[i][j].setState(defaultBoard[i][j].getState());
-                }
+        history.clear();
+        for (int index = 0; index < board.length; index++) {
+            if ((givens[index >>> 6] & (1L << index)) == 0) {
+                setCell(index, 0);
             }
         }
-        saveState();
+        changed(MoveJournal.CLEAR, 0, 0, 0);
+    }
+
+    // Tells the autosave journal and the recorder about a change just made
+    private void changed(int kind, int index, int oldDigit, int newDigit) {
+        if (journal != null) {
+            journal.append(this, kind, index, newDigit);
+        }
+        if (recorder != null) {
+            recorder.add(kind, index, oldDigit, newDigit);
+        }
     }
 
     /**
-     * Saves the current game state to a file.
+     * Saves the current game state to the default slot of the save file.
      */
     public void saveGameToFile() {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter("solutions/saveGame.txt"))) {
-            writer.write(gameSize + "\n");
-            for (int row = 0; row < gameSize; row++) {
-                for (int col = 0; col < gameSize; col++) {
-                    writer.write(populatedBoard[row][col].getState() + " ");
-                }
-                writer.write("\n");
-            }
+        saveGameToFile(DEFAULT_SLOT);
+    }
+
+    /**
+     * Saves the current game state to a named slot of the save file.
+     *
+     * @param slot the slot name
+     * @return true if the game was saved
+     */
+    public boolean saveGameToFile(String slot) {
+        try {
+            new SaveFile(Paths.get(SAVE_FILE)).save(slot, this);
+            return true;
         } catch (IOException e) {
             e.printStackTrace();
+            return false;
         }
     }
 
     /**
-     * Loads a saved game state from a file.
+     * Loads the game state saved in the default slot of the save file.
      */
     public void loadGameFromFile() {
-        try (BufferedReader reader = new BufferedReader(new FileReader("solutions/saveGame.txt"))) {
-            gameSize = Integer.parseInt(reader.readLine().trim());
-            populatedBoard = new Slot[gameSize][gameSize];
-            defaultBoard = new Slot[gameSize][gameSize];
-            for (int row = 0; row < gameSize; row++) {
-                String[] line = reader.readLine().trim().split(" ");
-                for (int col = 0; col < gameSize; col++) {
-                    populatedBoard[row][col] = new Slot(col, row, line[col], true);
-                    defaultBoard[row][col] = new Slot(col, row, line[col], true);
-                }
-            }
+        loadGameFromFile(DEFAULT_SLOT);
+    }
+
+    /**
+     * Loads the game state saved in a named slot of the save file, including its
+     * givens, solution and move history.
+     *
+     * @param slot the slot name
+     * @return true if the slot was found and loaded
+     */
+    public boolean loadGameFromFile(String slot) {
+        try {
+            return new SaveFile(Paths.get(SAVE_FILE)).load(slot, this);
         } catch (IOException e) {
             e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Gets the packed board. The array is live and must not be modified.
+     */
+    byte[] boardCells() {
+        return board;
+    }
+
+    /**
+     * Gets the packed solution, or null if the game has none.
+     */
+    byte[] solutionCells() {
+        return solution;
+    }
+
+    /**
+     * Gets the givens bitmask. The array is live and must not be modified.
+     */
+    long[] givenMask() {
+        return givens;
+    }
+
+    /**
+     * Estimates the heap this game takes, counting its arrays and history buffer
+     * plus a fixed allowance for object headers.
+     *
+     * @return the estimate in bytes
+     */
+    long estimateBytes() {
+        long cells = board.length;
+        return 256 + cells * (solution != null ? 5 : 4) + givens.length * 8L + candidates.length * 8L
+            + history.capacity() * 4L;
+    }
+
+    /**
+     * Copies the board, givens and solution into a new game without history,
+     * which another thread can read while this one keeps changing.
+     *
+     * @return the copy
+     */
+    Sudoku snapshot() {
+        Sudoku copy = blank();
+        copy.restore(gameSize, board, solution, givens, new MoveLog());
+        return copy;
+    }
+
+    /**
+     * Gets the move history.
+     */
+    MoveLog history() {
+        return history;
+    }
+
+    /**
+     * Replaces the whole game state, as when loading a save.
+     *
+     * @param size     the board size
+     * @param cells    the board digits
+     * @param solved   the solution digits, or null
+     * @param given    the givens bitmask
+     * @param moves    the move history
+     */
+    void restore(int size, byte[] cells, byte[] solved, long[] given, MoveLog moves) {
+        allocate(size);
+        System.arraycopy(cells, 0, board, 0, board.length);
+        System.arraycopy(given, 0, givens, 0, givens.length);
+        solution = solved;
+        history = moves;
+        recount();
+        if (listeners != null) {
+            for (BoardListener listener : listeners) {
+                listener.boardReplaced();
+            }
+        }
+        if (journal != null) {
+            journal.snapshot(this); // Replayed records would not apply to the new board
+        }
+    }
+
+    /**
+     * Keeps this game in an autosave journal from now on: the game is
+     * snapshotted into it and every later change is appended. A journal keeps
+     * one game at a time, so detach the old game before attaching another.
+     *
+     * @param journal the journal, or null to stop autosaving
+     */
+    public void setJournal(MoveJournal journal) {
+        this.journal = journal;
+        if (journal != null) {
+            journal.snapshot(this);
+        }
+    }
+
+    /**
+     * Records every later change to this game, with its time, into a record
+     * made by {@link GameRecord#start}.
+     *
+     * @param recorder the record, or null to stop recording
+     */
+    public void setRecorder(GameRecord recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Applies a change read back from a journal or a recording, without
+     * journaling or recording it again.
+     *
+     * @param kind  the kind of change, one of the MoveJournal record kinds
+     * @param index the cell index, for moves and direct sets
+     * @param digit the new digit, for moves and direct sets
+     */
+    void replay(int kind, int index, int digit) {
+        MoveJournal attached = journal;
+        GameRecord recording = recorder;
+        journal = null;
+        recorder = null;
+        switch (kind) {
+            case MoveJournal.MOVE:
+            case MoveJournal.JOINED:
+                history.record(index, board[index], digit, kind == MoveJournal.JOINED);
+                setCell(index, digit);
+                break;
+            case MoveJournal.SET:
+                setCell(index, digit);
+                break;
+            case MoveJournal.UNDO:
+                undoLastMove();
+                break;
+            case MoveJournal.REDO:
+                redoLastMove();
+                break;
+            case MoveJournal.CLEAR:
+                clearBoard();
+                break;
+            default:
+                break; // Written by a newer version; skipped
+        }
+        journal = attached;
+        recorder = recording;
+    }
+
+    /**
+     * Creates a new game from a level in the shipped level catalog. Only the
+     * level's index entry and record are read, however far into the catalog it is.
+     *
+     * @param levelId the level ID, starting at 0
+     * @return a new Sudoku instance set up with that level
+     * @throws IOException if the catalog cannot be read
+     */
+    public static Sudoku fromCatalog(int levelId) throws IOException {
+        try (LevelCatalog catalog = LevelCatalog.open(LevelCatalog.DEFAULT_CATALOG)) {
+            return catalog.load(levelId);
         }
     }
 
     /**
      * Static method to create a new Sudoku instance and load a saved game state.
+     * Only the save file is read; the level files are not parsed first.
      *
-     * @return a new Sudoku instance with the loaded game state
+     * @return a new Sudoku instance with the loaded game state, or null if there
+     *         is no saved game
      */
     public static Sudoku loadGame() {
-        Sudoku game = new Sudoku();
-        game.loadGameFromFile();
-        return game;
+        Sudoku game = blank();
+        return game.loadGameFromFile(DEFAULT_SLOT) ? game : null;
     }
 }
@@ -4,87 +4,106 @@ import javax.swing.text.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
-import java.util.HashSet;
-import java.util.Set;
+import java.nio.file.Paths;
+import java.util.BitSet;
 
-public class SudokuGUI extends JFrame implements ActionListener {
+public final class SudokuGUI extends JFrame implements ActionListener, BoardListener {
     // Instance variables for game logic
     private Sudoku thegame;
     private JTextField[][] cells;
-    private JButton saveButton, loadButton, clearButton, undoButton, quitButton;
-    private JPanel actionPanel, gamePanel;
-    private Set<Point> uneditableCells;
+    private JButton saveButton, loadButton, clearButton, undoButton, redoButton, hintButton, checkButton, quitButton;
+    private JPanel actionPanel, gamePanel, containerPanel;
+
+    // Cells and units to repaint, filled by board events and emptied by repaintDirty
+    private final BitSet dirtyCells = new BitSet();
+    private final BitSet dirtyUnits = new BitSet(); // Rows, then columns, then boxes
+    private boolean givensDirty;
+    private boolean repaintQueued;
+
+    // Saves, loads, checks and hints run here so the window stays responsive
+    private final transient GameService service = new GameService(Paths.get(Sudoku.SAVE_FILE), SwingUtilities::invokeLater);
+    private final transient MoveJournal journal; // Autosaves every move, or null
+    private transient GameRecord recording;      // Timed changes for ReplayEngine, kept with the journal
 
     // Constructor 
     public SudokuGUI() {
-        thegame = new Sudoku(); // Initialize Sudoku game instance
-        initializeUneditableCells(); 
-        displayGame(); 
+        this(new Sudoku()); // Initialize Sudoku game instance
     }
 
-    // Define uneditable cell
-    private void initializeUneditableCells() {
-        uneditableCells = new HashSet<>();
-        int[][] uneditableCoordinates = {
-            {0, 0}, {1, 1}, {2, 2}, {3, 1}, {3, 2}, {3, 3}, {3, 5}, {3, 8},
-            {0, 1}, {0, 2}, {4, 0}, {4, 4}, {4, 5}, {4, 8}, {5, 2}, {5, 3},
-            {5, 8}, {6, 1}, {6, 5}, {6, 7}, {6, 8}, {7, 2}, {7, 7}, {8, 0},
-            {8, 6}, {8, 7}
-        };
-        for (int[] coord : uneditableCoordinates) {
-            uneditableCells.add(new Point(coord[0], coord[1])); 
+    // Constructor for a game that is already set up, such as a catalog level
+    public SudokuGUI(Sudoku game) {
+        this(game, null);
+    }
+
+    // Constructor for a game kept in an autosave journal
+    public SudokuGUI(Sudoku game, MoveJournal journal) {
+        this.journal = journal;
+        thegame = game;
+        if (journal != null) {
+            thegame.setJournal(journal);
+            startRecording();
         }
+        thegame.addBoardListener(this); // Repaint only the cells the game reports
+        displayGame(); 
     }
 
     //  display the game board
     public void displayGame() {
         setTitle("Sudoku Game");
-        setSize(600, 600);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowClosing(WindowEvent e) {
+                    shutdown();
+                }
+            });
         setLayout(new BorderLayout());
 
+        actionPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 10)); // Panel for buttons
+        configureButtons();
+        containerPanel = new JPanel(new BorderLayout());
+        containerPanel.add(actionPanel, BorderLayout.NORTH);
+        add(containerPanel);
+        buildGrid();
+
+        setVisible(true); // Make the frame visible
+    }
+
+    // Build the grid panel for the current board size
+    private void buildGrid() {
+        if (gamePanel != null) {
+            containerPanel.remove(gamePanel);
+        }
         int size = thegame.getGameSize(); // Get size of the Sudoku grid
+        int box = thegame.getBoxSize();
+        int cellSize = Math.max(24, Math.min(40, 720 / size)); // Shrink cells on large boards
         cells = new JTextField[size][size]; 
-
-        actionPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 10)); // Panel for buttons
         gamePanel = new JPanel(new GridLayout(size, size)); // Panel for the Sudoku grid
 
-        Border border = BorderFactory.createLineBorder(Color.BLACK, 2); // Cell border
-        Font font = new Font("Arial", Font.BOLD, 15); // Font for cell text
+        Font font = new Font("Arial", Font.BOLD, size > 9 ? cellSize * 2 / 5 : 15); // Font for cell text
 
         // Loop to create  grid panel
         for (int row = 0; row < size; row++) {
             for (int col = 0; col < size; col++) {
                 JTextField cell = new JTextField(); // Create a new cell
-                cell.setPreferredSize(new Dimension(40, 40)); // Size of each cell
+                cell.setPreferredSize(new Dimension(cellSize, cellSize)); // Size of each cell
+                // Thick lines on box edges, thin lines between cells
+                Border border = BorderFactory.createMatteBorder(row % box == 0 ? 3 : 1, col % box == 0 ? 3 : 1,
+                    row == size - 1 ? 3 : 0, col == size - 1 ? 3 : 0, Color.BLACK);
                 cell.setBorder(border); // Set cell border
                 cell.setHorizontalAlignment(JTextField.CENTER); // Center-align text
                 cell.setFont(font); // Set text font
 
-                // Determine if the cell should be editable
-                boolean isEditable = !uneditableCells.contains(new Point(row, col));
-                cell.setEditable(isEditable);
-                cell.setBackground(isEditable ? Color.WHITE : Color.LIGHT_GRAY); // Color based on editability
-
-                // Set the initial text of the cell
-                String value = thegame.getIndividualMove(row, col);
-                cell.setText(value.equals("-") ? "" : value);
-
-                // Restrict input to a single digit 
-                ((AbstractDocument) cell.getDocument()).setDocumentFilter(new SingleDigitDocument());
+                // Restrict input to numbers from 1 to the board size
+                ((AbstractDocument) cell.getDocument()).setDocumentFilter(new DigitDocument(size));
 
                 // handle cell input changes
+                final int cellRow = row;
+                final int cellCol = col;
                 cell.addKeyListener(new KeyAdapter() {
                         @Override
                         public void keyReleased(KeyEvent e) {
-                            JTextField source = (JTextField) e.getSource();
-                            int[] indices = getCellIndices(source);
-                            if (indices != null) {
-                                int cellRow = indices[0];
-                                int cellCol = indices[1];
-                                
-                                handleCellInput(cellRow, cellCol, source);
-                            }
+                            handleCellInput(cellRow, cellCol, (JTextField) e.getSource());
                         }
                     });
 
@@ -92,27 +111,9 @@ public class SudokuGUI extends JFrame implements ActionListener {
                 gamePanel.add(cell); // Add cell to the grid panel
             }
         }
-
-        // Configure buttons and add panels to the frame
-        configureButtons();
-        JPanel containerPanel = new JPanel(new BorderLayout());
-        containerPanel.add(actionPanel, BorderLayout.NORTH);
         containerPanel.add(gamePanel, BorderLayout.CENTER);
-        add(containerPanel);
-
-        setVisible(true); // Make the frame visible
-    }
-
-    // Get the row and column 
-    private int[] getCellIndices(JTextField cell) {
-        for (int row = 0; row < thegame.getGameSize(); row++) {
-            for (int col = 0; col < thegame.getGameSize(); col++) {
-                if (cells[row][col] == cell) {
-                    return new int[]{row, col}; // Return row and column indices
-                }
-            }
-        }
-        return null; 
+        updateBoard(); // Set text, editability and colours
+        pack();
     }
 
     // action buttons and their properties
@@ -121,11 +122,14 @@ public class SudokuGUI extends JFrame implements ActionListener {
         loadButton = new JButton("Load");
         clearButton = new JButton("Clear");
         undoButton = new JButton("Undo");
+        redoButton = new JButton("Redo");
+        hintButton = new JButton("Hint");
+        checkButton = new JButton("Check");
         quitButton = new JButton("Quit");
 
         Font buttonFont = new Font("Arial", Font.BOLD, 15); // Font for buttons
         Dimension buttonSize = new Dimension(100, 30); // Size of buttons
-        JButton[] buttons = {saveButton, loadButton, clearButton, undoButton, quitButton};
+        JButton[] buttons = {saveButton, loadButton, clearButton, undoButton, redoButton, hintButton, checkButton, quitButton};
         for (JButton button : buttons) {
             button.setPreferredSize(buttonSize);
             button.setFont(buttonFont);
@@ -133,24 +137,33 @@ public class SudokuGUI extends JFrame implements ActionListener {
             button.setMargin(new Insets(0, 0, 0, 0));
             button.addActionListener(this); // Add action listener
         }
-        quitButton.addActionListener(e -> System.exit(0)); // Exit application
+        quitButton.addActionListener(e -> {
+            shutdown();
+            System.exit(0); // Exit application
+        });
 
         // Add buttons to the action panel
         actionPanel.add(saveButton);
         actionPanel.add(loadButton);
         actionPanel.add(clearButton);
         actionPanel.add(undoButton);
+        actionPanel.add(redoButton);
+        actionPanel.add(hintButton);
+        actionPanel.add(checkButton);
         actionPanel.add(quitButton);
     }
 
     // Handle user input 
     private void handleCellInput(int row, int col, JTextField cell) {
-        if (uneditableCells.contains(new Point(row, col))) {
-            return; // Prevent changes to uneditable cells
+        if (thegame.isGiven(row, col)) {
+            return; // Prevent changes to given cells
         }
+        service.cancelPending(); // Answers about the old board are stale now
         String text = cell.getText();
-        if (text.isEmpty() || text.matches("[1-9]")) {
-            if (thegame.makeMove(String.valueOf(row), String.valueOf(col), text)) {
+        int digit = Sudoku.parseDigit(text, thegame.getGameSize());
+        if (digit >= 0) {
+            if (thegame.makeMove(row, col, digit)) {
+                repaintDirty(); // Recolour the cell's units now rather than after the event
                 if (thegame.checkWin()) {
                     JOptionPane.showMessageDialog(this, "Congratulations! You win!"); 
                 }
@@ -160,7 +173,7 @@ public class SudokuGUI extends JFrame implements ActionListener {
             }
         } else {
             cell.setText(""); 
-            JOptionPane.showMessageDialog(this, "Invalid input! Only digits 1-9 are allowed."); 
+            JOptionPane.showMessageDialog(this, "Invalid input! Only numbers 1-" + thegame.getGameSize() + " are allowed."); 
         }
     }
 
@@ -169,69 +182,222 @@ public class SudokuGUI extends JFrame implements ActionListener {
     public void actionPerformed(ActionEvent e) {
         Object source = e.getSource();
         if (source == saveButton) {
-            thegame.saveGameToFile(); // Save current game
-            JOptionPane.showMessageDialog(this, "Game Saved!"); 
+            service.save(thegame, Sudoku.DEFAULT_SLOT, saved -> // Save current game
+                    JOptionPane.showMessageDialog(this, saved ? "Game Saved!" : "Failed to Save Game."));
         } else if (source == loadButton) {
-            Sudoku loadedGame = Sudoku.loadGame(); // Load game
-            if (loadedGame != null) {
-                thegame = loadedGame;
-                updateBoard(); 
-                JOptionPane.showMessageDialog(this, "Game Loaded!"); 
-            } else {
-                JOptionPane.showMessageDialog(this, "Failed to Load Game."); 
-            }
+            service.cancelPending();
+            service.load(Sudoku.DEFAULT_SLOT, this::gameLoaded); // Load game
         } else if (source == clearButton) {
+            service.cancelPending();
             thegame.clearBoard(); // Clear the game board
-            updateBoard(); // Update board 
+            repaintDirty(); // Repaint the cleared cells 
             JOptionPane.showMessageDialog(this, "Board Cleared!"); 
         } else if (source == undoButton) {
+            service.cancelPending();
             if (thegame.undoLastMove()) {
-                updateBoard(); // Update board after undo move
+                repaintDirty(); // Repaint the cell the undo changed
                 JOptionPane.showMessageDialog(this, "Undone Last Move!");
             } else {
                 JOptionPane.showMessageDialog(this, "No Move to Undo."); 
             }
+        } else if (source == redoButton) {
+            service.cancelPending();
+            if (thegame.redoLastMove()) {
+                repaintDirty(); // Repaint the cell the redo changed
+                JOptionPane.showMessageDialog(this, "Redone Last Move!");
+            } else {
+                JOptionPane.showMessageDialog(this, "No Move to Redo.");
+            }
+        } else if (source == hintButton) {
+            service.hint(thegame, hint -> {
+                if (hint != null) {
+                    cells[hint.getRow()][hint.getCol()].requestFocusInWindow(); // Point at the cell
+                    JOptionPane.showMessageDialog(this, hint.toString());
+                } else {
+                    JOptionPane.showMessageDialog(this, "No Hint Available.");
+                }
+            });
+        } else if (source == checkButton) {
+            service.check(thegame, solvable -> JOptionPane.showMessageDialog(this,
+                    solvable ? "So far so good: the board can still be solved." : "Something is wrong: the board can no longer be solved."));
         }
     }
 
-    // Update the game board
-    private void updateBoard() {
-        if (thegame.getMoves() == null) {
-            return; 
+    // Swap in a game the service loaded
+    private void gameLoaded(Sudoku loadedGame) {
+        if (loadedGame != null) {
+            thegame.removeBoardListener(this);
+            if (journal != null) {
+                thegame.setJournal(null);
+                thegame.setRecorder(null);
+            }
+            thegame = loadedGame;
+            thegame.addBoardListener(this);
+            if (journal != null) {
+                thegame.setJournal(journal); // Autosave and record the loaded game instead
+                startRecording();
+            }
+            if (cells.length != thegame.getGameSize()) {
+                buildGrid(); // The saved game has a different board size
+            } else {
+                updateBoard(); 
+            }
+            JOptionPane.showMessageDialog(this, "Game Loaded!"); 
+        } else {
+            JOptionPane.showMessageDialog(this, "Failed to Load Game."); 
+        }
+    }
+
+    // Let pending saves finish, force the last moves to disk and keep the recording
+    private void shutdown() {
+        service.close();
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            keepRecording();
+        }
+    }
+
+    // Starts recording the current game afresh, keeping what was recorded before
+    private void startRecording() {
+        keepRecording();
+        recording = GameRecord.start(thegame);
+        thegame.setRecorder(recording);
+    }
+
+    // Appends the recorded changes, if any, to the recordings file
+    private void keepRecording() {
+        if (recording != null && recording.getMoveCount() > 0) {
+            try {
+                MoveStream.save(Paths.get(Sudoku.RECORDINGS_FILE), recording);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
         }
+        recording = null;
+    }
+
+    // Remember a changed cell; conflicts can only change in its row, column and box
+    @Override
+    public void cellChanged(int row, int col, int digit) {
+        int size = cells.length;
+        int box = thegame.getBoxSize();
+        dirtyCells.set(row * size + col);
+        dirtyUnits.set(row);
+        dirtyUnits.set(size + col);
+        dirtyUnits.set(2 * size + (row / box) * box + col / box);
+        queueRepaint();
+    }
+
+    // Remember that every cell may have changed
+    @Override
+    public void boardReplaced() {
+        markAllDirty();
+        queueRepaint();
+    }
+
+    // Repaint once the current event is done, however many cells it changed
+    private void queueRepaint() {
+        if (!repaintQueued) {
+            repaintQueued = true;
+            SwingUtilities.invokeLater(this::repaintDirty);
+        }
+    }
+
+    // Repaint the whole board, as after another game was swapped in
+    private void updateBoard() {
+        markAllDirty();
+        repaintDirty();
+    }
+
+    private void markAllDirty() {
+        int size = cells.length;
+        dirtyCells.clear(); // Drop marks left from a board of another size
+        dirtyUnits.clear();
+        dirtyCells.set(0, size * size);
+        dirtyUnits.set(0, 3 * size);
+        givensDirty = true;
+    }
+
+    // Update the text of the changed cells and recolour the units they are in
+    private void repaintDirty() {
+        repaintQueued = false;
         int size = thegame.getGameSize();
-        for (int row = 0; row < size; row++) {
-            for (int col = 0; col < size; col++) {
-                String value = thegame.getIndividualMove(row, col);
-                cells[row][col].setText(value.equals("-") ? "" : value);
-                cells[row][col].setEditable(!uneditableCells.contains(new Point(row, col)));
-                cells[row][col].setBackground(uneditableCells.contains(new Point(row, col)) ? Color.LIGHT_GRAY : Color.WHITE);
+        if (cells.length != size) {
+            buildGrid(); // A save of another size was loaded into the game
+            return;
+        }
+        for (int index = dirtyCells.nextSetBit(0); index >= 0; index = dirtyCells.nextSetBit(index + 1)) {
+            int row = index / size;
+            int col = index % size;
+            int digit = thegame.getDigit(row, col);
+            String text = digit == 0 ? "" : Sudoku.symbol(digit);
+            if (!text.equals(cells[row][col].getText())) {
+                cells[row][col].setText(text); // Typed digits are already there
+            }
+            if (givensDirty) {
+                cells[row][col].setEditable(!thegame.isGiven(row, col));
             }
         }
+        int box = thegame.getBoxSize();
+        for (int unit = dirtyUnits.nextSetBit(0); unit >= 0; unit = dirtyUnits.nextSetBit(unit + 1)) {
+            for (int k = 0; k < size; k++) {
+                if (unit < size) {
+                    dirtyCells.set(unit * size + k);
+                } else if (unit < 2 * size) {
+                    dirtyCells.set(k * size + unit - size);
+                } else {
+                    int b = unit - 2 * size;
+                    dirtyCells.set(((b / box) * box + k / box) * size + (b % box) * box + k % box);
+                }
+            }
+        }
+        for (int index = dirtyCells.nextSetBit(0); index >= 0; index = dirtyCells.nextSetBit(index + 1)) {
+            paintCell(index / size, index % size);
+        }
+        dirtyCells.clear();
+        dirtyUnits.clear();
+        givensDirty = false;
+    }
+
+    // Colour a cell by whether it is fixed or part of a conflict
+    private void paintCell(int row, int col) {
+        if (thegame.isGiven(row, col)) {
+            cells[row][col].setBackground(Color.LIGHT_GRAY);
+        } else if (thegame.isConflict(row, col)) {
+            cells[row][col].setBackground(Color.PINK); // Highlight repeated digits
+        } else {
+            cells[row][col].setBackground(Color.WHITE);
+        }
     }
 
-    // allow only single digit input
-    private static class SingleDigitDocument extends DocumentFilter {
+    // allow only numbers from 1 to the board size
+    private static class DigitDocument extends DocumentFilter {
+        private final int size;
+
+        DigitDocument(int size) {
+            this.size = size;
+        }
+
         @Override
         public void insertString(FilterBypass fb, int offset, String string, AttributeSet attr) throws BadLocationException {
-            if (string.matches("[1-9]")) {
-                String currentText = fb.getDocument().getText(0, fb.getDocument().getLength());
-                String newText = currentText.substring(0, offset) + string + currentText.substring(offset);
-                if (newText.length() > 1) {
-                    newText = newText.substring(newText.length() - 1); 
-                }
-                super.replace(fb, 0, fb.getDocument().getLength(), newText, attr);
-            }
+            replace(fb, offset, 0, string, attr);
         }
 
         @Override
         public void replace(FilterBypass fb, int offset, int length, String text, AttributeSet attrs) throws BadLocationException {
-            if (text.matches("[1-9]") || text.isEmpty()) {
-                String currentText = fb.getDocument().getText(0, fb.getDocument().getLength());
-                String newText = currentText.substring(0, offset) + text + currentText.substring(offset + length);
-                if (newText.length() > 1) {
-                    newText = newText.substring(newText.length() - 1); // Keep only the last character
-                }
+            if (text == null || !text.chars().allMatch(Character::isDigit)) {
+                return;
+            }
+            String currentText = fb.getDocument().getText(0, fb.getDocument().getLength());
+            String newText = currentText.substring(0, offset) + text + currentText.substring(offset + length);
+            if (!newText.isEmpty() && Sudoku.parseDigit(newText, size) < 0) {
+                newText = text; // Too big, so start again from what was just typed
+            }
+            if (newText.isEmpty() || Sudoku.parseDigit(newText, size) > 0) {
                 super.replace(fb, 0, fb.getDocument().getLength(), newText, attrs);
             }
         }
@@ -242,8 +408,11 @@ public class SudokuGUI extends JFrame implements ActionListener {
         }
     }
 
-    // Main method to run the application
-    public static void main(String[] args) {
-        SwingUtilities.invokeLater(SudokuGUI::new); 
+    // Main method to run the application, optionally on a catalog level given by its ID
+    public static void main(String[] args) throws IOException {
+        MoveJournal journal = new MoveJournal(Paths.get(Sudoku.JOURNAL_DIR));
+        Sudoku game = args.length > 0 ? Sudoku.fromCatalog(Integer.parseInt(args[0])) : journal.recover();
+        Sudoku start = game != null ? game : new Sudoku(); // Resume an unfinished game unless a level is named
+        SwingUtilities.invokeLater(() -> new SudokuGUI(start, journal));
     }
 }
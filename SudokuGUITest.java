@@ -29,16 +29,8 @@ public class SudokuGUITest {
 
     // reset test files
     private void resetTestFiles() throws IOException {
-        File saveFile = new File("solutions/saveGame.txt");
-        if (!saveFile.getParentFile().exists()) {
-            saveFile.getParentFile().mkdirs(); 
-        }
-        // Initialize the save file
-        Files.write(Paths.get("solutions/saveGame.txt"), "9\n".getBytes()); 
-        for (int i = 0; i < 9; i++) {
-            String line = String.join(" ", new String[9]).trim();
-            Files.write(Paths.get("solutions/saveGame.txt"), (line + "\n").getBytes(), StandardOpenOption.APPEND);
-        }
+        // Start every test without a save file
+        Files.deleteIfExists(Paths.get(Sudoku.SAVE_FILE));
     }
 
     @Test
@@ -107,9 +99,10 @@ public class SudokuGUITest {
         // save game
         game.saveGameToFile();
         
-        // Read the saved file
-        String content = new String(Files.readAllBytes(Paths.get("solutions/saveGame.txt")));
-        assertTrue(content.contains("5"), "The saved file should contain the move '5'");
+        // Check the save file and its default slot
+        assertTrue(Files.exists(Paths.get(Sudoku.SAVE_FILE)), "The save file should exist");
+        assertEquals(java.util.List.of("default"), new SaveFile(Paths.get(Sudoku.SAVE_FILE)).slots(),
+            "The game should be saved in the default slot");
     }
 
     @Test
@@ -129,6 +122,206 @@ public class SudokuGUITest {
         assertEquals("5", newGame.getIndividualMove(0, 5), "Loaded game should contain the move '5'");
     }
 
+    @Test
+    @Order(7)
+    public void testGivenCellsAreFixed() {
+        System.out.println("\nTEST 7 : Test given cells\n");
+        // (0,0) is a given in the level file
+        assertTrue(game.isGiven(0, 0), "Cell (0,0) should be a given");
+        assertFalse(game.makeMove("0", "0", "1"), "Given cells should reject moves");
+        assertFalse(game.makeMove("0", "3", "x"), "Non-digit input should be rejected");
+        assertEquals("9", game.getMoves()[0][0].getState(), "Slot view should read the packed board");
+    }
+
+    @Test
+    @Order(8)
+    public void testWinTracksUndoAndClear() {
+        System.out.println("\nTEST 8 : Test win after undo and clear\n");
+        setupWinningBoard();
+        assertTrue(game.checkWin(), "The game should be in a winning state");
+        game.undoLastMove();
+        assertFalse(game.checkWin(), "Undoing a move should leave the winning state");
+        setupWinningBoard();
+        assertTrue(game.checkWin(), "Replaying the moves should win again");
+        game.clearBoard();
+        assertFalse(game.checkWin(), "A cleared board should not be a win");
+    }
+
+    @Test
+    @Order(9)
+    public void testConflictTracking() {
+        System.out.println("\nTEST 9 : Test conflict tracking\n");
+        // Row 0 already holds a given 9 at (0,0)
+        assertTrue(game.wouldConflict(0, 3, 9), "A second 9 in row 0 should conflict");
+        assertFalse(game.wouldConflict(0, 3, 4), "A 4 at (0,3) should not conflict");
+        game.makeMove("0", "3", "9");
+        assertTrue(game.hasConflicts(), "The board should report a conflict");
+        assertTrue(game.isConflict(0, 0), "The given 9 should be part of the conflict");
+        assertArrayEquals(new int[]{0, 3}, game.getConflictingCells(), "Only the two 9s should conflict");
+        game.undoLastMove();
+        assertFalse(game.hasConflicts(), "Undo should remove the conflict");
+    }
+
+    @Test
+    @Order(10)
+    public void testRedoMove() {
+        System.out.println("\nTEST 10 : Test redo move\n");
+        game.makeMove("0", "5", "5");
+        game.makeMove("0", "5", "1");
+        game.undoLastMove();
+        game.undoLastMove();
+        assertEquals("-", game.getIndividualMove(0, 5), "Both moves should be undone");
+        assertTrue(game.redoLastMove(), "Redo should succeed after undo");
+        assertEquals("5", game.getIndividualMove(0, 5), "Redo should replay the first move");
+        game.makeMove("0", "4", "3");
+        assertFalse(game.redoLastMove(), "A new move should drop the redo history");
+    }
+
+    @Test
+    @Order(11)
+    public void testSaveSlotsKeepHistory() throws IOException {
+        System.out.println("\nTEST 11 : Test named save slots\n");
+        game.makeMove("0", "5", "5");
+        assertTrue(game.saveGameToFile("first"), "Saving to a slot should succeed");
+        game.makeMove("0", "6", "3");
+        assertTrue(game.saveGameToFile("second"), "Saving to a second slot should succeed");
+
+        Sudoku loaded = new Sudoku();
+        assertTrue(loaded.loadGameFromFile("first"), "The first slot should load");
+        assertEquals("5", loaded.getIndividualMove(0, 5), "Slot 'first' should hold the first move");
+        assertEquals("-", loaded.getIndividualMove(0, 6), "Slot 'first' should not hold the later move");
+        assertTrue(loaded.undoLastMove(), "History should be saved with the slot");
+        assertEquals("-", loaded.getIndividualMove(0, 5), "Undo after load should revert the saved move");
+        assertTrue(loaded.isGiven(0, 0), "Givens should be saved with the slot");
+        assertFalse(loaded.loadGameFromFile("missing"), "A missing slot should not load");
+    }
+
+    @Test
+    @Order(12)
+    public void testHint() {
+        System.out.println("\nTEST 12 : Test hint\n");
+        Hint hint = game.getHint();
+        assertNotNull(hint, "A fresh level should have a hint");
+        assertNotEquals(DifficultyRater.Technique.GUESS, hint.getTechnique(), "The level starts with a single");
+        int row = hint.getRow();
+        int col = hint.getCol();
+        assertTrue(game.isCandidate(row, col, hint.getDigit()), "The hinted digit should be a candidate");
+        int other = (col + 1) % 9;
+        boolean before = game.isCandidate(row, other, hint.getDigit());
+        game.makeMove(String.valueOf(row), String.valueOf(col), String.valueOf(hint.getDigit()));
+        assertFalse(game.isCandidate(row, other, hint.getDigit()), "A move should remove the digit from its row");
+        game.undoLastMove();
+        assertEquals(before, game.isCandidate(row, other, hint.getDigit()), "Undo should restore the candidate");
+    }
+
+    @Test
+    @Order(13)
+    public void testBoardListenerEvents() {
+        System.out.println("\nTEST 13 : Test board change events\n");
+        java.util.List<String> events = new java.util.ArrayList<>();
+        BoardListener listener = new BoardListener() {
+            @Override
+            public void cellChanged(int row, int col, int digit) {
+                events.add(row + "," + col + "=" + digit);
+            }
+
+            @Override
+            public void boardReplaced() {
+                events.add("replaced");
+            }
+        };
+        game.addBoardListener(listener);
+        game.makeMove("0", "6", "7");
+        game.undoLastMove();
+        game.redoLastMove();
+        assertEquals(java.util.List.of("0,6=7", "0,6=0", "0,6=7"), events, "One event per changed cell");
+        events.clear();
+        game.makeMove("1", "0", "1");
+        game.clearBoard();
+        assertEquals(java.util.List.of("1,0=1", "0,6=0", "1,0=0"), events, "Clear should report only the cells it emptied");
+        game.saveGameToFile();
+        events.clear();
+        game.loadGameFromFile();
+        assertEquals(java.util.List.of("replaced"), events, "Loading should replace the whole board");
+        game.removeBoardListener(listener);
+        game.makeMove("0", "6", "7");
+        assertEquals(1, events.size(), "A removed listener should hear nothing");
+    }
+
+    @Test
+    @Order(14)
+    public void testIntMoveApi() {
+        System.out.println("\nTEST 14 : Test int move API\n");
+        assertTrue(game.makeMove(0, 6, 7), "Move should be successful");
+        assertEquals(7, game.getDigit(0, 6), "Cell (0,6) should hold 7");
+        assertEquals("7", game.getIndividualMove(0, 6), "Both views should agree");
+        assertTrue(game.makeMove(9 + 4, 3), "A packed index should address cell (1,4)");
+        assertEquals(3, game.getDigit(1, 4));
+        assertFalse(game.makeMove(0, 0, 5), "Givens should be refused");
+        assertFalse(game.makeMove(0, 9, 5), "Columns off the board should be refused");
+        assertFalse(game.makeMove(0, 7, 10), "Digits out of range should be refused");
+        assertFalse(game.makeMove("0", "7", "x"), "The text form should refuse what does not parse");
+        new Assign(game, 0, 7, 2);
+        assertEquals(2, game.getDigit(0, 7), "Assign should place the digit");
+        assertTrue(game.makeMove(0, 6, 0), "Zero should erase");
+        assertEquals("-", game.getIndividualMove(0, 6));
+        assertTrue(game.undoLastMove());
+        assertEquals(7, game.getDigit(0, 6), "Int moves should be undoable");
+    }
+
+    @Test
+    @Order(15)
+    public void testBatchMoves() {
+        System.out.println("\nTEST 15 : Test batch moves\n");
+        byte[] solution = game.solutionCells();
+        int[] fill = new int[81];
+        int count = 0;
+        for (int index = 0; index < 81; index++) {
+            if (!game.isGiven(index / 9, index % 9)) {
+                fill[count++] = MoveLog.encode(index, 0, solution[index]);
+            }
+        }
+        int[] moves = java.util.Arrays.copyOf(fill, count);
+        assertTrue(game.makeMove(0, 5, solution[5] % 9 + 1), "A move before the batch");
+
+        int[] withGiven = moves.clone();
+        withGiven[count / 2] = MoveLog.encode(0, 0, 9); // Cell (0,0) is a given
+        assertFalse(game.makeMoves(withGiven), "A batch touching a given should be refused");
+        assertEquals(solution[5] % 9 + 1, game.getDigit(0, 5), "A refused batch should change nothing");
+        assertEquals("-", game.getIndividualMove(0, 6));
+
+        assertTrue(game.makeMoves(moves), "Batch should be made");
+        assertTrue(game.checkWin(), "Filling every free cell with the solution should win");
+        assertTrue(game.undoLastMove(), "The batch should undo");
+        assertEquals(solution[5] % 9 + 1, game.getDigit(0, 5), "One undo should take back the whole batch");
+        assertEquals("-", game.getIndividualMove(0, 6));
+        assertTrue(game.redoLastMove(), "The batch should redo");
+        assertTrue(game.checkWin(), "One redo should make the whole batch again");
+        assertTrue(game.undoLastMove());
+        assertTrue(game.undoLastMove(), "The move before the batch should undo on its own");
+        assertEquals("-", game.getIndividualMove(0, 5));
+    }
+
+    @Test
+    @Order(16)
+    public void testBatchBeyondHistoryDepth() {
+        System.out.println("\nTEST 16 : Test batch moves beyond history depth\n");
+        game.setHistoryDepth(4);
+        int[] batch = {MoveLog.encode(5, 0, 1), MoveLog.encode(6, 0, 2), MoveLog.encode(7, 0, 3)};
+        assertFalse(game.makeMoves(new int[] {batch[0], batch[1], batch[2], MoveLog.encode(8, 0, 4),
+            MoveLog.encode(12, 0, 5)}), "A batch longer than the history should be refused");
+        assertEquals("-", game.getIndividualMove(0, 5));
+
+        assertTrue(game.makeMoves(batch));
+        assertTrue(game.makeMove(0, 8, 4));
+        assertTrue(game.makeMove(1, 2, 5)); // Overwrites the first move of the batch
+        assertTrue(game.undoLastMove());
+        assertTrue(game.undoLastMove());
+        assertFalse(game.undoLastMove(), "What is left of the batch should not be undoable");
+        assertEquals(3, game.getDigit(0, 7), "The batch should stay whole");
+        assertEquals(1, game.getDigit(0, 5));
+    }
+
     // Helper method to set up a winning board
     private void setupWinningBoard() {
         // Input value by user
@@ -0,0 +1,158 @@
+import java.util.Random;
+
+/**
+ * Generates new puzzles that have exactly one solution.
+ * A random full grid is built first: the top-left box is filled with shuffled
+ * digits and the solver completes the rest with random guesses. Clues are then
+ * taken out in random order, and each removal is kept only if the solver still finds a single
+ * solution, until the requested number of clues is left or no more can go.
+ * A generator reuses its buffers, so keep one per thread.
+ */
+public class SudokuGenerator {
+
+    /**
+     * Difficulty tiers, each aiming for a share of the cells as clues.
+     */
+    public enum Difficulty {
+        EASY(0.50), MEDIUM(0.40), HARD(0.33), EXPERT(0.28);
+
+        private final double clueShare;
+
+        Difficulty(double clueShare) {
+            this.clueShare = clueShare;
+        }
+
+        /**
+         * Gets the number of clues this tier aims for on a board of the given size.
+         *
+         * @param size the board size
+         * @return the target clue count
+         */
+        public int clues(int size) {
+            return (int) Math.round(clueShare * size * size);
+        }
+    }
+
+    private final int size;
+    private final int box;
+    private final int cells;
+    private final Random random;
+    private final Solver solver;
+    private final int[] order;   // Cells in removal order
+    private final byte[] digits; // Digits shuffled for the first box
+
+    /**
+     * Constructs a generator with a random seed.
+     *
+     * @param size the board size, a perfect square up to Sudoku.MAX_SIZE
+     */
+    public SudokuGenerator(int size) {
+        this(size, new Random().nextLong());
+    }
+
+    /**
+     * Constructs a generator that makes the same puzzles for the same seed.
+     *
+     * @param size the board size, a perfect square up to Sudoku.MAX_SIZE
+     * @param seed the random seed
+     */
+    public SudokuGenerator(int size, long seed) {
+        this.solver = Solver.forSize(size);
+        this.size = size;
+        this.box = (int) Math.round(Math.sqrt(size));
+        this.cells = size * size;
+        this.random = new Random(seed);
+        this.order = new int[cells];
+        this.digits = new byte[size];
+    }
+
+    /**
+     * Gets the board size this generator makes.
+     *
+     * @return the number of rows and columns
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Fills an array with a random complete grid.
+     *
+     * @param grid receives the grid in row-major order
+     */
+    public void fullGrid(byte[] grid) {
+        java.util.Arrays.fill(grid, (byte) 0);
+        shuffleDigits();
+        for (int i = 0; i < size; i++) {
+            grid[(i / box) * size + i % box] = digits[i];
+        }
+        solver.setRandom(random);
+        try {
+            if (!solver.solve(grid, grid)) {
+                throw new IllegalStateException("Could not complete a random grid");
+            }
+        } finally {
+            solver.setRandom(null);
+        }
+    }
+
+    /**
+     * Generates a puzzle for a difficulty tier.
+     *
+     * @param difficulty the tier
+     * @param puzzle     receives the givens, 0 for an empty cell
+     * @param solution   receives the unique solution
+     * @return the number of clues in the puzzle
+     */
+    public int generate(Difficulty difficulty, byte[] puzzle, byte[] solution) {
+        return generate(difficulty.clues(size), puzzle, solution);
+    }
+
+    /**
+     * Generates a puzzle with as close to the requested number of clues as the
+     * grid allows while keeping a unique solution.
+     *
+     * @param clues    the number of clues wanted
+     * @param puzzle   receives the givens, 0 for an empty cell
+     * @param solution receives the unique solution
+     * @return the number of clues in the puzzle, never below the request
+     */
+    public int generate(int clues, byte[] puzzle, byte[] solution) {
+        fullGrid(solution);
+        System.arraycopy(solution, 0, puzzle, 0, cells);
+        for (int i = 0; i < cells; i++) {
+            order[i] = i;
+        }
+        for (int i = cells - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        int left = cells;
+        for (int i = 0; i < cells && left > clues; i++) {
+            int cell = order[i];
+            byte digit = puzzle[cell];
+            puzzle[cell] = 0;
+            if (solver.countSolutions(puzzle, 2) == 1) {
+                left--;
+            } else {
+                puzzle[cell] = digit; // Needed for uniqueness
+            }
+        }
+        return left;
+    }
+
+    // Shuffles 1..size into the digit buffer
+    private void shuffleDigits() {
+        for (int i = 0; i < size; i++) {
+            digits[i] = (byte) (i + 1);
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            byte swap = digits[i];
+            digits[i] = digits[j];
+            digits[j] = swap;
+        }
+    }
+}
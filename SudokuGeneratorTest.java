@@ -0,0 +1,19 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class SudokuGeneratorTest {
+
+    @Test
+    public void testGeneratedPuzzleIsUnique() {
+        SudokuGenerator generator = new SudokuGenerator(9, 42);
+        byte[] puzzle = new byte[81];
+        byte[] solution = new byte[81];
+        int clues = generator.generate(SudokuGenerator.Difficulty.HARD, puzzle, solution);
+        assertTrue(clues >= SudokuGenerator.Difficulty.HARD.clues(9), "Clue count should not go below the target");
+        assertEquals(1, new SudokuSolver(9).countSolutions(puzzle, 2), "Generated puzzle should have one solution");
+
+        Sudoku game = new Sudoku(new SudokuGenerator(9, 42), SudokuGenerator.Difficulty.HARD);
+        assertEquals(9, game.getGameSize(), "Generated game should be 9x9");
+        assertFalse(game.checkWin(), "A new game should not be won");
+    }
+}
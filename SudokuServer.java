@@ -0,0 +1,390 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Serves games over a small JSON-over-HTTP API, with no window or terminal.
+ * It is built on the JDK's HTTP server, and every request runs on its own
+ * virtual thread, so idle sessions cost only their game state.
+ *
+ * <pre>
+ * POST   /games                 new game; body {"level": id}, {"size": n, "difficulty": "EASY"},
+ *                               {"slot": name} to load a save, or empty for a random catalog level
+ * GET    /games/{id}            the board
+ * POST   /games/{id}/move       body {"row": r, "col": c, "digit": d}, 0 to clear
+ * POST   /games/{id}/undo       undo the last move
+ * POST   /games/{id}/redo       redo the last undone move
+ * GET    /games/{id}/hint       the next logical step
+ * GET    /games/{id}/check      whether the game is won, and the conflicting cells
+ * POST   /games/{id}/save       body {"slot": name}, or empty to save under the game ID
+ * DELETE /games/{id}            end the session
+ * GET    /stats                 session store counters
+ * </pre>
+ *
+ * Games live in a {@link SessionStore}, which passivates idle and least
+ * recently used games to disk once the memory budget is reached. A game is
+ * only touched while the store has it checked out, so requests for different
+ * sessions run in parallel while requests for one session are applied in turn.
+ * The budget, idle timeout and spill directory come from the system properties
+ * sudoku.sessions.budget (bytes), sudoku.sessions.idle (seconds) and
+ * sudoku.sessions.dir.
+ *
+ * Each save slot is a {@link SaveFile} of its own in the directory named by
+ * sudoku.saves.dir, so a save writes only its slot and saves of different
+ * slots never wait for each other. Slot names are limited to letters, digits,
+ * '-' and '_' so they are safe as file names. Engine timings are published over JMX by
+ * {@link EngineMetrics}; they are collected once sudoku.metrics is true or
+ * measuring is switched on through the MXBean.
+ */
+public class SudokuServer {
+    private static final Pattern FIELD =
+        Pattern.compile("\"(\\w+)\"\\s*:\\s*(?:\"((?:[^\"\\\\]|\\\\.)*)\"|(-?\\d+|true|false|null))");
+    private static final int MAX_BODY = 4096;
+    private static final int MAX_GENERATED_SIZE = 16; // Larger boards take seconds to generate
+    private static final Pattern SLOT = Pattern.compile("[\\w-]{1,64}");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final LevelCatalog catalog; // Null when no catalog is installed
+    private final SessionStore sessions;
+    private final ScheduledExecutorService sweeper; // Passivates idle games
+    private final Path saves; // One save file per slot
+
+    /**
+     * Creates a server on a port with a session store configured from the
+     * system properties. It does not accept requests until started.
+     *
+     * @param port the port, 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public SudokuServer(int port) throws IOException {
+        this(port, new SessionStore(Paths.get(System.getProperty("sudoku.sessions.dir", "Solutions/sessions")),
+            Long.getLong("sudoku.sessions.budget", 256L << 20), Long.getLong("sudoku.sessions.idle", 600)),
+            Paths.get(System.getProperty("sudoku.saves.dir", "Solutions/saves")));
+    }
+
+    /**
+     * Creates a server on a port that keeps its games in the given store and
+     * its save slots in the given directory.
+     *
+     * @param port     the port, 0 for any free port
+     * @param sessions the session store
+     * @param saves    the directory for save slots, created on the first save
+     * @throws IOException if the port cannot be bound
+     */
+    public SudokuServer(int port, SessionStore sessions, Path saves) throws IOException {
+        this.sessions = sessions;
+        this.saves = saves;
+        server = HttpServer.create(new InetSocketAddress(port), 1024);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/games", this::handle);
+        server.createContext("/stats", this::stats);
+        catalog = Files.exists(Paths.get(LevelCatalog.DEFAULT_CATALOG + ".idx"))
+            ? LevelCatalog.open(LevelCatalog.DEFAULT_CATALOG) : null;
+        sweeper = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().factory());
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+        sweeper.scheduleWithFixedDelay(sessions::evictIdle, 10, 10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops accepting requests and closes the catalog.
+     *
+     * @param delay the most seconds to wait for requests in progress
+     */
+    public void stop(int delay) {
+        server.stop(delay);
+        sweeper.shutdown();
+        executor.shutdown();
+        try {
+            if (catalog != null) {
+                catalog.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Gets the port the server listens on.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Gets the number of open sessions.
+     *
+     * @return the session count
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    // Reports the session store counters
+    private void stats(HttpExchange exchange) throws IOException {
+        try {
+            send(exchange, 200, "{\"sessions\":" + sessions.size() + ",\"resident\":" + sessions.getResidentCount()
+                + ",\"residentBytes\":" + sessions.getResidentBytes() + ",\"hits\":" + sessions.getHits()
+                + ",\"misses\":" + sessions.getMisses() + ",\"evictions\":" + sessions.getEvictions() + "}");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Routes a request under /games
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            String method = exchange.getRequestMethod();
+            // path[0] is empty and path[1] is "games"
+            if (path.length == 2) {
+                if (method.equals("POST")) {
+                    newGame(exchange);
+                } else {
+                    send(exchange, 405, error("Use POST to start a game"));
+                }
+                return;
+            }
+            String action = path.length == 4 ? path[3] : "";
+            if (path.length == 3 && method.equals("DELETE")) {
+                boolean deleted = sessions.remove(path[2]);
+                send(exchange, deleted ? 200 : 404, deleted ? "{\"deleted\":true}" : error("No such game"));
+                return;
+            }
+            Map<String, String> body = method.equals("POST") ? readBody(exchange) : Map.of();
+            SessionStore.Session session = path.length > 4 ? null : sessions.acquire(path[2]);
+            if (session == null) {
+                send(exchange, 404, error("No such game"));
+                return;
+            }
+            String reply;
+            int status = 200;
+            try {
+                Sudoku game = session.getGame();
+                switch (method + " " + action) {
+                    case "GET ":
+                        reply = board(path[2], game);
+                        break;
+                    case "POST move":
+                        reply = move(game, body);
+                        break;
+                    case "POST undo":
+                        reply = "{\"undone\":" + game.undoLastMove() + "}";
+                        break;
+                    case "POST redo":
+                        reply = "{\"redone\":" + game.redoLastMove() + "}";
+                        break;
+                    case "GET hint":
+                        reply = hint(game.getHint());
+                        break;
+                    case "GET check":
+                        reply = check(game);
+                        break;
+                    case "POST save":
+                        reply = save(game, body.getOrDefault("slot", path[2]));
+                        break;
+                    default:
+                        status = 404;
+                        reply = error("Unknown action " + method + " " + action);
+                }
+            } finally {
+                sessions.release(session);
+            }
+            send(exchange, status, reply);
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, error(e.getMessage()));
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            if (exchange.getResponseCode() == -1) { // Nothing sent yet, so the client can still be told
+                send(exchange, 500, error("Internal error: " + e));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Starts a session from a catalog level, a generated puzzle or a save slot
+    private void newGame(HttpExchange exchange) throws IOException {
+        Map<String, String> body = readBody(exchange);
+        Sudoku game;
+        if (body.containsKey("slot")) {
+            String slot = body.get("slot");
+            game = Sudoku.blank();
+            if (!new SaveFile(slotFile(slot)).load(slot, game)) {
+                send(exchange, 404, error("No such save slot"));
+                return;
+            }
+        } else if (body.containsKey("size")) {
+            int size = number(body, "size");
+            if (size > MAX_GENERATED_SIZE) {
+                throw new IllegalArgumentException("Generated games go up to " + MAX_GENERATED_SIZE
+                    + "x" + MAX_GENERATED_SIZE + "; use a catalog level for larger boards");
+            }
+            SudokuGenerator.Difficulty difficulty = SudokuGenerator.Difficulty.valueOf(
+                body.getOrDefault("difficulty", "MEDIUM").toUpperCase());
+            game = new Sudoku(new SudokuGenerator(size), difficulty);
+        } else if (catalog != null) {
+            int level = body.containsKey("level") ? number(body, "level")
+                : ThreadLocalRandom.current().nextInt(catalog.size());
+            if (level < 0 || level >= catalog.size()) {
+                throw new IllegalArgumentException("No level " + level);
+            }
+            game = catalog.load(level);
+        } else {
+            game = new Sudoku();
+        }
+        String id = sessions.add(game);
+        send(exchange, 201, board(id, game)); // Not yet shared, so safe to read unlocked
+    }
+
+    private static String move(Sudoku game, Map<String, String> body) {
+        int row = number(body, "row");
+        int col = number(body, "col");
+        int digit = number(body, "digit");
+        int size = game.getGameSize();
+        if (row < 0 || row >= size || col < 0 || col >= size) {
+            throw new IllegalArgumentException("Cell is off the board");
+        }
+        boolean made = game.makeMove(row, col, digit);
+        return "{\"accepted\":" + made + ",\"conflict\":" + (made && game.isConflict(row, col))
+            + ",\"won\":" + game.checkWin() + "}";
+    }
+
+    private static String check(Sudoku game) {
+        StringBuilder json = new StringBuilder("{\"won\":").append(game.checkWin()).append(",\"conflicts\":[");
+        int size = game.getGameSize();
+        int[] cells = game.getConflictingCells();
+        for (int i = 0; i < cells.length; i++) {
+            json.append(i > 0 ? "," : "").append('[').append(cells[i] / size).append(',').append(cells[i] % size).append(']');
+        }
+        return json.append("]}").toString();
+    }
+
+    private static String hint(Hint hint) {
+        if (hint == null) {
+            return "{\"hint\":null}";
+        }
+        return "{\"row\":" + hint.getRow() + ",\"col\":" + hint.getCol() + ",\"digit\":" + hint.getDigit()
+            + ",\"technique\":\"" + hint.getTechnique() + "\",\"text\":\"" + escape(hint.toString()) + "\"}";
+    }
+
+    private String save(Sudoku game, String slot) throws IOException {
+        long start = EngineMetrics.start();
+        new SaveFile(slotFile(slot)).replace(SaveFile.encode(slot, game));
+        EngineMetrics.record(EngineMetrics.Op.SAVE, start);
+        return "{\"saved\":true,\"slot\":\"" + slot + "\"}";
+    }
+
+    // The file holding a save slot, once the name is known to be safe as a file name
+    private Path slotFile(String slot) {
+        if (!SLOT.matcher(slot).matches()) {
+            throw new IllegalArgumentException("Slot names are 1 to 64 letters, digits, '-' or '_'");
+        }
+        return saves.resolve(slot + ".sav");
+    }
+
+    // The board as rows of numbers, 0 for empty, with the givens marked the same way
+    private static String board(String id, Sudoku game) {
+        int size = game.getGameSize();
+        StringBuilder cells = new StringBuilder();
+        StringBuilder givens = new StringBuilder();
+        for (int row = 0; row < size; row++) {
+            cells.append(row > 0 ? ",[" : "[");
+            givens.append(row > 0 ? ",[" : "[");
+            for (int col = 0; col < size; col++) {
+                cells.append(col > 0 ? "," : "").append(game.getDigit(row, col));
+                givens.append(col > 0 ? "," : "").append(game.isGiven(row, col) ? 1 : 0);
+            }
+            cells.append(']');
+            givens.append(']');
+        }
+        return "{\"id\":\"" + id + "\",\"size\":" + size + ",\"board\":[" + cells + "],\"givens\":[" + givens
+            + "],\"won\":" + game.checkWin() + "}";
+    }
+
+    /**
+     * Reads a flat JSON object of string, number and boolean fields.
+     */
+    private static Map<String, String> readBody(HttpExchange exchange) throws IOException {
+        byte[] bytes;
+        try (InputStream in = exchange.getRequestBody()) {
+            bytes = in.readNBytes(MAX_BODY + 1);
+        }
+        if (bytes.length > MAX_BODY) {
+            throw new IllegalArgumentException("Request body too large");
+        }
+        Map<String, String> fields = new HashMap<>();
+        Matcher m = FIELD.matcher(new String(bytes, StandardCharsets.UTF_8));
+        while (m.find()) {
+            fields.put(m.group(1), m.group(2) != null ? m.group(2).replaceAll("\\\\(.)", "$1") : m.group(3));
+        }
+        return fields;
+    }
+
+    private static int number(Map<String, String> body, String name) {
+        String value = body.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing field " + name);
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Field " + name + " must be a number");
+        }
+    }
+
+    private static String error(String message) {
+        return "{\"error\":\"" + escape(message) + "\"}";
+    }
+
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Runs the server until the process is stopped.
+     * Usage: SudokuServer [port]
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        SudokuServer server = new SudokuServer(port);
+        EngineMetrics.register(); // Lets an operator switch measuring on over JMX
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1)));
+        server.start();
+        System.err.println("Sudoku server listening on port " + server.getPort());
+    }
+}
@@ -0,0 +1,143 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class SudokuServerTest {
+    private final HttpClient client = HttpClient.newHttpClient();
+    private SudokuServer server;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        start(Files.createTempDirectory("saves"));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testPlaysUndoesHintsSavesAndLoads() throws Exception {
+        HttpResponse<String> created = post("/games", "{\"size\": 4, \"difficulty\": \"EASY\"}");
+        assertEquals(201, created.statusCode(), created.body());
+        String id = field(created.body(), "id");
+        int[] givens = grid(created.body(), "givens");
+        int free = 0;
+        while (givens[free] != 0) {
+            free++;
+        }
+        int given = 0;
+        while (givens[given] == 0) {
+            given++;
+        }
+
+        HttpResponse<String> move = post("/games/" + id + "/move",
+            "{\"row\": " + free / 4 + ", \"col\": " + free % 4 + ", \"digit\": 3}");
+        assertEquals(200, move.statusCode());
+        assertEquals("true", field(move.body(), "accepted"));
+        move = post("/games/" + id + "/move", "{\"row\": " + given / 4 + ", \"col\": " + given % 4 + ", \"digit\": 3}");
+        assertEquals("false", field(move.body(), "accepted"), "A given cannot be changed");
+        assertEquals(400, post("/games/" + id + "/move", "{\"row\": 4, \"col\": 0, \"digit\": 1}").statusCode(),
+            "A cell off the board is a bad request");
+        assertEquals(400, post("/games/" + id + "/move", "{\"row\": 0}").statusCode(), "Fields are required");
+
+        assertEquals("true", field(post("/games/" + id + "/undo", "").body(), "undone"));
+        assertEquals(0, grid(get("/games/" + id).body(), "board")[free], "Undo should clear the move");
+        assertEquals("false", field(post("/games/" + id + "/undo", "").body(), "undone"), "Nothing is left to undo");
+
+        HttpResponse<String> hint = get("/games/" + id + "/hint");
+        assertEquals(200, hint.statusCode());
+        assertNotNull(field(hint.body(), "technique"), "An easy puzzle should have a logical step");
+
+        post("/games/" + id + "/move", "{\"row\": " + free / 4 + ", \"col\": " + free % 4 + ", \"digit\": 2}");
+        HttpResponse<String> saved = post("/games/" + id + "/save", "");
+        assertEquals(200, saved.statusCode(), saved.body());
+        assertEquals(id, field(saved.body(), "slot"), "The slot defaults to the game ID");
+        assertEquals(400, post("/games/" + id + "/save", "{\"slot\": \"../escape\"}").statusCode(),
+            "Slot names must be safe file names");
+
+        HttpResponse<String> loaded = post("/games", "{\"slot\": \"" + id + "\"}");
+        assertEquals(201, loaded.statusCode(), loaded.body());
+        assertNotEquals(id, field(loaded.body(), "id"), "A loaded save is a new session");
+        assertArrayEquals(grid(get("/games/" + id).body(), "board"), grid(loaded.body(), "board"));
+        assertArrayEquals(givens, grid(loaded.body(), "givens"));
+        String copy = field(loaded.body(), "id");
+        assertEquals("true", field(post("/games/" + copy + "/undo", "").body(), "undone"),
+            "The history should be saved with the game");
+    }
+
+    @Test
+    public void testUnknownGamesActionsAndSlotsAre404() throws Exception {
+        assertEquals(404, get("/games/no-such-game").statusCode());
+        assertEquals(404, post("/games/no-such-game/move", "{\"row\": 0, \"col\": 0, \"digit\": 1}").statusCode());
+        assertEquals(404, post("/games", "{\"slot\": \"never-saved\"}").statusCode());
+        String id = field(post("/games", "{\"size\": 4}").body(), "id");
+        HttpResponse<String> unknown = post("/games/" + id + "/teleport", "");
+        assertEquals(404, unknown.statusCode());
+        assertNotNull(field(unknown.body(), "error"), "Errors should come back as JSON");
+        assertEquals(200, delete("/games/" + id).statusCode());
+        assertEquals(404, delete("/games/" + id).statusCode(), "A deleted game is gone");
+    }
+
+    @Test
+    public void testUnexpectedFailureIs500() throws Exception {
+        server.stop(0);
+        start(Files.createTempFile("saves", ".dat")); // A file where the save directory should be
+        String id = field(post("/games", "{\"size\": 4}").body(), "id");
+        HttpResponse<String> saved = post("/games/" + id + "/save", "");
+        assertEquals(500, saved.statusCode());
+        assertNotNull(field(saved.body(), "error"), "Errors should come back as JSON");
+        assertEquals(200, get("/games/" + id).statusCode(), "The session should survive the failure");
+    }
+
+    private void start(Path saves) throws IOException {
+        server = new SudokuServer(0, new SessionStore(Files.createTempDirectory("sessions"), Long.MAX_VALUE, 600),
+            saves);
+        server.start();
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return send(HttpRequest.newBuilder(uri(path)).GET());
+    }
+
+    private HttpResponse<String> post(String path, String body) throws Exception {
+        return send(HttpRequest.newBuilder(uri(path)).POST(HttpRequest.BodyPublishers.ofString(body)));
+    }
+
+    private HttpResponse<String> delete(String path) throws Exception {
+        return send(HttpRequest.newBuilder(uri(path)).DELETE());
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws Exception {
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + server.getPort() + path);
+    }
+
+    // A string, number or boolean field of a JSON reply, or null if it is missing
+    private static String field(String json, String name) {
+        Matcher m = Pattern.compile("\"" + name + "\":(?:\"([^\"]*)\"|(-?\\d+|true|false))").matcher(json);
+        return m.find() ? (m.group(1) != null ? m.group(1) : m.group(2)) : null;
+    }
+
+    // A grid field of a board reply, flattened in row-major order
+    private static int[] grid(String json, String name) {
+        int start = json.indexOf("\"" + name + "\":[") + name.length() + 3;
+        String rows = json.substring(start, json.indexOf("]]", start));
+        return Pattern.compile("[^\\d]+").splitAsStream(rows).filter(s -> !s.isEmpty())
+            .mapToInt(Integer::parseInt).toArray();
+    }
+}
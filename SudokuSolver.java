@@ -0,0 +1,303 @@
+/**
+ * Solves Sudoku boards of any n*n size using candidate bitmasks.
+ * Each row, column and box keeps a mask of the digits it already holds, so the
+ * candidates of a cell are found with three ORs. The search fills naked and
+ * hidden singles before it guesses, and always guesses on the cell with the
+ * fewest candidates. A solver instance reuses its buffers between calls, so
+ * keep one per thread rather than sharing it. Masks are single ints, so boards
+ * stop at 25x25; {@link WideSudokuSolver} takes the larger ones.
+ */
+public class SudokuSolver implements Solver {
+    /** Largest board side whose candidate masks fit in an int. */
+    static final int MAX_SIZE = 25;
+
+    private final int size;      // Digits per unit
+    private final int cells;     // Cells on the board
+    private final int full;      // Mask with one bit per digit
+    private final int[] rowOf;   // Row of each cell
+    private final int[] colOf;   // Column of each cell
+    private final int[] boxOf;   // Box of each cell
+    private final int[][] units; // Cells of every row, column and box
+
+    // Search state
+    private final byte[] grid;
+    private final int[] rowMask;
+    private final int[] colMask;
+    private final int[] boxMask;
+    private final int[] trail;
+    private int trailSize;
+
+    // Result of the current call
+    private byte[] solution;
+    private int found;
+    private int limit;
+    private long guesses;
+    private java.util.Random random; // Picks guesses in random order when set
+
+    /**
+     * Constructs a solver for boards with the given number of rows and columns.
+     *
+     * @param size the board size, a perfect square up to 25
+     */
+    public SudokuSolver(int size) {
+        int box = (int) Math.round(Math.sqrt(size));
+        if (size < 1 || size > MAX_SIZE || box * box != size) {
+            throw new IllegalArgumentException("Unsupported board size: " + size);
+        }
+        this.size = size;
+        this.cells = size * size;
+        this.full = (1 << size) - 1;
+        rowOf = new int[cells];
+        colOf = new int[cells];
+        boxOf = new int[cells];
+        units = new int[3 * size][size];
+        int[] filled = new int[3 * size];
+        for (int i = 0; i < cells; i++) {
+            int row = i / size;
+            int col = i % size;
+            int b = (row / box) * box + col / box;
+            rowOf[i] = row;
+            colOf[i] = col;
+            boxOf[i] = b;
+            units[row][filled[row]++] = i;
+            units[size + col][filled[size + col]++] = i;
+            units[2 * size + b][filled[2 * size + b]++] = i;
+        }
+        grid = new byte[cells];
+        rowMask = new int[size];
+        colMask = new int[size];
+        boxMask = new int[size];
+        trail = new int[cells];
+    }
+
+    /**
+     * Gets the board size this solver handles.
+     *
+     * @return the number of rows and columns
+     */
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the number of guesses the last call needed. Zero means the board was
+     * solved by singles alone.
+     *
+     * @return the number of guesses
+     */
+    @Override
+    public long getGuesses() {
+        return guesses;
+    }
+
+    /**
+     * Makes guesses try candidates in random order instead of lowest digit first,
+     * so solving an empty or sparse board gives a random grid. Pass null to go
+     * back to the deterministic order.
+     *
+     * @param random the source of randomness, or null
+     */
+    @Override
+    public void setRandom(java.util.Random random) {
+        this.random = random;
+    }
+
+    /**
+     * Solves a board.
+     *
+     * @param puzzle the board in row-major order, 0 for an empty cell
+     * @param out    receives the solution, may be the same array as the puzzle
+     * @return true if a solution was found
+     */
+    @Override
+    public boolean solve(byte[] puzzle, byte[] out) {
+        return run(puzzle, out, 1) == 1;
+    }
+
+    /**
+     * Counts the solutions of a board, stopping once the limit is reached.
+     * A limit of 2 is enough to tell whether a puzzle has a unique solution.
+     *
+     * @param puzzle the board in row-major order, 0 for an empty cell
+     * @param limit  the number of solutions after which to stop
+     * @return the number of solutions found, at most the limit
+     */
+    @Override
+    public int countSolutions(byte[] puzzle, int limit) {
+        return run(puzzle, null, limit);
+    }
+
+    /**
+     * Loads the board and runs the search.
+     */
+    private int run(byte[] puzzle, byte[] out, int maxSolutions) {
+        if (puzzle.length != cells) {
+            throw new IllegalArgumentException("Expected " + cells + " cells but got " + puzzle.length);
+        }
+        java.util.Arrays.fill(rowMask, 0);
+        java.util.Arrays.fill(colMask, 0);
+        java.util.Arrays.fill(boxMask, 0);
+        trailSize = 0;
+        solution = out;
+        found = 0;
+        limit = maxSolutions;
+        guesses = 0;
+        for (int i = 0; i < cells; i++) {
+            int digit = puzzle[i];
+            grid[i] = 0;
+            if (digit != 0) {
+                int bit = 1 << (digit - 1);
+                if (digit < 0 || digit > size
+                        || ((rowMask[rowOf[i]] | colMask[colOf[i]] | boxMask[boxOf[i]]) & bit) != 0) {
+                    return 0; // Givens already clash
+                }
+                place(i, digit);
+            }
+        }
+        trailSize = 0;
+        long start = EngineMetrics.start();
+        search();
+        EngineMetrics.record(EngineMetrics.Op.SOLVE, start);
+        solution = null;
+        return found;
+    }
+
+    /**
+     * Depth-first search with propagation at every node.
+     */
+    private void search() {
+        int mark = trailSize;
+        if (!propagate()) {
+            undo(mark);
+            return;
+        }
+        // Pick the empty cell with the fewest candidates
+        int best = -1;
+        int bestCount = size + 1;
+        for (int i = 0; i < cells; i++) {
+            if (grid[i] == 0) {
+                int count = Integer.bitCount(candidates(i));
+                if (count < bestCount) {
+                    best = i;
+                    bestCount = count;
+                    if (count == 2) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (best < 0) {
+            if (found++ == 0 && solution != null) {
+                System.arraycopy(grid, 0, solution, 0, cells);
+            }
+            undo(mark);
+            return;
+        }
+        int options = candidates(best);
+        while (options != 0 && found < limit) {
+            int bit = random == null ? options & -options : randomBit(options);
+            options ^= bit;
+            if ((++guesses & 0x3FF) == 0 && Thread.currentThread().isInterrupted()) {
+                limit = found; // Cancelled, so unwind without looking further
+            }
+            place(best, Integer.numberOfTrailingZeros(bit) + 1);
+            search();
+            unplace(best);
+            trailSize--;
+        }
+        undo(mark);
+    }
+
+    /**
+     * Fills naked and hidden singles until nothing changes.
+     *
+     * @return false if the board reached a contradiction
+     */
+    private boolean propagate() {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 0; i < cells; i++) {
+                if (grid[i] == 0) {
+                    int cand = candidates(i);
+                    if (cand == 0) {
+                        return false;
+                    }
+                    if ((cand & (cand - 1)) == 0) {
+                        place(i, Integer.numberOfTrailingZeros(cand) + 1);
+                        changed = true;
+                    }
+                }
+            }
+            if (changed) {
+                continue;
+            }
+            for (int[] unit : units) {
+                int once = 0;
+                int twice = 0;
+                int used = 0;
+                for (int i : unit) {
+                    if (grid[i] != 0) {
+                        used |= 1 << (grid[i] - 1);
+                    } else {
+                        int cand = candidates(i);
+                        twice |= once & cand;
+                        once |= cand;
+                    }
+                }
+                if ((once | used) != full) {
+                    return false; // Some digit has nowhere to go
+                }
+                int hidden = once & ~twice;
+                while (hidden != 0) {
+                    int bit = hidden & -hidden;
+                    hidden ^= bit;
+                    for (int i : unit) {
+                        if (grid[i] == 0 && (candidates(i) & bit) != 0) {
+                            place(i, Integer.numberOfTrailingZeros(bit) + 1);
+                            changed = true;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    // Picks one set bit of a mask uniformly at random
+    private int randomBit(int options) {
+        for (int skip = random.nextInt(Integer.bitCount(options)); skip > 0; skip--) {
+            options &= options - 1;
+        }
+        return options & -options;
+    }
+
+    private int candidates(int i) {
+        return full & ~(rowMask[rowOf[i]] | colMask[colOf[i]] | boxMask[boxOf[i]]);
+    }
+
+    private void place(int i, int digit) {
+        int bit = 1 << (digit - 1);
+        grid[i] = (byte) digit;
+        rowMask[rowOf[i]] |= bit;
+        colMask[colOf[i]] |= bit;
+        boxMask[boxOf[i]] |= bit;
+        trail[trailSize++] = i;
+    }
+
+    private void unplace(int i) {
+        int bit = ~(1 << (grid[i] - 1));
+        grid[i] = 0;
+        rowMask[rowOf[i]] &= bit;
+        colMask[colOf[i]] &= bit;
+        boxMask[boxOf[i]] &= bit;
+    }
+
+    private void undo(int mark) {
+        while (trailSize > mark) {
+            unplace(trail[--trailSize]);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class SudokuSolverTest {
+    // Level su1 as an 81-cell grid, 0 = empty
+    private static final String LEVEL =
+        "986000000040000000002000000054106007200045009008200004060007045009000060700000210";
+
+    private static byte[] parse(String text) {
+        byte[] grid = new byte[text.length()];
+        for (int i = 0; i < grid.length; i++) {
+            grid[i] = (byte) (text.charAt(i) - '0');
+        }
+        return grid;
+    }
+
+    @Test
+    public void testSolvesLevel() {
+        byte[] puzzle = parse(LEVEL);
+        byte[] solution = new byte[81];
+        assertTrue(new SudokuSolver(9).solve(puzzle, solution), "Level should be solvable");
+        for (int i = 0; i < 81; i++) {
+            if (puzzle[i] != 0) {
+                assertEquals(puzzle[i], solution[i], "Solution should keep the givens");
+            }
+        }
+        for (int unit = 0; unit < 9; unit++) {
+            int rowSeen = 0;
+            int colSeen = 0;
+            for (int k = 0; k < 9; k++) {
+                rowSeen |= 1 << solution[unit * 9 + k];
+                colSeen |= 1 << solution[k * 9 + unit];
+            }
+            assertEquals(0x3FE, rowSeen, "Row " + unit + " should hold every digit");
+            assertEquals(0x3FE, colSeen, "Column " + unit + " should hold every digit");
+        }
+    }
+
+    @Test
+    public void testCountsSolutions() {
+        SudokuSolver solver = new SudokuSolver(4);
+        assertEquals(2, solver.countSolutions(new byte[16], 2), "Empty board has many solutions");
+        byte[] clash = new byte[16];
+        clash[0] = 1;
+        clash[1] = 1;
+        assertEquals(0, solver.countSolutions(clash, 2), "Clashing givens have no solution");
+    }
+
+    @Test
+    public void testWideSolverHandlesBoardsAbove25() {
+        Solver solver = Solver.forSize(36);
+        assertTrue(solver instanceof WideSudokuSolver, "36x36 candidates need more than one int");
+        byte[] grid = new byte[36 * 36];
+        new SudokuGenerator(36, 5).fullGrid(grid);
+        for (int unit = 0; unit < 36; unit++) {
+            long rowSeen = 0;
+            long colSeen = 0;
+            for (int k = 0; k < 36; k++) {
+                rowSeen |= 1L << grid[unit * 36 + k];
+                colSeen |= 1L << grid[k * 36 + unit];
+            }
+            assertEquals(((1L << 36) - 1) << 1, rowSeen, "Row " + unit + " should hold every digit");
+            assertEquals(((1L << 36) - 1) << 1, colSeen, "Column " + unit + " should hold every digit");
+        }
+        byte[] puzzle = grid.clone();
+        java.util.Random random = new java.util.Random(1);
+        for (int i = 0; i < puzzle.length; i++) {
+            if (random.nextInt(3) == 0) {
+                puzzle[i] = 0;
+            }
+        }
+        byte[] solution = new byte[puzzle.length];
+        assertTrue(solver.solve(puzzle, solution));
+        assertArrayEquals(grid, solution, "A third of the cells blanked should solve back to the grid");
+    }
+}
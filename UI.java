@@ -1,4 +1,5 @@
 import java.io.*;
+import java.nio.file.Paths;
 import javax.swing.*;
 import java.util.*;
 
@@ -7,12 +8,24 @@ public class UI {
     private Sudoku thegame; 
     private String menuChoice; 
     private Scanner reader; 
+    private static MoveJournal journal; // Autosave journal, set up by main
+    private static GameRecord recording; // Timed changes of this session, set up by main
 
     /**
      * Initializes the UI, starts the game loop, and handles user input.
      */
     public UI() {
-        thegame = new Sudoku(); // Initialize the Sudoku game
+        this(new Sudoku());
+    }
+
+    /**
+     * Initializes the UI for a game that is already set up, such as a level from
+     * the catalog, and starts the game loop.
+     *
+     * @param game the game to play
+     */
+    public UI(Sudoku game) {
+        thegame = game; // Initialize the Sudoku game
         reader = new Scanner(System.in); // Initialize scanner
         menuChoice = "";
         while (!menuChoice.equalsIgnoreCase("Q")) { 
@@ -32,38 +45,48 @@ public class UI {
     }
 
     /**
-     * Displays the current state 
+     * Displays the current state. Columns are padded to the widest digit and a
+     * line is drawn after every box, so any n*n board lines up.
      */
     public void displayGame() {
         int size = thegame.getGameSize(); // Get the size of the game grid
-        String separator = size == 9 ? " - - - - - - - - -" : " - - - -"; 
-        System.out.println("Col   " + String.join(" ", "0", "1", "2", "3", size == 9 ? "4" : ""));
-        System.out.println("      " + separator);
+        int box = thegame.getBoxSize();
+        int width = Integer.toString(size).length(); // Widest digit or column number
+        int rowWidth = Integer.toString(size - 1).length();
+        String indent = " ".repeat(4 + rowWidth);
+
+        StringBuilder header = new StringBuilder("Col ").append(" ".repeat(rowWidth)).append(' ');
+        for (int c = 0; c < size; c++) {
+            header.append(' ').append(pad(Integer.toString(c), width));
+            if (c % box == box - 1) {
+                header.append(' ');
+            }
+        }
+        String separator = indent + " -".repeat((size * (width + 1) + box + 1) / 2);
+        System.out.println(header);
+        System.out.println(separator);
 
         for (int i = 0; i < size; i++) {
-            System.out.print("Row " + i + "|");
+            StringBuilder line = new StringBuilder("Row ").append(pad(Integer.toString(i), rowWidth)).append('|');
             for (int c = 0; c < size; c++) {
                 String move = thegame.getIndividualMove(i, c); // Get the move at the current position
-                if (move.equals("-")) {
-                    System.out.print(" ."); // Display empty cell
-                } else {
-                    System.out.print(" " + move); // Display cell value
-                }
-                if (size == 9 && (c == 2 || c == 5 || c == 8)) {
-                    System.out.print("|"); // Vertical line for 9x9 grid
-                } else if (size == 4 && (c == 1 || c == 3)) {
-                    System.out.print("|"); // Vertical line for 4x4 grid
+                line.append(' ').append(pad(move.equals("-") ? "." : move, width)); // "." for an empty cell
+                if (c % box == box - 1) {
+                    line.append('|'); // Vertical line after each box
                 }
             }
-            System.out.println();
-            if (size == 9 && (i == 2 || i == 5 || i == 8)) {
-                System.out.println("      " + separator); // Horizontal line for 9x9 grid
-            } else if (size == 4 && (i == 1 || i == 3)) {
-                System.out.println("      " + separator); // Horizontal line for 4x4 grid
+            System.out.println(line);
+            if (i % box == box - 1) {
+                System.out.println(separator); // Horizontal line after each box
             }
         }
     }
 
+    // Right-aligns text in a column of the given width
+    private static String pad(String text, int width) {
+        return text.length() >= width ? text : " ".repeat(width - text.length()) + text;
+    }
+
     /**
      * Displays the menu options to the user.
      */
@@ -73,6 +96,8 @@ public class UI {
                 + "[S] save game\n"
                 + "[L] load saved game\n"
                 + "[U] undo move\n"
+                + "[R] redo move\n"
+                + "[H] hint\n"
                 + "[C] clear game\n"
                 + "[Q] quit game\n");
     }
@@ -94,6 +119,12 @@ public class UI {
             case "U":
                 undoMove(); // Handle undoing the last move
                 break;
+            case "R":
+                redoMove(); // Handle redoing an undone move
+                break;
+            case "H":
+                showHint(); // Handle asking for a hint
+                break;
             case "L":
                 loadGame(); // Handle loading a saved game
                 break;
@@ -101,6 +132,7 @@ public class UI {
                 clearGame(); // Handle clearing the game board
                 break;
             case "Q":
+                finish(); // Force the last moves to disk
                 System.exit(0); // Exit the program
                 break;
             default:
@@ -128,11 +160,39 @@ public class UI {
         }
     }
 
+    /**
+     * Redoes the last move the user undid.
+     */
+    public void redoMove() {
+        if (thegame.redoLastMove()) {
+            System.out.println("Move redone.");
+        } else {
+            System.out.println("No move to redo."); // Notify user if nothing was undone
+        }
+    }
+
+    /**
+     * Shows the next logical step without making it.
+     */
+    public void showHint() {
+        Hint hint = thegame.getHint();
+        if (hint != null) {
+            System.out.println(hint);
+        } else {
+            System.out.println("No hint available."); // Board is full or has no solution
+        }
+    }
+
     /**
      * Loads a previously saved game from a file.
      */
     public void loadGame() {
         thegame.loadGameFromFile(); // Load the game from file
+        if (recording != null) {
+            keepRecording();
+            recording = GameRecord.start(thegame); // Record the loaded game from here on
+            thegame.setRecorder(recording);
+        }
         System.out.println("Game loaded successfully."); 
     }
 
@@ -148,15 +208,19 @@ public class UI {
      * Handles making a move in the game.
      */
     private void makeMove() {
-        String row, col, number;
+        int size = thegame.getGameSize();
+        int row, col, digit;
         while (true) {
             System.out.print("Which row is the cell you wish to fill? ");
-            row = reader.next(); // Get the row index
+            row = Sudoku.parseIndex(reader.next(), size); // Get the row index, -1 if not one
             System.out.print("Which column is the cell you wish to fill? ");
-            col = reader.next(); // Get the column index
+            col = Sudoku.parseIndex(reader.next(), size); // Get the column index
             System.out.print("Which number do you want to enter? ");
-            number = reader.next(); // Get the number to enter
-            if (thegame.makeMove(row, col, number)) {
+            digit = Sudoku.parseDigit(reader.next(), size); // Get the number to enter
+            if (thegame.makeMove(row, col, digit)) {
+                if (thegame.isConflict(row, col)) {
+                    System.out.println("Warning: that number is already in the same row, column or box.");
+                }
                 break; // Exit loop if move is valid
             } else {
                 System.out.println("Invalid move. Please try again."); 
@@ -164,10 +228,52 @@ public class UI {
         }
     }
 
+    // Forces the autosave journal to disk and keeps the recording before the program ends
+    private static void finish() {
+        try {
+            if (journal != null) {
+                journal.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        keepRecording();
+        recording = null;
+    }
+
+    // Appends the recorded changes, if any, to the recordings file
+    private static void keepRecording() {
+        if (recording != null && recording.getMoveCount() > 0) {
+            try {
+                MoveStream.save(Paths.get(Sudoku.RECORDINGS_FILE), recording);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
     /**
-     * Main method to start the UI application.
+     * Main method to start the UI application. An optional argument picks a level
+     * from the level catalog by its ID. Without one, a game left unfinished by
+     * the last run is resumed from the autosave journal.
      */
-    public static void main(String[] args) {
-        new UI(); 
+    public static void main(String[] args) throws IOException {
+        journal = new MoveJournal(Paths.get(Sudoku.JOURNAL_DIR));
+        Sudoku game;
+        if (args.length > 0) {
+            game = Sudoku.fromCatalog(Integer.parseInt(args[0]));
+        } else {
+            game = journal.recover();
+            if (game != null) {
+                System.out.println("Resuming your unfinished game.");
+            } else {
+                game = new Sudoku();
+            }
+        }
+        game.setJournal(journal); // Autosave every move from here on
+        recording = GameRecord.start(game);
+        game.setRecorder(recording);
+        new UI(game);
+        finish();
     }
 }
@@ -0,0 +1,336 @@
+/**
+ * Solves boards larger than 25x25, where the digits of a unit no longer fit in
+ * one int. Each candidate set is a bitset of (size + 63) / 64 longs, laid out
+ * flat so unit i's set starts at i * words. The search is the same as
+ * {@link SudokuSolver}'s: naked and hidden singles at every node, then a guess
+ * on the cell with the fewest candidates.
+ */
+public class WideSudokuSolver implements Solver {
+    private final int size;      // Digits per unit
+    private final int cells;     // Cells on the board
+    private final int words;     // Longs per candidate set
+    private final long[] full;   // Set with one bit per digit
+    private final int[] rowOf;   // Row of each cell
+    private final int[] colOf;   // Column of each cell
+    private final int[] boxOf;   // Box of each cell
+    private final int[][] units; // Cells of every row, column and box
+
+    // Search state
+    private final byte[] grid;
+    private final long[] rowMask;
+    private final long[] colMask;
+    private final long[] boxMask;
+    private final int[] trail;
+    private int trailSize;
+    private final long[] options; // Untried guesses, one set per search depth
+    private final long[] once;    // Scratch sets for hidden singles
+    private final long[] twice;
+    private final long[] used;
+
+    // Result of the current call
+    private byte[] solution;
+    private int found;
+    private int limit;
+    private long guesses;
+    private java.util.Random random; // Picks guesses in random order when set
+
+    /**
+     * Constructs a solver for boards with the given number of rows and columns.
+     *
+     * @param size the board size, a perfect square up to {@link Sudoku#MAX_SIZE}
+     */
+    public WideSudokuSolver(int size) {
+        int box = (int) Math.round(Math.sqrt(size));
+        if (size < 1 || size > Sudoku.MAX_SIZE || box * box != size) {
+            throw new IllegalArgumentException("Unsupported board size: " + size);
+        }
+        this.size = size;
+        this.cells = size * size;
+        this.words = (size + 63) >>> 6;
+        full = new long[words];
+        for (int d = 0; d < size; d++) {
+            full[d >>> 6] |= 1L << d;
+        }
+        rowOf = new int[cells];
+        colOf = new int[cells];
+        boxOf = new int[cells];
+        units = new int[3 * size][size];
+        int[] filled = new int[3 * size];
+        for (int i = 0; i < cells; i++) {
+            int row = i / size;
+            int col = i % size;
+            int b = (row / box) * box + col / box;
+            rowOf[i] = row;
+            colOf[i] = col;
+            boxOf[i] = b;
+            units[row][filled[row]++] = i;
+            units[size + col][filled[size + col]++] = i;
+            units[2 * size + b][filled[2 * size + b]++] = i;
+        }
+        grid = new byte[cells];
+        rowMask = new long[size * words];
+        colMask = new long[size * words];
+        boxMask = new long[size * words];
+        trail = new int[cells];
+        options = new long[(cells + 1) * words];
+        once = new long[words];
+        twice = new long[words];
+        used = new long[words];
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public long getGuesses() {
+        return guesses;
+    }
+
+    @Override
+    public void setRandom(java.util.Random random) {
+        this.random = random;
+    }
+
+    @Override
+    public boolean solve(byte[] puzzle, byte[] out) {
+        return run(puzzle, out, 1) == 1;
+    }
+
+    @Override
+    public int countSolutions(byte[] puzzle, int limit) {
+        return run(puzzle, null, limit);
+    }
+
+    /**
+     * Loads the board and runs the search.
+     */
+    private int run(byte[] puzzle, byte[] out, int maxSolutions) {
+        if (puzzle.length != cells) {
+            throw new IllegalArgumentException("Expected " + cells + " cells but got " + puzzle.length);
+        }
+        java.util.Arrays.fill(rowMask, 0);
+        java.util.Arrays.fill(colMask, 0);
+        java.util.Arrays.fill(boxMask, 0);
+        trailSize = 0;
+        solution = out;
+        found = 0;
+        limit = maxSolutions;
+        guesses = 0;
+        for (int i = 0; i < cells; i++) {
+            int digit = puzzle[i];
+            grid[i] = 0;
+            if (digit != 0) {
+                if (digit < 0 || digit > size) {
+                    return 0;
+                }
+                int w = (digit - 1) >>> 6;
+                long bit = 1L << (digit - 1);
+                if (((rowMask[rowOf[i] * words + w] | colMask[colOf[i] * words + w]
+                        | boxMask[boxOf[i] * words + w]) & bit) != 0) {
+                    return 0; // Givens already clash
+                }
+                place(i, digit);
+            }
+        }
+        trailSize = 0;
+        long start = EngineMetrics.start();
+        search(0);
+        EngineMetrics.record(EngineMetrics.Op.SOLVE, start);
+        solution = null;
+        return found;
+    }
+
+    /**
+     * Depth-first search with propagation at every node.
+     *
+     * @param depth the number of guesses on the current path, which picks the
+     *              slot of the options buffer this node uses
+     */
+    private void search(int depth) {
+        int mark = trailSize;
+        if (!propagate()) {
+            undo(mark);
+            return;
+        }
+        // Pick the empty cell with the fewest candidates
+        int best = -1;
+        int bestCount = size + 1;
+        for (int i = 0; i < cells; i++) {
+            if (grid[i] == 0) {
+                int count = countCandidates(i);
+                if (count < bestCount) {
+                    best = i;
+                    bestCount = count;
+                    if (count == 2) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (best < 0) {
+            if (found++ == 0 && solution != null) {
+                System.arraycopy(grid, 0, solution, 0, cells);
+            }
+            undo(mark);
+            return;
+        }
+        int base = depth * words;
+        candidates(best, options, base);
+        for (int left = bestCount; left > 0 && found < limit; left--) {
+            int d = random == null ? lowestBit(base) : randomBit(base, left);
+            options[base + (d >>> 6)] &= ~(1L << d);
+            if ((++guesses & 0x3FF) == 0 && Thread.currentThread().isInterrupted()) {
+                limit = found; // Cancelled, so unwind without looking further
+            }
+            place(best, d + 1);
+            search(depth + 1);
+            unplace(best);
+            trailSize--;
+        }
+        undo(mark);
+    }
+
+    /**
+     * Fills naked and hidden singles until nothing changes.
+     *
+     * @return false if the board reached a contradiction
+     */
+    private boolean propagate() {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 0; i < cells; i++) {
+                if (grid[i] == 0) {
+                    int single = -1;
+                    int count = 0;
+                    for (int w = 0; w < words && count < 2; w++) {
+                        long cand = candidateWord(i, w);
+                        if (cand != 0) {
+                            count += Long.bitCount(cand);
+                            single = (w << 6) + Long.numberOfTrailingZeros(cand);
+                        }
+                    }
+                    if (count == 0) {
+                        return false;
+                    }
+                    if (count == 1) {
+                        place(i, single + 1);
+                        changed = true;
+                    }
+                }
+            }
+            if (changed) {
+                continue;
+            }
+            for (int[] unit : units) {
+                java.util.Arrays.fill(once, 0);
+                java.util.Arrays.fill(twice, 0);
+                java.util.Arrays.fill(used, 0);
+                for (int i : unit) {
+                    if (grid[i] != 0) {
+                        int d = grid[i] - 1;
+                        used[d >>> 6] |= 1L << d;
+                    } else {
+                        for (int w = 0; w < words; w++) {
+                            long cand = candidateWord(i, w);
+                            twice[w] |= once[w] & cand;
+                            once[w] |= cand;
+                        }
+                    }
+                }
+                for (int w = 0; w < words; w++) {
+                    if ((once[w] | used[w]) != full[w]) {
+                        return false; // Some digit has nowhere to go
+                    }
+                }
+                for (int w = 0; w < words; w++) {
+                    long hidden = once[w] & ~twice[w];
+                    while (hidden != 0) {
+                        long bit = hidden & -hidden;
+                        hidden ^= bit;
+                        for (int i : unit) {
+                            if (grid[i] == 0 && (candidateWord(i, w) & bit) != 0) {
+                                place(i, (w << 6) + Long.numberOfTrailingZeros(bit) + 1);
+                                changed = true;
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    // Index of the lowest set bit of the options set at base
+    private int lowestBit(int base) {
+        int w = 0;
+        while (options[base + w] == 0) {
+            w++;
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(options[base + w]);
+    }
+
+    // Index of one set bit of the options set at base, uniformly at random
+    private int randomBit(int base, int count) {
+        int skip = random.nextInt(count);
+        for (int w = 0; ; w++) {
+            long set = options[base + w];
+            int bits = Long.bitCount(set);
+            if (skip < bits) {
+                for (; skip > 0; skip--) {
+                    set &= set - 1;
+                }
+                return (w << 6) + Long.numberOfTrailingZeros(set);
+            }
+            skip -= bits;
+        }
+    }
+
+    private long candidateWord(int i, int w) {
+        return full[w] & ~(rowMask[rowOf[i] * words + w] | colMask[colOf[i] * words + w]
+            | boxMask[boxOf[i] * words + w]);
+    }
+
+    private void candidates(int i, long[] out, int base) {
+        for (int w = 0; w < words; w++) {
+            out[base + w] = candidateWord(i, w);
+        }
+    }
+
+    private int countCandidates(int i) {
+        int count = 0;
+        for (int w = 0; w < words; w++) {
+            count += Long.bitCount(candidateWord(i, w));
+        }
+        return count;
+    }
+
+    private void place(int i, int digit) {
+        int w = (digit - 1) >>> 6;
+        long bit = 1L << (digit - 1);
+        grid[i] = (byte) digit;
+        rowMask[rowOf[i] * words + w] |= bit;
+        colMask[colOf[i] * words + w] |= bit;
+        boxMask[boxOf[i] * words + w] |= bit;
+        trail[trailSize++] = i;
+    }
+
+    private void unplace(int i) {
+        int d = grid[i] - 1;
+        int w = d >>> 6;
+        long bit = ~(1L << d);
+        grid[i] = 0;
+        rowMask[rowOf[i] * words + w] &= bit;
+        colMask[colOf[i] * words + w] &= bit;
+        boxMask[boxOf[i] * words + w] &= bit;
+    }
+
+    private void undo(int mark) {
+        while (trailSize > mark) {
+            unplace(trail[--trailSize]);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * Runs the shared-board benchmarks against {@link ConcurrentSudoku}. See
+ * {@link bench.Engine} for why this class is in the unnamed package.
+ */
+public class ConcurrentEngine implements bench.SharedEngine {
+    private static final long SEED = 20240822L;
+
+    private ConcurrentSudoku board;
+    private int[] free;
+
+    @Override
+    public void setUp(int size) {
+        byte[] solution = new byte[size * size];
+        new SudokuGenerator(size, SEED).fullGrid(solution);
+        byte[] puzzle = new byte[solution.length];
+        free = new int[(solution.length + 1) / 2];
+        for (int i = 0; i < puzzle.length; i++) {
+            if (i % 2 == 0) {
+                puzzle[i] = solution[i]; // Every other cell given, so no search is needed
+            } else {
+                free[i / 2] = i;
+            }
+        }
+        free = java.util.Arrays.copyOf(free, solution.length / 2);
+        board = new ConcurrentSudoku(new Sudoku(size, puzzle, solution));
+    }
+
+    @Override
+    public int[] freeCells() {
+        return free;
+    }
+
+    @Override
+    public boolean makeMove(int index, int digit) {
+        return board.makeMove(index, digit);
+    }
+}
@@ -0,0 +1,114 @@
+import java.util.Random;
+
+/**
+ * Runs the solve cache benchmarks against {@link SolveCache} and {@link Solver}.
+ * See {@link bench.Engine} for why this class is in the unnamed package.
+ */
+public class SolveCacheEngine implements bench.CacheEngine {
+    private static final long SEED = 20240822L;
+
+    private int size;
+    private byte[][] puzzles;
+    private byte[] out;
+    private Solver solver;
+
+    @Override
+    public void setUp(int size, int distinct, int copies, boolean relabel) {
+        this.size = size;
+        Random random = new Random(SEED);
+        SudokuGenerator generator = new SudokuGenerator(size, SEED);
+        puzzles = new byte[distinct * copies][];
+        byte[] solution = new byte[size * size];
+        for (int p = 0; p < distinct; p++) {
+            byte[] puzzle = new byte[size * size];
+            generator.generate(SudokuGenerator.Difficulty.MEDIUM, puzzle, solution);
+            for (int c = 0; c < copies; c++) {
+                puzzles[p * copies + c] = relabel && c > 0 ? transform(puzzle, random) : puzzle.clone();
+            }
+        }
+        for (int i = puzzles.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            byte[] swap = puzzles[i];
+            puzzles[i] = puzzles[j];
+            puzzles[j] = swap;
+        }
+        out = new byte[size * size];
+        solver = Solver.forSize(size);
+    }
+
+    @Override
+    public int solveAll() {
+        int solved = 0;
+        for (byte[] puzzle : puzzles) {
+            if (solver.solve(puzzle, out)) {
+                solved++;
+            }
+        }
+        return solved;
+    }
+
+    @Override
+    public int solveAllCached() {
+        SolveCache cache = new SolveCache(puzzles.length);
+        int solved = 0;
+        for (byte[] puzzle : puzzles) {
+            if (cache.solve(size, puzzle, out)) {
+                solved++;
+            }
+        }
+        return solved;
+    }
+
+    // Relabels the digits, shuffles bands, stacks and the rows and columns within them, and maybe transposes
+    private byte[] transform(byte[] puzzle, Random random) {
+        int box = (int) Math.round(Math.sqrt(size));
+        int[] rows = lines(box, random);
+        int[] cols = lines(box, random);
+        int[] digits = new int[size + 1];
+        for (int d = 1; d <= size; d++) {
+            digits[d] = d;
+        }
+        for (int d = size; d > 1; d--) {
+            int e = 1 + random.nextInt(d);
+            int swap = digits[d];
+            digits[d] = digits[e];
+            digits[e] = swap;
+        }
+        boolean transpose = random.nextBoolean();
+        byte[] copy = new byte[puzzle.length];
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                int from = transpose ? cols[c] * size + rows[r] : rows[r] * size + cols[c];
+                copy[r * size + c] = (byte) digits[puzzle[from]];
+            }
+        }
+        return copy;
+    }
+
+    // A random order of lines that keeps each band together
+    private int[] lines(int box, Random random) {
+        int[] bands = shuffled(box, random);
+        int[] order = new int[size];
+        for (int b = 0; b < box; b++) {
+            int[] within = shuffled(box, random);
+            for (int k = 0; k < box; k++) {
+                order[b * box + k] = bands[b] * box + within[k];
+            }
+        }
+        return order;
+    }
+
+    private static int[] shuffled(int n, Random random) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        return order;
+    }
+}
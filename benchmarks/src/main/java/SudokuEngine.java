@@ -0,0 +1,147 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Runs the benchmarked operations against the game classes. See {@link bench.Engine}
+ * for why this class is in the unnamed package.
+ */
+public class SudokuEngine implements bench.Engine {
+    private static final long SEED = 20240822L;
+
+    private Sudoku game;
+    private String row;
+    private String col;
+    private int cellIndex;
+    private final String[] digits = {"1", "2"};
+    private int toggle;
+    private int[] fill; // Every free cell with its solution digit, packed for makeMoves
+    private String levelFile;
+    private SaveFile saveFile;
+
+    @Override
+    public void setUp(int size, Path workDir) throws IOException {
+        byte[] puzzle = new byte[size * size];
+        byte[] solution = new byte[size * size];
+        SudokuGenerator generator = new SudokuGenerator(size, SEED);
+        if (size <= 16) {
+            generator.generate(SudokuGenerator.Difficulty.MEDIUM, puzzle, solution);
+        } else {
+            // Proving uniqueness on big boards is slow, and the benchmarks do not need it
+            generator.fullGrid(solution);
+            java.util.Random random = new java.util.Random(SEED);
+            for (int i = 0; i < puzzle.length; i++) {
+                puzzle[i] = random.nextBoolean() ? solution[i] : 0;
+            }
+        }
+        game = new Sudoku(size, puzzle, solution);
+
+        Path levels = Files.createDirectories(workDir.resolve("Levels"));
+        Path solutions = Files.createDirectories(workDir.resolve("Solutions"));
+        String name = "bench" + size;
+        writeCells(levels.resolve(name + ".txt"), size, puzzle, true);
+        writeCells(solutions.resolve(name + "solution.txt"), size, solution, false);
+        levelFile = levels.resolve(name + ".txt").toString();
+        saveFile = new SaveFile(workDir.resolve("bench" + size + ".dat"));
+        saveFile.save("bench", game); // So the load benchmark has a slot to read
+
+        int free = 0;
+        fill = new int[puzzle.length];
+        for (int i = 0; i < puzzle.length; i++) {
+            if (puzzle[i] == 0) {
+                fill[free++] = MoveLog.encode(i, 0, solution[i]);
+            }
+        }
+        fill = java.util.Arrays.copyOf(fill, free);
+
+        int cell = 0;
+        while (puzzle[cell] != 0) {
+            cell++;
+        }
+        cellIndex = cell;
+        row = String.valueOf(cell / size);
+        col = String.valueOf(cell % size);
+    }
+
+    // Writes a board in the level format, "row col value" per cell
+    private static void writeCells(Path file, int size, byte[] cells, boolean withSize) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            if (withSize) {
+                out.write(size + "\n");
+            }
+            for (int i = 0; i < cells.length; i++) {
+                out.write((i / size) + " " + (i % size) + " " + Sudoku.symbol(cells[i]) + "\n");
+            }
+        }
+    }
+
+    @Override
+    public boolean makeMove() {
+        toggle ^= 1;
+        return game.makeMove(row, col, digits[toggle]);
+    }
+
+    @Override
+    public boolean makeMoveInt() {
+        toggle ^= 1;
+        return game.makeMove(cellIndex, toggle + 1);
+    }
+
+    @Override
+    public boolean fillMoves() {
+        boolean won = false;
+        for (int move : fill) {
+            game.makeMove(MoveLog.index(move), MoveLog.newDigit(move));
+            won = game.checkWin();
+        }
+        for (int i = 0; i < fill.length; i++) {
+            game.undoLastMove();
+        }
+        return won;
+    }
+
+    @Override
+    public boolean fillBatch() {
+        game.makeMoves(fill);
+        boolean won = game.checkWin();
+        game.undoLastMove();
+        return won;
+    }
+
+    @Override
+    public boolean moveAndUndo() {
+        game.makeMove(row, col, digits[0]);
+        return game.undoLastMove();
+    }
+
+    @Override
+    public boolean checkWin() {
+        return game.checkWin();
+    }
+
+    @Override
+    public void fillBoard() {
+        game.makeMoves(fill);
+    }
+
+    @Override
+    public void clearBoard() {
+        game.clearBoard();
+    }
+
+    @Override
+    public Object loadLevel() throws IOException {
+        return new Sudoku(levelFile);
+    }
+
+    @Override
+    public void save() throws IOException {
+        saveFile.save("bench", game);
+    }
+
+    @Override
+    public void load() throws IOException {
+        saveFile.load("bench", game);
+    }
+}
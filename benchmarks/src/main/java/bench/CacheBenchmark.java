@@ -0,0 +1,47 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Time to solve a corpus of puzzles directly and through a {@code SolveCache},
+ * as {@code BatchSolver} does without and with -cache. Each call starts from an
+ * empty cache. "unique" has no duplicates, "repeated" holds each puzzle 16
+ * times verbatim, and "relabeled" holds 16 equivalent but differently written
+ * copies of each, which only canonicalizing can match.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheBenchmark {
+    private static final int DISTINCT = 64;
+    private static final int COPIES = 16;
+
+    @Param({"9", "16"})
+    public int size;
+
+    @Param({"unique", "repeated", "relabeled"})
+    public String corpus;
+
+    private CacheEngine engine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = CacheEngine.create();
+        boolean unique = corpus.equals("unique");
+        engine.setUp(size, DISTINCT, unique ? 1 : COPIES, corpus.equals("relabeled"));
+    }
+
+    @Benchmark
+    public int direct() {
+        return engine.solveAll();
+    }
+
+    @Benchmark
+    public int cached() {
+        return engine.solveAllCached();
+    }
+}
@@ -0,0 +1,48 @@
+package bench;
+
+/**
+ * A corpus of puzzles solved with and without a solve cache. Reached through an
+ * interface for the same reason as {@link Engine}: the game classes live in the
+ * unnamed package, so {@code SolveCacheEngine} makes the calls into them.
+ */
+public interface CacheEngine {
+
+    /**
+     * Creates the engine implementation.
+     *
+     * @return a new engine
+     */
+    static CacheEngine create() {
+        try {
+            return (CacheEngine) Class.forName("SolveCacheEngine").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("SolveCacheEngine is missing from the class path", e);
+        }
+    }
+
+    /**
+     * Builds a corpus of distinct puzzles, each appearing the given number of
+     * times, in shuffled order.
+     *
+     * @param size     the board size
+     * @param distinct the number of distinct puzzles
+     * @param copies   how many times each puzzle appears
+     * @param relabel  true to make each copy a relabeled, permuted or transposed
+     *                 form of its puzzle, false to repeat it verbatim
+     */
+    void setUp(int size, int distinct, int copies, boolean relabel);
+
+    /**
+     * Solves every puzzle of the corpus with a plain solver.
+     *
+     * @return the number solved
+     */
+    int solveAll();
+
+    /**
+     * Solves every puzzle of the corpus through a new, empty solve cache.
+     *
+     * @return the number solved
+     */
+    int solveAllCached();
+}
@@ -0,0 +1,77 @@
+package bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Throughput of one shared collaborative board as writer threads are added.
+ * Each benchmark runs the same random moves on free cells with a different
+ * number of threads, so the scores compare directly; on a machine with that
+ * many cores, a board striped by box should score higher with more writers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentBenchmark {
+
+    @Param({"9", "16", "25"})
+    public int size;
+
+    private SharedEngine engine;
+    private int[] free;
+    private final AtomicLong seeds = new AtomicLong();
+
+    @Setup(Level.Iteration) // A fresh board each iteration, as the move log keeps every move
+    public void setUp() {
+        engine = SharedEngine.create();
+        engine.setUp(size);
+        free = engine.freeCells();
+    }
+
+    /**
+     * One writer's random source, so threads never share one.
+     */
+    @State(Scope.Thread)
+    public static class Writer {
+        SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setUp(ConcurrentBenchmark shared) {
+            random = new SplittableRandom(shared.seeds.incrementAndGet());
+        }
+    }
+
+    // Makes one random move on a free cell
+    private boolean move(Writer writer) {
+        return engine.makeMove(free[writer.random.nextInt(free.length)], writer.random.nextInt(size + 1));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean oneWriter(Writer writer) {
+        return move(writer);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public boolean twoWriters(Writer writer) {
+        return move(writer);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean fourWriters(Writer writer) {
+        return move(writer);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean eightWriters(Writer writer) {
+        return move(writer);
+    }
+}
@@ -0,0 +1,74 @@
+package bench;
+
+import java.nio.file.Path;
+
+/**
+ * The game operations the benchmarks measure.
+ *
+ * The game classes live in the unnamed package, which code in a named package
+ * cannot refer to, and JMH only accepts benchmarks in a named package. So the
+ * calls into the game are made by {@code SudokuEngine}, which sits in the unnamed
+ * package, and the benchmarks reach it through this interface. Only set-up goes
+ * through reflection; the measured calls are plain interface calls.
+ */
+public interface Engine {
+
+    /**
+     * Creates the engine implementation.
+     *
+     * @return a new engine
+     */
+    static Engine create() {
+        try {
+            return (Engine) Class.forName("SudokuEngine").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("SudokuEngine is missing from the class path", e);
+        }
+    }
+
+    /**
+     * Builds a game of the given size and writes its level, solution and save
+     * files under a working directory.
+     *
+     * @param size    the board size
+     * @param workDir the directory for the level and save files
+     * @throws Exception if the files cannot be written
+     */
+    void setUp(int size, Path workDir) throws Exception;
+
+    /** Enters a digit in a fillable cell, alternating between two digits. */
+    boolean makeMove();
+
+    /** Enters a digit like {@link #makeMove()}, through the int entry point. */
+    boolean makeMoveInt();
+
+    /**
+     * Fills every free cell with its solution digit one move at a time,
+     * checking for a win after each as the front ends do, then undoes them all.
+     */
+    boolean fillMoves();
+
+    /** Fills every free cell like {@link #fillMoves()} as one batch, then undoes it. */
+    boolean fillBatch();
+
+    /** Enters a digit and undoes it again. */
+    boolean moveAndUndo();
+
+    /** Checks whether the game is won. */
+    boolean checkWin();
+
+    /** Fills every free cell with its solution digit, so there is something to clear. */
+    void fillBoard();
+
+    /** Clears every move from the board. */
+    void clearBoard();
+
+    /** Loads the level and its solution file into a new game. */
+    Object loadLevel() throws Exception;
+
+    /** Saves the game to a save slot. */
+    void save() throws Exception;
+
+    /** Loads the game from the save slot. */
+    void load() throws Exception;
+}
@@ -0,0 +1,102 @@
+package bench;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Throughput of the engine's hot paths on 4x4, 9x9, 16x16 and 25x25 boards.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+
+    @Param({"4", "9", "16", "25"})
+    public int size;
+
+    private Engine engine;
+    private Path workDir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        workDir = Files.createTempDirectory("sudoku-bench");
+        engine = Engine.create();
+        engine.setUp(size, workDir);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        try (var files = Files.walk(workDir)) {
+            files.sorted(java.util.Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public boolean makeMove() {
+        return engine.makeMove();
+    }
+
+    @Benchmark
+    public boolean makeMoveInt() {
+        return engine.makeMoveInt();
+    }
+
+    @Benchmark
+    public boolean fillMoves() {
+        return engine.fillMoves();
+    }
+
+    @Benchmark
+    public boolean fillBatch() {
+        return engine.fillBatch();
+    }
+
+    @Benchmark
+    public boolean moveAndUndo() {
+        return engine.moveAndUndo();
+    }
+
+    @Benchmark
+    public boolean checkWin() {
+        return engine.checkWin();
+    }
+
+    /**
+     * Refills the board before every clear, so each call has moves to clear.
+     */
+    @State(Scope.Thread)
+    public static class FilledBoard {
+        @Setup(Level.Invocation)
+        public void fill(EngineBenchmark bench) {
+            bench.engine.fillBoard();
+        }
+    }
+
+    @Benchmark
+    public void clearBoard(FilledBoard board) {
+        engine.clearBoard();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object loadLevel() throws Exception {
+        return engine.loadLevel();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void save() throws Exception {
+        engine.save();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void load() throws Exception {
+        engine.load();
+    }
+}
@@ -0,0 +1,45 @@
+package bench;
+
+/**
+ * A board many benchmark threads make moves on at once. Reached through an
+ * interface for the same reason as {@link Engine}: the game classes live in the
+ * unnamed package, so {@code ConcurrentEngine} makes the calls into them.
+ */
+public interface SharedEngine {
+
+    /**
+     * Creates the engine implementation.
+     *
+     * @return a new engine
+     */
+    static SharedEngine create() {
+        try {
+            return (SharedEngine) Class.forName("ConcurrentEngine").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("ConcurrentEngine is missing from the class path", e);
+        }
+    }
+
+    /**
+     * Builds a shared board of the given size.
+     *
+     * @param size the board size
+     */
+    void setUp(int size);
+
+    /**
+     * Gets the indexes of the cells that are not givens.
+     *
+     * @return the free cells
+     */
+    int[] freeCells();
+
+    /**
+     * Makes a move on the shared board. Safe to call from any thread.
+     *
+     * @param index the cell index
+     * @param digit the digit, or 0 to erase
+     * @return true if the move was made
+     */
+    boolean makeMove(int index, int digit);
+}